@@ -2,15 +2,22 @@ package io.github.syst3ms.skriptparser;
 
 import io.github.syst3ms.skriptparser.log.LogEntry;
 import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
+import io.github.syst3ms.skriptparser.parsing.ScriptWatcher;
 import io.github.syst3ms.skriptparser.registration.DefaultRegistration;
 import io.github.syst3ms.skriptparser.registration.SkriptRegistration;
 import io.github.syst3ms.skriptparser.util.FileUtils;
+import io.github.syst3ms.skriptparser.variables.MappedVariableStore;
+import io.github.syst3ms.skriptparser.variables.Variables;
 
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.List;
 
 public class Main {
@@ -19,31 +26,103 @@ public class Main {
 
     public static void main(String[] args) {
         boolean debug = false;
-        String scriptName = "";
-        String[] programArgs = new String[0];
-        if (args.length == 0) {
+        boolean watch = false;
+        Path variables = null;
+        Path mappedVariables = null;
+        int i = 0;
+        for (; i < args.length; i++) { // Options come before the script name
+            if (args[i].equals("--debug")) {
+                debug = true;
+            } else if (args[i].equals("--watch")) {
+                watch = true;
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                ScriptLoader.setCacheDirectory(Paths.get(args[++i]));
+            } else if (args[i].equals("--variables") && i + 1 < args.length) {
+                variables = Paths.get(args[++i]);
+            } else if (args[i].equals("--mapped-variables") && i + 1 < args.length) {
+                mappedVariables = Paths.get(args[++i]);
+            } else {
+                break;
+            }
+        }
+        if (i == args.length) {
             System.err.println("You need to provide a script name !");
             System.exit(1);
-        } else if (args.length > 1 && args[0].equals("--debug")) {
-            debug = true;
-            scriptName = args[1];
-            programArgs = Arrays.copyOfRange(args, 2, args.length);
-        } else {
-            scriptName = args[0];
-            programArgs = Arrays.copyOfRange(args, 1, args.length);
         }
+        String scriptName = args[i];
+        String[] programArgs = Arrays.copyOfRange(args, i + 1, args.length);
         Skript skript = new Skript(programArgs);
         registration = new SkriptRegistration(skript);
         DefaultRegistration.register();
         try {
-            FileUtils.loadClasses("io.github.syst3ms.skriptparser", "expressions", "effects", "event");
+            FileUtils.loadClasses("io.github.syst3ms.skriptparser", "expressions", "effects", "event", "lang");
         } catch (IOException | URISyntaxException e) {
             System.err.println("Error while loading classes:");
             e.printStackTrace();
         }
         registration.register();
+        if (variables != null && mappedVariables != null) {
+            System.err.println("Variables can't be both saved and mapped !");
+            System.exit(1);
+        }
+        if (mappedVariables != null) {
+            try {
+                Variables.setStore(MappedVariableStore.open(mappedVariables));
+            } catch (IOException e) {
+                System.err.println("Error while opening variables:");
+                e.printStackTrace();
+                System.exit(1);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Variables.getStore().close();
+                } catch (IOException e) {
+                    System.err.println("Error while saving variables:");
+                    e.printStackTrace();
+                }
+            }));
+        }
+        if (variables != null) {
+            try {
+                Variables.enablePersistence(variables);
+            } catch (IOException e) {
+                System.err.println("Error while loading variables:");
+                e.printStackTrace();
+                System.exit(1);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Variables.disablePersistence();
+                } catch (IOException e) {
+                    System.err.println("Error while saving variables:");
+                    e.printStackTrace();
+                }
+            }));
+        }
         File script = new File(scriptName);
-        List<LogEntry> logs = ScriptLoader.loadScript(script, debug);
+        if (watch && !script.isDirectory()) {
+            System.err.println("Only a directory of scripts can be watched !");
+            System.exit(1);
+        }
+        List<LogEntry> logs;
+        if (script.isDirectory()) {
+            logs = new ArrayList<>();
+            ScriptLoader.loadScripts(Collections.singletonList(script.toPath()), debug).values().forEach(logs::addAll);
+        } else {
+            logs = ScriptLoader.loadScript(script, debug);
+        }
+        printLogs(logs);
+        if (watch) {
+            try (ScriptWatcher watcher = new ScriptWatcher(script.toPath(), debug, ScriptWatcher.DEFAULT_DEBOUNCE, (path, l) -> printLogs(l))) {
+                watcher.run();
+            } catch (IOException e) {
+                System.err.println("Error while watching scripts:");
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void printLogs(List<LogEntry> logs) {
         Calendar time = Calendar.getInstance();
         for (LogEntry log : logs) {
             System.out.printf(CONSOLE_FORMAT, time, log.getType().name(), log.getMessage());
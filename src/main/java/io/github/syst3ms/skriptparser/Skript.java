@@ -21,6 +21,11 @@ public class Skript extends SkriptAddon {
         mainTriggers.add(trigger);
     }
 
+    @Override
+    public void unloadTrigger(Trigger trigger) {
+        mainTriggers.remove(trigger);
+    }
+
     @Override
     public void finishedLoading() {
         for (Trigger trigger : mainTriggers) {
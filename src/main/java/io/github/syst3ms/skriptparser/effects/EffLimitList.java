@@ -0,0 +1,87 @@
+package io.github.syst3ms.skriptparser.effects;
+
+import io.github.syst3ms.skriptparser.Main;
+import io.github.syst3ms.skriptparser.event.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Effect;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Variable;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many elements a list variable keeps, removing the least recently used ones first, and/or for how many
+ * seconds its values are kept after they were set. This is meant for lists used as caches, which would otherwise grow
+ * forever. Limits replace the previous ones, and stay in place even if the list is deleted, until it is unlimited.
+ *
+ * @name Limit List
+ * @pattern limit %objects% to %number% (elements|entries|values)
+ * @pattern limit %objects% to %number% (elements|entries|values) (expiring|that expire) after %number% second[s]
+ * @pattern expire (elements|entries|values) of %objects% after %number% second[s]
+ * @pattern unlimit %objects%
+ * @since ALPHA
+ */
+public class EffLimitList extends Effect {
+    private int pattern;
+    private Variable<?> list;
+    @Nullable
+    private Expression<Number> capacity, timeToLive;
+
+    static {
+        Main.getMainRegistration().addEffect(
+            EffLimitList.class,
+            "limit %objects% to %number% (elements|entries|values)",
+            "limit %objects% to %number% (elements|entries|values) (expiring|that expire) after %number% second[s]",
+            "expire (elements|entries|values) of %objects% after %number% second[s]",
+            "unlimit %objects%"
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+        pattern = matchedPattern;
+        if (!(expressions[0] instanceof Variable) || expressions[0].isSingle()) {
+            SkriptLogger logger = parseContext.getLogger();
+            logger.error(expressions[0].toString(null, logger.isDebug()) + " is not a list variable");
+            return false;
+        }
+        list = (Variable<?>) expressions[0];
+        if (pattern < 2)
+            capacity = (Expression<Number>) expressions[1];
+        if (pattern == 1 || pattern == 2)
+            timeToLive = (Expression<Number>) expressions[expressions.length - 1];
+        return true;
+    }
+
+    @Override
+    public void execute(TriggerContext e) {
+        int c = 0;
+        long t = 0;
+        if (capacity != null) {
+            Number n = capacity.getSingle(e);
+            if (n == null)
+                return;
+            c = Math.max(n.intValue(), 1);
+        }
+        if (timeToLive != null) {
+            Number n = timeToLive.getSingle(e);
+            if (n == null)
+                return;
+            t = Math.max((long) (n.doubleValue() * 1000), 1);
+        }
+        list.limit(e, c, t, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String toString(@Nullable TriggerContext ctx, boolean debug) {
+        String s = pattern == 3 ? "unlimit " + list.toString(ctx, debug) : "limit " + list.toString(ctx, debug);
+        if (capacity != null)
+            s += " to " + capacity.toString(ctx, debug) + " elements";
+        if (timeToLive != null)
+            s += " expiring after " + timeToLive.toString(ctx, debug) + " seconds";
+        return s;
+    }
+}
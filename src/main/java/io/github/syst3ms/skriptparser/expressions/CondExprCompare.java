@@ -4,6 +4,7 @@ import io.github.syst3ms.skriptparser.Main;
 import io.github.syst3ms.skriptparser.event.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.lang.ExpressionList;
+import io.github.syst3ms.skriptparser.lang.Variable;
 import io.github.syst3ms.skriptparser.lang.base.ConditionalExpression;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
@@ -187,6 +188,28 @@ public class CondExprCompare extends ConditionalExpression {
     @Override
     public boolean check(TriggerContext ctx) {
         Expression<?> third = this.third;
+        if (third == null && relation == Relation.EQUAL && comp == null) {
+            // Equality with the values of a list variable is checked by counting them, which the list can do without
+            // comparing each of them
+            if (isListVariable(second)) {
+                Variable<?> list = (Variable<?>) second;
+                return first.check(ctx, o1 -> {
+                    int size = list.size(ctx);
+                    if (size == 0)
+                        return second.check(ctx, o2 -> relation.is(Comparators.compare(o1, o2)), isNegated());
+                    int equal = list.countEqual(ctx, o1);
+                    return isNegated() ? equal < size : equal == size;
+                });
+            } else if (isListVariable(first) && second.isSingle()) {
+                Variable<?> list = (Variable<?>) first;
+                Object o2 = second.getSingle(ctx);
+                int size = list.size(ctx);
+                if (o2 != null && size > 0) {
+                    int equal = list.countEqual(ctx, o2);
+                    return isNegated() ? equal == 0 : equal == size;
+                }
+            }
+        }
         return first.check(
                 ctx,
             o1 -> second.check(
@@ -214,6 +237,13 @@ public class CondExprCompare extends ConditionalExpression {
         );
     }
 
+    /**
+     * @return whether the expression is a list variable whose values are compared as they are
+     */
+    private static boolean isListVariable(Expression<?> expr) {
+        return expr instanceof Variable && !expr.isSingle() && expr.getReturnType() == Object.class;
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         String s;
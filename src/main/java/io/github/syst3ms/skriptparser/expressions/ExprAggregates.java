@@ -0,0 +1,88 @@
+package io.github.syst3ms.skriptparser.expressions;
+
+import io.github.syst3ms.skriptparser.Main;
+import io.github.syst3ms.skriptparser.event.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Variable;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import io.github.syst3ms.skriptparser.util.math.NumberMath;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The amount of values, or the sum, minimum or maximum of the numerical values of some expression.
+ * List variables keep those up to date as they change, so they don't take longer for larger lists.
+ *
+ * @name Aggregates
+ * @pattern [the ](size|amount) of %objects%
+ * @pattern [the ]sum of %objects%
+ * @pattern [the ](minimum|min) [value ]of %objects%
+ * @pattern [the ](maximum|max) [value ]of %objects%
+ * @since ALPHA
+ */
+public class ExprAggregates implements Expression<Number> {
+    private int pattern;
+    private Expression<?> values;
+
+    static {
+        Main.getMainRegistration().addExpression(
+                ExprAggregates.class,
+                Number.class,
+                true,
+                "[the ](size|amount) of %objects%",
+                "[the ]sum of %objects%",
+                "[the ](minimum|min) [value ]of %objects%",
+                "[the ](maximum|max) [value ]of %objects%"
+        );
+    }
+
+    @Override
+    public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+        pattern = matchedPattern;
+        values = expressions[0];
+        return true;
+    }
+
+    @Override
+    public Number[] getValues(TriggerContext ctx) {
+        if (values instanceof Variable && !values.isSingle()) {
+            Variable<?> list = (Variable<?>) values;
+            switch (pattern) {
+                case 0:
+                    return new Number[]{(long) list.size(ctx)};
+                case 1:
+                    return new Number[]{list.sum(ctx)};
+                default:
+                    List<Map.Entry<String, Object>> extreme = list.sortedElements(ctx, 1, pattern == 3);
+                    return extreme.isEmpty() ? new Number[0] : new Number[]{(Number) extreme.get(0).getValue()};
+            }
+        }
+        Object[] all = values.getValues(ctx);
+        if (pattern == 0)
+            return new Number[]{(long) all.length};
+        Number result = pattern == 1 ? 0L : null;
+        for (Object o : all) {
+            if (!(o instanceof Number))
+                continue;
+            Number n = (Number) o;
+            if (pattern == 1) {
+                result = NumberMath.add(result, n);
+                continue;
+            }
+            if (n instanceof Double && (((Double) n).isNaN() || ((Double) n).isInfinite()))
+                continue; // Left out, like in list variables, as they can't be compared to every number
+            if (result == null || Comparators.getJavaComparator().compare(n, result) * (pattern == 3 ? 1 : -1) > 0)
+                result = n;
+        }
+        return result == null ? new Number[0] : new Number[]{result};
+    }
+
+    @Override
+    public String toString(@Nullable TriggerContext ctx, boolean debug) {
+        String[] names = {"size", "sum", "minimum", "maximum"};
+        return names[pattern] + " of " + values.toString(ctx, debug);
+    }
+}
@@ -21,6 +21,11 @@ public class ExprBooleanOperators implements Expression<Boolean> {
     private Expression<Boolean> first;
     @Nullable
     private Expression<Boolean> second;
+    /**
+     * Whether the operands {@linkplain Expression#getPrimitiveType() can be computed without boxing them}, in which case
+     * this can be too
+     */
+    private boolean primitive;
 
     static {
         Main.getMainRegistration().addExpression(
@@ -42,29 +47,60 @@ public class ExprBooleanOperators implements Expression<Boolean> {
         if (expressions.length > 1) {
             second = (Expression<Boolean>) expressions[1];
         }
+        primitive = first.getPrimitiveType() == boolean.class
+                && (second == null || second.getPrimitiveType() == boolean.class);
         return true;
     }
 
     @Override
     public Boolean[] getValues(TriggerContext ctx) {
+        Boolean b = getSingle(ctx);
+        return b != null ? new Boolean[]{b} : new Boolean[0];
+    }
+
+    @Override
+    @Nullable
+    public Boolean getSingle(TriggerContext ctx) {
+        if (primitive)
+            return getBoolean(ctx);
         assert second != null || pattern == 0;
         Boolean f = first.getSingle(ctx);
         if (f == null)
-            return new Boolean[0];
+            return null;
         if (pattern == 0) {
-            return new Boolean[]{!f};
+            return !f;
         } else {
             Boolean s = second.getSingle(ctx);
             if (s == null)
-                return new Boolean[0];
+                return null;
             if (pattern == 1) {
-                return new Boolean[]{f || s};
+                return f || s;
             } else {
-                return new Boolean[]{f && s};
+                return f && s;
             }
         }
     }
 
+    @Override
+    @Nullable
+    public Class<?> getPrimitiveType() {
+        return primitive ? boolean.class : null;
+    }
+
+    @Override
+    public boolean getBoolean(TriggerContext ctx) {
+        if (!primitive)
+            return Expression.super.getBoolean(ctx);
+        assert second != null || pattern == 0;
+        boolean f = first.getBoolean(ctx);
+        if (pattern == 0) {
+            return !f;
+        } else {
+            boolean s = second.getBoolean(ctx);
+            return pattern == 1 ? f || s : f && s;
+        }
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         if (pattern == 0) {
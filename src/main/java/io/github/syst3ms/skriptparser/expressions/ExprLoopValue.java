@@ -3,11 +3,11 @@ package io.github.syst3ms.skriptparser.expressions;
 import io.github.syst3ms.skriptparser.Main;
 import io.github.syst3ms.skriptparser.event.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Frame;
 import io.github.syst3ms.skriptparser.lang.Loop;
 import io.github.syst3ms.skriptparser.lang.Variable;
 import io.github.syst3ms.skriptparser.lang.base.ConvertedExpression;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
-import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
 import io.github.syst3ms.skriptparser.types.PatternType;
 import io.github.syst3ms.skriptparser.types.TypeManager;
 import io.github.syst3ms.skriptparser.types.conversions.Converters;
@@ -32,6 +32,10 @@ public class ExprLoopValue implements Expression<Object> {
 	private String name;
 	@SuppressWarnings("null")
 	private Loop loop;
+	/**
+	 * The {@link Frame} slot of the loop
+	 */
+	private int slot;
 	private boolean isVariableLoop;
 	private boolean isIndex;
 
@@ -65,7 +69,7 @@ public class ExprLoopValue implements Expression<Object> {
 		int j = 1;
 		Loop loop = null;
 
-		for (final Loop l : ScriptLoader.getCurrentLoops()) {
+		for (final Loop l : parser.getParserState().getCurrentLoops()) {
 			if (c != null && c.isAssignableFrom(l.getLoopedExpression().getReturnType()) ||
 				"value".equals(s) ||
 				l.getLoopedExpression().isLoopOf(s)) {
@@ -90,6 +94,7 @@ public class ExprLoopValue implements Expression<Object> {
 				isIndex = true;
 		}
 		this.loop = loop;
+		this.slot = loop.getSlot();
 		return true;
 	}
 
@@ -112,21 +117,31 @@ public class ExprLoopValue implements Expression<Object> {
 
 	@Override
 	public Object[] getValues(TriggerContext ctx) {
+		Object value = getSingle(ctx);
+		if (isVariableLoop && value == null)
+			return new Object[0];
 		Object[] one = (Object[]) Array.newInstance(getReturnType(), 1);
+		one[0] = value;
+		return one;
+	}
+
+	@Override
+	@Nullable
+	public Object getSingle(TriggerContext ctx) {
 		if (isVariableLoop) {
 			@SuppressWarnings("unchecked")
-			final Map.Entry<String, Object> current = (Map.Entry<String, Object>) loop.getCurrent(ctx);
-			if (current == null) {
-				return new Object[0];
-			}
-			if (isIndex) {
-				return new String[] {current.getKey()};
-			}
-			one[0] = current.getValue();
-			return one;
+			final Map.Entry<String, Object> current = (Map.Entry<String, Object>) current();
+			if (current == null)
+				return null;
+			return isIndex ? current.getKey() : current.getValue();
 		}
-		one[0] = loop.getCurrent(ctx);
-		return one;
+		return current();
+	}
+
+	@Nullable
+	private Object current() {
+		Frame frame = Frame.getCurrent();
+		return frame != null ? frame.getLoopValue(slot) : null;
 	}
 
 	@Override
@@ -135,12 +150,12 @@ public class ExprLoopValue implements Expression<Object> {
 			return name;
 		if (isVariableLoop) {
 			@SuppressWarnings("unchecked")
-			final Map.Entry<String, Object> current = (Map.Entry<String, Object>) loop.getCurrent(ctx);
+			final Map.Entry<String, Object> current = (Map.Entry<String, Object>) current();
 			if (current == null)
 				return TypeManager.NULL_REPRESENTATION;
 			return isIndex ? "\"" + current.getKey() + "\"" : TypeManager.toString(current.getValue());
 		}
-		return TypeManager.toString(loop.getCurrent(ctx));
+		return TypeManager.toString(current());
 	}
 
 }
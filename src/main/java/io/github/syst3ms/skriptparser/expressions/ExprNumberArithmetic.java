@@ -13,6 +13,8 @@ import org.jetbrains.annotations.Nullable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.math.RoundingMode;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.LongBinaryOperator;
 
 /**
  * Various arithmetic expressions, including addition, subtraction, multiplication, division and exponentiation.
@@ -28,6 +30,9 @@ import java.math.RoundingMode;
  *     <li>0<sup>0</sup> is defined to be 1</li>
  *     <li>A division by zero will not return any value and will print an error</li>
  *     <li>Primitive types will be converted to an arbitrary-precision result in case of overflow/underflow</li>
+ *     <li>When both operands are known to be {@code long}s or {@code double}s, the result is computed without boxing
+ *     them, and falls back to the arbitrary-precision path in case of overflow. Nested operations are computed this way
+ *     as a whole.</li>
  *
  * </ul>
  * 
@@ -43,7 +48,7 @@ import java.math.RoundingMode;
 public class ExprNumberArithmetic implements Expression<Number> {
 
     private enum Operator {
-        PLUS('+') {
+        PLUS('+', Math::addExact, (l, r) -> l + r) {
             @Override
             public Number calculate(Number left, Number right) {
                 if (left instanceof Long && right instanceof Long) {
@@ -81,7 +86,7 @@ public class ExprNumberArithmetic implements Expression<Number> {
                 }
             }
         },
-        MINUS('-') {
+        MINUS('-', Math::subtractExact, (l, r) -> l - r) {
             @Override
             public Number calculate(Number left, Number right) {
                 if (left instanceof Long && right instanceof Long) {
@@ -119,7 +124,7 @@ public class ExprNumberArithmetic implements Expression<Number> {
                 }
             }
         },
-        MULT('*') {
+        MULT('*', Math::multiplyExact, (l, r) -> l * r) {
             @Override
             public Number calculate(Number left, Number right) {
                 if (left instanceof Long && right instanceof Long) {
@@ -157,7 +162,7 @@ public class ExprNumberArithmetic implements Expression<Number> {
                 }
             }
         },
-        DIV('/') {
+        DIV('/', null, (l, r) -> l / r) {
             @Override
             public Number calculate(Number left, Number right) {
                 if (isZero(right)) {
@@ -171,7 +176,7 @@ public class ExprNumberArithmetic implements Expression<Number> {
                 }
             }
         },
-        EXP('^') {
+        EXP('^', null, null) {
             @Override
             public Number calculate(Number left, Number right) {
                 if (isZero(right)) {
@@ -211,9 +216,23 @@ public class ExprNumberArithmetic implements Expression<Number> {
         };
 
         public final char sign;
+        /**
+         * Computes two {@code long}s, throwing an {@link ArithmeticException} on overflow, or {@literal null} if
+         * {@link #calculate(Number, Number)} doesn't compute two {@link Long}s as {@code long}s
+         */
+        @Nullable
+        public final LongBinaryOperator exact;
+        /**
+         * Computes two {@code double}s, or {@literal null} if {@link #calculate(Number, Number)} never computes its
+         * operands as {@code double}s
+         */
+        @Nullable
+        public final DoubleBinaryOperator inexact;
 
-        Operator(char sign) {
+        Operator(char sign, @Nullable LongBinaryOperator exact, @Nullable DoubleBinaryOperator inexact) {
             this.sign = sign;
+            this.exact = exact;
+            this.inexact = inexact;
         }
 
         public abstract Number calculate(Number left, Number right);
@@ -265,6 +284,12 @@ public class ExprNumberArithmetic implements Expression<Number> {
 
     private Expression<? extends Number> first, second;
     private Operator op;
+    /**
+     * The {@linkplain Expression#getPrimitiveType() primitive type} this operation is computed as, if any
+     */
+    @Nullable
+    private Class<?> specialization;
+    private boolean firstLong, secondLong;
 
     @SuppressWarnings("unchecked")
     @Override
@@ -272,17 +297,72 @@ public class ExprNumberArithmetic implements Expression<Number> {
         first = (Expression<? extends Number>) exprs[0];
         second = (Expression<? extends Number>) exprs[1];
         op = PATTERNS.getInfo(matchedPattern);
+        Class<?> firstType = first.getPrimitiveType(), secondType = second.getPrimitiveType();
+        firstLong = firstType == long.class;
+        secondLong = secondType == long.class;
+        if ((firstLong || firstType == double.class) && (secondLong || secondType == double.class)) {
+            if (firstLong && secondLong) {
+                if (op.exact != null)
+                    specialization = long.class;
+            } else if (op.inexact != null && (op != Operator.DIV || firstType != secondType)) {
+                // Two doubles are divided as BigDecimals
+                specialization = double.class;
+            }
+        }
         return true;
     }
 
     @Override
     public Number[] getValues(TriggerContext ctx) {
+        return new Number[]{getSingle(ctx)};
+    }
+
+    @Override
+    @Nullable
+    public Number getSingle(TriggerContext ctx) {
+        if (specialization != null) {
+            try {
+                return specialization == long.class ? (Number) getLong(ctx) : (Number) getDouble(ctx);
+            } catch (ArithmeticException ignored) {
+                // Overflow, or a division by zero, which are handled below
+            }
+        }
         Number n1 = first.getSingle(ctx), n2 = second.getSingle(ctx);
         if (n1 == null)
             n1 = 0;
         if (n2 == null)
             n2 = 0;
-        return new Number[]{op.calculate(n1, n2)};
+        return op.calculate(n1, n2);
+    }
+
+    @Override
+    @Nullable
+    public Class<?> getPrimitiveType() {
+        return specialization;
+    }
+
+    @Override
+    public long getLong(TriggerContext ctx) {
+        if (specialization != long.class)
+            return Expression.super.getLong(ctx);
+        assert op.exact != null;
+        return op.exact.applyAsLong(first.getLong(ctx), second.getLong(ctx));
+    }
+
+    @Override
+    public double getDouble(TriggerContext ctx) {
+        if (specialization != double.class)
+            return Expression.super.getDouble(ctx);
+        assert op.inexact != null;
+        double d1 = firstLong ? first.getLong(ctx) : first.getDouble(ctx);
+        double d2 = secondLong ? second.getLong(ctx) : second.getDouble(ctx);
+        if (op == Operator.DIV && d2 == 0)
+            throw new ArithmeticException("Division by zero");
+        double result = op.inexact.applyAsDouble(d1, d2);
+        // Only a division may return an infinite double, the other operations switch to BigDecimal instead
+        if (op != Operator.DIV && Double.isInfinite(result))
+            throw new ArithmeticException("Overflow");
+        return result;
     }
 
     @Override
@@ -0,0 +1,106 @@
+package io.github.syst3ms.skriptparser.expressions;
+
+import io.github.syst3ms.skriptparser.Main;
+import io.github.syst3ms.skriptparser.event.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Variable;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of a list variable that are the highest, the lowest, or within a range, or their indices.
+ * Only numerical values are taken into account. The list keeps its values sorted once this has been used on it, so
+ * this doesn't take longer for larger lists.
+ *
+ * @name Sorted Values
+ * @pattern [the ](top|highest) %number% [value[s] ]of %objects%
+ * @pattern [the ](bottom|lowest) %number% [value[s] ]of %objects%
+ * @pattern [the ](top|highest) %number% (indices|indexes) of %objects%
+ * @pattern [the ](bottom|lowest) %number% (indices|indexes) of %objects%
+ * @pattern [the ]value[s] of %objects% between %number% and %number%
+ * @pattern [the ](indices|indexes) of %objects% between %number% and %number%
+ * @since ALPHA
+ */
+public class ExprSortedValues implements Expression<Object> {
+    private int pattern;
+    @Nullable
+    private Expression<Number> count, from, to;
+    private Variable<?> list;
+
+    static {
+        Main.getMainRegistration().addExpression(
+                ExprSortedValues.class,
+                Object.class,
+                false,
+                "[the ](top|highest) %number% [value[s] ]of %objects%",
+                "[the ](bottom|lowest) %number% [value[s] ]of %objects%",
+                "[the ](top|highest) %number% (indices|indexes) of %objects%",
+                "[the ](bottom|lowest) %number% (indices|indexes) of %objects%",
+                "[the ]value[s] of %objects% between %number% and %number%",
+                "[the ](indices|indexes) of %objects% between %number% and %number%"
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+        pattern = matchedPattern;
+        Expression<?> list;
+        if (pattern < 4) {
+            count = (Expression<Number>) expressions[0];
+            list = expressions[1];
+        } else {
+            list = expressions[0];
+            from = (Expression<Number>) expressions[1];
+            to = (Expression<Number>) expressions[2];
+        }
+        if (!(list instanceof Variable) || list.isSingle()) {
+            SkriptLogger logger = parseContext.getLogger();
+            logger.error(list.toString(null, logger.isDebug()) + " is not a list variable");
+            return false;
+        }
+        this.list = (Variable<?>) list;
+        return true;
+    }
+
+    @Override
+    public Object[] getValues(TriggerContext ctx) {
+        List<Map.Entry<String, Object>> elements;
+        if (pattern < 4) {
+            assert count != null;
+            Number c = count.getSingle(ctx);
+            if (c == null)
+                return new Object[0];
+            elements = list.sortedElements(ctx, c.intValue(), pattern % 2 == 0);
+        } else {
+            assert from != null && to != null;
+            Number f = from.getSingle(ctx), t = to.getSingle(ctx);
+            if (f == null || t == null)
+                return new Object[0];
+            elements = list.elementsBetween(ctx, f, t);
+        }
+        boolean indices = pattern == 2 || pattern == 3 || pattern == 5;
+        Object[] values = new Object[elements.size()];
+        for (int i = 0; i < values.length; i++) {
+            Map.Entry<String, Object> element = elements.get(i);
+            values[i] = indices ? element.getKey() : element.getValue();
+        }
+        return values;
+    }
+
+    @Override
+    public String toString(@Nullable TriggerContext ctx, boolean debug) {
+        String kind = pattern == 2 || pattern == 3 || pattern == 5 ? "indices" : "values";
+        if (pattern < 4) {
+            assert count != null;
+            return (pattern % 2 == 0 ? "top " : "bottom ") + count.toString(ctx, debug) + " " + kind + " of " + list.toString(ctx, debug);
+        } else {
+            assert from != null && to != null;
+            return kind + " of " + list.toString(ctx, debug) + " between " + from.toString(ctx, debug) + " and " + to.toString(ctx, debug);
+        }
+    }
+}
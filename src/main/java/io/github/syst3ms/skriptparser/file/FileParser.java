@@ -27,8 +27,17 @@ public class FileParser {
      * @return a list of {@link FileElement}s
      */
     public List<FileElement> parseFileLines(String fileName, List<String> lines, int expectedIndentation, int lastLine, SkriptLogger logger) {
+        return parseFileLines(fileName, lines, new int[] {0}, expectedIndentation, lastLine, logger);
+    }
+
+    /**
+     * @param position a single-element array holding the index of the next line to parse, which is moved forward as
+     *                 lines are consumed, including by nested sections
+     */
+    private List<FileElement> parseFileLines(String fileName, List<String> lines, int[] position, int expectedIndentation, int lastLine, SkriptLogger logger) {
         List<FileElement> elements = new ArrayList<>();
-        for (int i = 0; i < lines.size(); i++) {
+        while (position[0] < lines.size()) {
+            int i = position[0];
             String line = lines.get(i);
             String content;
             Matcher m = LINE_PATTERN.matcher(line);
@@ -39,29 +48,23 @@ public class FileParser {
             }
             if (content.matches("\\s*")) {
                 elements.add(new VoidElement(fileName, lastLine + i, expectedIndentation));
+                position[0]++;
                 continue;
             }
             int lineIndentation = FileUtils.getIndentationLevel(line);
             if (lineIndentation > expectedIndentation) { // The line is indented too much
                 logger.error("The line is indented too much (line " + (lastLine + i) + ": \"" + content + "\")");
+                position[0]++;
                 continue;
             } else if (lineIndentation < expectedIndentation) { // One indentation behind marks the end of a section
                 return elements;
             }
+            position[0]++;
             if (content.endsWith(":")) {
-                if (i + 1 == lines.size()) {
-                    elements.add(new FileSection(fileName, lastLine + i, content.substring(0, content.length() - 1),
-                            new ArrayList<>(), expectedIndentation
-                    ));
-                } else {
-                    List<FileElement> sectionElements = parseFileLines(fileName, lines.subList(i + 1, lines.size()),
-                            expectedIndentation + 1, lastLine + i + 1,
-                            logger);
-                    elements.add(new FileSection(fileName, lastLine + i, content.substring(0, content.length() - 1),
-                            sectionElements, expectedIndentation
-                    ));
-                    i += sectionElements.size();
-                }
+                List<FileElement> sectionElements = parseFileLines(fileName, lines, position, expectedIndentation + 1, lastLine, logger);
+                elements.add(new FileSection(fileName, lastLine + i, content.substring(0, content.length() - 1),
+                        sectionElements, expectedIndentation
+                ));
             } else {
                 elements.add(new FileElement(fileName, lastLine + i, content, expectedIndentation));
             }
@@ -0,0 +1,16 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.event.TriggerContext;
+
+/**
+ * The code of a {@link Trigger}, compiled into a class of its own once the trigger has run often enough.
+ * This is only public so that the generated classes, which are not loaded by the same class loader, can implement it.
+ * @see ProgramCompiler
+ */
+public interface CompiledCode {
+    /**
+     * Runs the code from the start of the trigger
+     * @param ctx the event
+     */
+    void run(TriggerContext ctx);
+}
@@ -4,6 +4,7 @@ import io.github.syst3ms.skriptparser.event.TriggerContext;
 import io.github.syst3ms.skriptparser.file.FileSection;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -22,8 +23,8 @@ public class Conditional extends CodeSection {
     private Expression<Boolean> condition;
     private Conditional fallingClause;
 
-    public Conditional(FileSection section, @Nullable Expression<Boolean> condition, ConditionalMode mode, SkriptLogger logger) {
-        super.loadSection(section, logger);
+    public Conditional(FileSection section, @Nullable Expression<Boolean> condition, ConditionalMode mode, ParserState parserState, SkriptLogger logger) {
+        super.loadSection(section, parserState, logger);
         this.condition = condition;
         this.mode = mode;
     }
@@ -38,12 +39,7 @@ public class Conditional extends CodeSection {
 
     @Override
     protected Statement walk(TriggerContext ctx) {
-        assert condition != null || mode == ConditionalMode.ELSE;
-        if (mode == ConditionalMode.ELSE) {
-            return getFirst();
-        }
-        Boolean c = condition.getSingle(ctx);
-        if (c != null && c) {
+        if (test(ctx)) {
             return getFirst();
         } else if (fallingClause != null){
             return fallingClause;
@@ -52,6 +48,33 @@ public class Conditional extends CodeSection {
         }
     }
 
+    /**
+     * @param ctx the event
+     * @return whether the contents of this Conditional should run, which is always the case for an "else"
+     */
+    boolean test(TriggerContext ctx) {
+        assert condition != null || mode == ConditionalMode.ELSE;
+        if (mode == ConditionalMode.ELSE)
+            return true;
+        return condition.getBoolean(ctx);
+    }
+
+    /**
+     * @return the condition of this Conditional, which is {@literal null} for an "else"
+     */
+    @Nullable
+    public Expression<Boolean> getCondition() {
+        return condition;
+    }
+
+    /**
+     * @return the Conditional this Conditional falls back to when its condition isn't met, if any
+     */
+    @Nullable
+    public Conditional getFallingClause() {
+        return fallingClause;
+    }
+
     /**
      * @param conditional the Conditional object this Conditional falls back to when it's condition verifies to
      *                    false. Setting this to an "if" Conditional may cause unexpected/confusing behaviour.
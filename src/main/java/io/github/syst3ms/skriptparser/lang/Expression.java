@@ -56,7 +56,9 @@ public interface Expression<T> extends SyntaxElement {
     default void change(TriggerContext ctx, Object[] changeWith, ChangeMode changeMode) {}
 
     /**
-     * Gets a single value out of this Expression
+     * Gets a single value out of this Expression. By default, this gets {@linkplain #getValues(TriggerContext) all of
+     * its values}, so expressions that usually return a single value should override this to compute it directly,
+     * without creating an array to hold it.
      * @param e the event
      * @return the single value of this Expression, or {@code null} if it has no value
      * @throws SkriptRuntimeException if the expression returns more than one value
@@ -73,16 +75,65 @@ public interface Expression<T> extends SyntaxElement {
         }
     }
 
+    /**
+     * Tells whether this expression can be evaluated without boxing its value, through {@link #getLong(TriggerContext)},
+     * {@link #getDouble(TriggerContext)} or {@link #getBoolean(TriggerContext)}. This is known when parsing, so that
+     * expressions using this one can pick a way to compute their own value that doesn't box it either.
+     * <br>
+     * A numerical expression may not always be able to compute its value as a primitive, for example when it overflows.
+     * In that case, {@link #getLong(TriggerContext)} and {@link #getDouble(TriggerContext)} throw an
+     * {@link ArithmeticException}, and the caller evaluates the expression again through {@link #getSingle(TriggerContext)}.
+     * Expressions reporting a numerical primitive type should therefore not have side effects.
+     * @return {@code long.class}, {@code double.class} or {@code boolean.class} if this expression always returns a
+     * single {@link Long}, {@link Double} or {@link Boolean} respectively, {@literal null} otherwise
+     */
+    @Nullable
+    default Class<?> getPrimitiveType() {
+        return null;
+    }
+
+    /**
+     * Gets the single value of a numerical expression as a {@code long}. By default, this unboxes
+     * {@linkplain #getSingle(TriggerContext) its single value}, and expressions whose
+     * {@linkplain #getPrimitiveType() primitive type} is {@code long} should override this to compute it directly.
+     * @param ctx the event
+     * @return the single value of this expression, or {@code 0} if it has no value, like in arithmetic
+     * @throws ArithmeticException if the value of this expression can't be computed as a {@code long}
+     */
+    default long getLong(TriggerContext ctx) {
+        Number n = (Number) getSingle(ctx);
+        return n != null ? n.longValue() : 0;
+    }
+
+    /**
+     * Gets the single value of a numerical expression as a {@code double}, like {@link #getLong(TriggerContext)}
+     * @param ctx the event
+     * @return the single value of this expression, or {@code 0} if it has no value, like in arithmetic
+     * @throws ArithmeticException if the value of this expression can't be computed as a {@code double}
+     */
+    default double getDouble(TriggerContext ctx) {
+        Number n = (Number) getSingle(ctx);
+        return n != null ? n.doubleValue() : 0;
+    }
+
+    /**
+     * Gets the single value of a boolean expression as a {@code boolean}, like {@link #getLong(TriggerContext)}
+     * @param ctx the event
+     * @return the single value of this expression, or {@code false} if it has no value, like in conditions
+     */
+    default boolean getBoolean(TriggerContext ctx) {
+        Boolean b = (Boolean) getSingle(ctx);
+        return b != null && b;
+    }
+
     /**
      * @return whether this expression returns a single value. By default, this is defined on registration, but it can
      * be overriden.
      */
     default boolean isSingle() {
-        for (ExpressionInfo<?, ?> info : SyntaxManager.getAllExpressions()) {
-            if (info.getSyntaxClass() == getClass()) {
-                return info.getReturnType().isSingle();
-            }
-        }
+        ExpressionInfo<?, ?> info = SyntaxManager.getExpressionInfo(getClass());
+        if (info != null)
+            return info.getReturnType().isSingle();
         throw new SkriptParserException("Unregistered expression class : " + getClass().getName());
     }
 
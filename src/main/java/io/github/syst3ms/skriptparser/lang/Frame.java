@@ -0,0 +1,296 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.event.TriggerContext;
+import io.github.syst3ms.skriptparser.variables.NumberCell;
+import io.github.syst3ms.skriptparser.variables.VariableMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the local variables of a single execution of some code. A new frame is created each time
+ * {@link Statement#runAll(Statement, TriggerContext)} is called, and it is thrown away as soon as it returns.
+ * <br>
+ * Local variables whose name is constant are given a slot when their trigger is parsed, and are stored in an array.
+ * Other local variables, like list variables, are stored by name.
+ * <br>
+ * The state of the {@link Loop}s being run is kept here too, each loop being given a slot by its depth among the loops
+ * of its trigger, as two loops of the same depth never run at the same time.
+ */
+public final class Frame {
+    private static final ThreadLocal<Frame> current = new ThreadLocal<>();
+    private static final Object[] EMPTY = new Object[0];
+
+    private final Map<String, Integer> slotsByName;
+    private Object[] slots;
+    /**
+     * The iterator and the current value of each loop, one after the other
+     */
+    private Object[] loops = EMPTY;
+    @Nullable
+    private VariableMap variables;
+
+    private Frame(Map<String, Integer> slotsByName) {
+        this.slotsByName = slotsByName;
+        this.slots = new Object[slotsByName.size()];
+    }
+
+    /**
+     * Creates a new frame for running code, and makes it the current one on this thread
+     * @param slotsByName the {@linkplain Trigger#getLocalVariableSlots() slots} of the local variables of the trigger the
+     *                    code belongs to, or an empty map if it doesn't belong to one
+     * @return the frame that was current before, to be restored with {@link #exit(Frame)}
+     */
+    @Nullable
+    static Frame enter(Map<String, Integer> slotsByName) {
+        Frame previous = current.get();
+        current.set(new Frame(slotsByName));
+        return previous;
+    }
+
+    /**
+     * Throws away the current frame
+     * @param previous the frame to restore, as returned by {@link #enter(Map)}
+     */
+    static void exit(@Nullable Frame previous) {
+        if (previous == null) {
+            current.remove();
+        } else {
+            current.set(previous);
+        }
+    }
+
+    /**
+     * @return the frame of the code running on this thread, or {@literal null} if no code is running
+     */
+    @Nullable
+    public static Frame getCurrent() {
+        return current.get();
+    }
+
+    /**
+     * @param slot the slot of a local variable
+     * @return the value of that variable, or {@literal null} if it isn't set
+     */
+    @Nullable
+    public Object get(int slot) {
+        return slot < slots.length ? NumberCell.unwrap(slots[slot]) : null;
+    }
+
+    /**
+     * @param slot the slot of a local variable
+     * @param value the new value of that variable, or {@literal null} to delete it
+     */
+    public void set(int slot, @Nullable Object value) {
+        if (slot >= slots.length) {
+            if (value == null)
+                return;
+            slots = Arrays.copyOf(slots, Math.max(slot + 1, slots.length * 2));
+        }
+        slots[slot] = value;
+    }
+
+    /**
+     * @param slot the slot of a local variable
+     * @param difference a number to add to the value of that variable
+     * @param subtract whether to subtract it instead of adding it
+     * @return whether the variable was set to a number, and was changed
+     * @see VariableMap#addNumber(String, Number, boolean)
+     */
+    public boolean addNumber(int slot, Number difference, boolean subtract) {
+        if (slot >= slots.length || !(slots[slot] instanceof Number || slots[slot] instanceof NumberCell))
+            return false;
+        if (slots[slot] instanceof Number)
+            slots[slot] = new NumberCell((Number) slots[slot]);
+        ((NumberCell) slots[slot]).add(difference, subtract);
+        return true;
+    }
+
+    /**
+     * @param loop the slot of a loop
+     * @return the iterator that loop is going through, or {@literal null} if it isn't running
+     */
+    @Nullable
+    public Iterator<?> getLoopIterator(int loop) {
+        return 2 * loop < loops.length ? (Iterator<?>) loops[2 * loop] : null;
+    }
+
+    /**
+     * @param loop the slot of a loop
+     * @param iterator the iterator that loop is going through, or {@literal null} once it is done
+     */
+    public void setLoopIterator(int loop, @Nullable Iterator<?> iterator) {
+        setLoopState(2 * loop, iterator);
+    }
+
+    /**
+     * @param loop the slot of a loop
+     * @return the value that loop is currently at, or {@literal null} if it hasn't run
+     */
+    @Nullable
+    public Object getLoopValue(int loop) {
+        return 2 * loop + 1 < loops.length ? loops[2 * loop + 1] : null;
+    }
+
+    /**
+     * @param loop the slot of a loop
+     * @param value the value that loop is currently at
+     */
+    public void setLoopValue(int loop, @Nullable Object value) {
+        setLoopState(2 * loop + 1, value);
+    }
+
+    private void setLoopState(int index, @Nullable Object state) {
+        if (index >= loops.length) {
+            if (state == null)
+                return;
+            loops = Arrays.copyOf(loops, Math.max(index + 2, loops.length * 2));
+        }
+        loops[index] = state;
+    }
+
+    /**
+     * @param name the name of a local variable, without the local variable token
+     * @return the value of that variable, as in {@link VariableMap#getVariable(String)}
+     */
+    @Nullable
+    public Object getVariable(String name) {
+        Integer slot = slotsByName.get(name);
+        if (slot != null)
+            return get(slot);
+        return variables != null ? variables.getVariable(name) : null;
+    }
+
+    /**
+     * @param name the name of a local variable, without the local variable token
+     * @param value the new value of that variable, as in {@link VariableMap#setVariable(String, Object)}
+     */
+    public void setVariable(String name, @Nullable Object value) {
+        Integer slot = slotsByName.get(name);
+        if (slot != null) {
+            set(slot, value);
+            return;
+        }
+        if (variables == null) {
+            if (value == null)
+                return;
+            variables = new VariableMap();
+        }
+        variables.setVariable(name, value);
+    }
+
+    /**
+     * @param name the name of a local list variable, without the local variable token, ending with {@code ::*}
+     * @param values values to add to that list
+     * @see VariableMap#addToList(String, Object)
+     */
+    public void addToList(String name, Object[] values) {
+        if (variables == null)
+            variables = new VariableMap();
+        for (Object value : values)
+            variables.addToList(name, value);
+    }
+
+    /**
+     * @param name the name of a local list variable, without the local variable token, ending with {@code ::*}
+     * @param value a value to remove from that list
+     * @param all whether to remove all the elements equal to it, or only the first one
+     * @see VariableMap#removeFromList(String, Object, boolean)
+     */
+    public void removeFromList(String name, Object value, boolean all) {
+        if (variables != null)
+            variables.removeFromList(name, value, all);
+    }
+
+    /**
+     * @param name the name of a local list variable, without the local variable token, ending with {@code ::*}
+     * @param value a value
+     * @return how many elements of that list are equal to it
+     * @see VariableMap#countInList(String, Object)
+     */
+    public int countInList(String name, Object value) {
+        return variables != null ? variables.countInList(name, value) : 0;
+    }
+
+    /**
+     * @param name the name of a local list variable, without the local variable token, ending with {@code ::*}
+     * @return how many elements of that list have a value
+     * @see VariableMap#listSize(String)
+     */
+    public int listSize(String name) {
+        return variables != null ? variables.listSize(name) : 0;
+    }
+
+    /**
+     * Limits how many elements a local list keeps, and for how long
+     * @param name the name of a local list variable, without the local variable token, ending with {@code ::*}
+     * @param capacity how many elements can have a value at most, or {@code 0} for no limit
+     * @param timeToLive how long values are kept after they were set, or {@code 0} for no limit
+     * @param unit the unit of the time to live
+     * @see VariableMap#limitList(String, int, long, TimeUnit)
+     */
+    public void limitList(String name, int capacity, long timeToLive, TimeUnit unit) {
+        if (variables == null)
+            variables = new VariableMap();
+        variables.limitList(name, capacity, timeToLive, unit);
+    }
+
+    /**
+     * @param name the name of a local list variable, without the local variable token, ending with {@code ::*}
+     * @return an iterator over the elements of that list, as pairs of their key and value
+     * @see VariableMap#iterateList(String)
+     */
+    public Iterator<Map.Entry<String, Object>> iterateList(String name) {
+        return variables != null ? variables.iterateList(name) : Collections.emptyIterator();
+    }
+
+    /**
+     * @param name the name of a local list variable, without the local variable token, ending with {@code ::*}
+     * @return the sum of the numerical values of that list
+     * @see VariableMap#listSum(String)
+     */
+    public Number listSum(String name) {
+        return variables != null ? variables.listSum(name) : 0L;
+    }
+
+    /**
+     * @param name the name of a local list variable, without the local variable token, ending with {@code ::*}
+     * @param count how many elements to find at most
+     * @param descending whether to find the highest values instead of the lowest
+     * @return the elements of that list with the highest or lowest values, as pairs of their key and value
+     * @see VariableMap#sortedElements(String, int, boolean)
+     */
+    public List<Map.Entry<String, Object>> sortedElements(String name, int count, boolean descending) {
+        return variables != null ? variables.sortedElements(name, count, descending) : Collections.emptyList();
+    }
+
+    /**
+     * @param name the name of a local list variable, without the local variable token, ending with {@code ::*}
+     * @param from the lowest value, included
+     * @param to the highest value, included
+     * @return the elements of that list whose value is within that range, as pairs of their key and value
+     * @see VariableMap#elementsBetween(String, Number, Number)
+     */
+    public List<Map.Entry<String, Object>> elementsBetween(String name, Number from, Number to) {
+        return variables != null ? variables.elementsBetween(name, from, to) : Collections.emptyList();
+    }
+
+    /**
+     * @param name the name of a local variable, without the local variable token
+     * @param difference a number to add to the value of that variable
+     * @param subtract whether to subtract it instead of adding it
+     * @return whether the variable was set to a number, and was changed
+     * @see VariableMap#addNumber(String, Number, boolean)
+     */
+    public boolean addNumber(String name, Number difference, boolean subtract) {
+        Integer slot = slotsByName.get(name);
+        if (slot != null)
+            return addNumber(slot, difference, subtract);
+        return variables != null && variables.addNumber(name, difference, subtract);
+    }
+}
@@ -5,20 +5,19 @@ import io.github.syst3ms.skriptparser.event.TriggerContext;
 import io.github.syst3ms.skriptparser.file.FileSection;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
 import io.github.syst3ms.skriptparser.parsing.ScriptLoader;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Iterator;
-import java.util.Map;
-import java.util.WeakHashMap;
 
 /**
- * A section that iterates over a collection of elements
+ * A section that iterates over a collection of elements. The element it is at is kept in the {@link Frame} of the code
+ * running it, in a slot given by the depth of this loop inside of its trigger.
  */
 public class Loop extends CodeSection {
 	private Expression<?> expr;
-	private transient Map<TriggerContext, Object> current = new WeakHashMap<>();
-	private transient Map<TriggerContext, Iterator<?>> currentIter = new WeakHashMap<>();
+	private int slot;
 	@Nullable
 	private Statement actualNext;
 
@@ -40,33 +39,39 @@ public class Loop extends CodeSection {
 	}
 
 	@Override
-	public void loadSection(FileSection section, SkriptLogger logger) {
-		ScriptLoader.addCurrentLoop(this);
-		setItems(ScriptLoader.loadItems(section, logger));
-		ScriptLoader.removeCurrentLoop();
+	public void loadSection(FileSection section, ParserState parserState, SkriptLogger logger) {
+		slot = parserState.getCurrentLoopDepth();
+		parserState.addCurrentLoop(this);
+		setItems(ScriptLoader.loadItems(section, parserState, logger));
+		parserState.removeCurrentLoop();
 		super.setNext(this);
 	}
 
 	@Override
     protected Statement walk(TriggerContext ctx) {
-		Iterator<?> iter = currentIter.get(ctx);
+		return advance(ctx) ? getFirst() : actualNext;
+	}
+
+	/**
+	 * Moves on to the next element of the looped expression
+	 * @param ctx the event
+	 * @return whether there was one, in which case the contents of this loop should run with it
+	 */
+	public boolean advance(TriggerContext ctx) {
+		Frame frame = Frame.getCurrent();
+		assert frame != null : "Loops must be run through Statement.runAll";
+		Iterator<?> iter = frame.getLoopIterator(slot);
 		if (iter == null) {
 			iter = expr instanceof Variable ? ((Variable<?>) expr).variablesIterator(ctx) : expr.iterator(ctx);
-			if (iter != null) {
-				if (iter.hasNext())
-					currentIter.put(ctx, iter);
-				else
-					iter = null;
-			}
-		}
-		if (iter == null || !iter.hasNext()) {
-			if (iter != null)
-				currentIter.remove(ctx); // a loop inside another loop can be called multiple times in the same event
-			return actualNext;
-		} else {
-			current.put(ctx, iter.next());
-			return getFirst();
+			if (iter == null || !iter.hasNext())
+				return false;
+			frame.setLoopIterator(slot, iter);
+		} else if (!iter.hasNext()) {
+			frame.setLoopIterator(slot, null); // a loop inside another loop can be called multiple times in the same event
+			return false;
 		}
+		frame.setLoopValue(slot, iter.next());
+		return true;
 	}
 
 	@Override
@@ -76,7 +81,17 @@ public class Loop extends CodeSection {
 
 	@Nullable
 	public Object getCurrent(TriggerContext e) {
-		return current.get(e);
+		Frame frame = Frame.getCurrent();
+		return frame != null ? frame.getLoopValue(slot) : null;
+	}
+
+	/**
+	 * @return the slot of the {@link Frame} this loop keeps the element it is at in, which is its depth among the loops
+	 * of its trigger
+	 * @see Frame#getLoopValue(int)
+	 */
+	public int getSlot() {
+		return slot;
 	}
 
     /**
@@ -0,0 +1,301 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.event.TriggerContext;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The code of a {@link Trigger}, lowered into a flat array of instructions once it is parsed. Each instruction knows
+ * where to go next if it doesn't go on to the following one, so running the code doesn't follow the
+ * {@linkplain Statement#getNext() links between statements}, and the statements of deeply nested sections don't take
+ * longer to get to than the others.
+ * <br>
+ * {@link Conditional}s, {@link Loop}s and {@link While}s are lowered to instructions that test whether to run their
+ * contents, and jump past them otherwise. Other sections, and statements that change how they
+ * {@linkplain Statement#walk(TriggerContext) walk} to the next one, are still asked where to go next every time they
+ * run.
+ * <br>
+ * Once the code has run {@linkplain #compileThreshold enough times} from the start, it is
+ * {@linkplain ProgramCompiler compiled} into a class of its own, which then runs it whenever it starts from the
+ * beginning.
+ */
+final class Program {
+    /**
+     * Runs a statement, and goes on to the next instruction if it returns {@code true}
+     */
+    static final byte RUN = 0;
+    /**
+     * Tests a {@link Conditional}, and goes on to its contents if it is met
+     */
+    static final byte BRANCH = 1;
+    /**
+     * Moves a {@link Loop} to its next value, and goes on to its contents if there is one
+     */
+    static final byte LOOP = 2;
+    /**
+     * Tests the condition of a {@link While}, and goes on to its contents if it is met
+     */
+    static final byte WHILE = 3;
+    static final byte JUMP = 4;
+    /**
+     * Lets a statement {@linkplain Statement#walk(TriggerContext) walk} to the next one, and goes to that one
+     */
+    static final byte WALK = 5;
+    static final String COMPILE_THRESHOLD_PROPERTY = "skriptparser.compileThreshold";
+
+    private final byte[] operations;
+    private final Statement[] statements;
+    /**
+     * Where each instruction goes if it doesn't go on to the next one, the length of the code meaning the end of it
+     */
+    private final int[] targets;
+    /**
+     * Where the instructions of each statement start
+     */
+    private final Map<Statement, Integer> positions;
+    /**
+     * How many times the code runs from the start before it is compiled, which can be changed with the
+     * {@value #COMPILE_THRESHOLD_PROPERTY} system property, read when the code is lowered. Code is never compiled if
+     * this isn't positive.
+     */
+    private final int compileThreshold = Integer.getInteger(COMPILE_THRESHOLD_PROPERTY, 1000);
+    /**
+     * How many times the code has run from the start, until it reaches {@link #compileThreshold}
+     */
+    private int runs;
+    @Nullable
+    private volatile CompiledCode compiled;
+
+    private Program(byte[] operations, Statement[] statements, int[] targets, Map<Statement, Integer> positions) {
+        this.operations = operations;
+        this.statements = statements;
+        this.targets = targets;
+        this.positions = positions;
+    }
+
+    /**
+     * Lowers the code of a trigger. This must only be done once the trigger is fully parsed.
+     * @param trigger the trigger
+     * @return its code
+     */
+    static Program of(Trigger trigger) {
+        return new Builder().build(trigger);
+    }
+
+    /**
+     * Runs the code, starting at a given statement
+     * @param start the statement to start at, which is either the trigger or a statement inside of it
+     * @param ctx the event
+     */
+    void run(Statement start, TriggerContext ctx) {
+        int pc = position(start);
+        if (pc == 0) {
+            CompiledCode compiled = this.compiled;
+            if (compiled == null && runs < compileThreshold && ++runs == compileThreshold)
+                compiled = compile();
+            if (compiled != null) {
+                compiled.run(ctx);
+                return;
+            }
+        } else if (pc == -1) {
+            walkFrom(start, ctx);
+            return;
+        }
+        int length = operations.length;
+        while (pc < length) {
+            Statement statement = statements[pc];
+            switch (operations[pc]) {
+                case RUN:
+                    pc = statement.run(ctx) ? pc + 1 : targets[pc];
+                    break;
+                case BRANCH:
+                    pc = ((Conditional) statement).test(ctx) ? pc + 1 : targets[pc];
+                    break;
+                case LOOP:
+                    pc = ((Loop) statement).advance(ctx) ? pc + 1 : targets[pc];
+                    break;
+                case WHILE:
+                    pc = ((While) statement).test(ctx) ? pc + 1 : targets[pc];
+                    break;
+                case JUMP:
+                    pc = targets[pc];
+                    break;
+                default:
+                    Statement next = statement.walk(ctx);
+                    if (next == null)
+                        return;
+                    pc = position(next);
+                    if (pc == -1) { // Not part of this code, so the links between statements are followed from there
+                        walkFrom(next, ctx);
+                        return;
+                    }
+            }
+        }
+    }
+
+    /**
+     * @return the compiled code, or {@literal null} if it hasn't been compiled
+     */
+    @Nullable
+    CompiledCode getCompiledCode() {
+        return compiled;
+    }
+
+    /**
+     * Compiles the code, unless another thread already did
+     * @return the compiled code, or {@literal null} if it can't be compiled, in which case it keeps being interpreted
+     */
+    @Nullable
+    private synchronized CompiledCode compile() {
+        if (compiled == null)
+            compiled = ProgramCompiler.compile(operations, statements, targets);
+        return compiled;
+    }
+
+    /**
+     * @return where the instructions of a statement start, or {@literal -1} if they aren't in this code
+     */
+    private int position(Statement statement) {
+        Integer position = positions.get(statement);
+        return position != null ? position : -1;
+    }
+
+    private static void walkFrom(Statement statement, TriggerContext ctx) {
+        Statement item = statement;
+        while (item != null)
+            item = item.walk(ctx);
+    }
+
+    /**
+     * @return whether a statement walks to the next one the way {@link Statement} or one of the sections this class
+     * knows about does
+     */
+    private static boolean isStandard(Statement statement) {
+        for (Class<?> c = statement.getClass(); c != Statement.class; c = c.getSuperclass()) {
+            if (c == Conditional.class || c == Loop.class || c == While.class || c == Trigger.class)
+                return true;
+            try {
+                c.getDeclaredMethod("walk", TriggerContext.class);
+                return false;
+            } catch (NoSuchMethodException ignored) {
+            }
+        }
+        return true;
+    }
+
+    private static final class Builder {
+        private byte[] operations = new byte[16];
+        private Statement[] statements = new Statement[16];
+        private int[] targets = new int[16];
+        private int length;
+        private final Map<Statement, Integer> positions = new IdentityHashMap<>();
+        /**
+         * Instructions that go to a statement that may not have been lowered yet
+         */
+        private final Map<Integer, Statement> targetStatements = new HashMap<>();
+
+        Program build(Trigger trigger) {
+            positions.put(trigger, 0);
+            List<Integer> ends = new ArrayList<>();
+            lowerItems(trigger, ends);
+            patch(ends, length);
+            for (Map.Entry<Integer, Statement> entry : targetStatements.entrySet()) {
+                Integer position = positions.get(entry.getValue());
+                targets[entry.getKey()] = position != null ? position : length;
+            }
+            for (int i = 0; i < length; i++) {
+                if (operations[i] != WALK)
+                    targets[i] = follow(targets[i]);
+            }
+            return new Program(
+                    Arrays.copyOf(operations, length),
+                    Arrays.copyOf(statements, length),
+                    Arrays.copyOf(targets, length),
+                    positions
+            );
+        }
+
+        /**
+         * @return where going to the given instruction actually ends up, skipping over jumps
+         */
+        private int follow(int target) {
+            int steps = 0;
+            while (target < length && operations[target] == JUMP && steps++ < length)
+                target = targets[target];
+            return target;
+        }
+
+        /**
+         * Lowers the items of a section, followed by a jump to wherever the code goes after them
+         * @param ends where to add the instructions that go to wherever the code goes after the items
+         */
+        private void lowerItems(CodeSection section, List<Integer> ends) {
+            List<Statement> items = section.getItems();
+            if (items != null) {
+                for (Statement item : items)
+                    lower(item, ends);
+            }
+            ends.add(emit(JUMP, section));
+        }
+
+        private void lower(Statement statement, List<Integer> ends) {
+            positions.put(statement, length);
+            if (!isStandard(statement)) {
+                emit(WALK, statement);
+                if (statement instanceof CodeSection) {
+                    List<Integer> itemEnds = new ArrayList<>();
+                    lowerItems((CodeSection) statement, itemEnds);
+                    Statement after = statement.getNext();
+                    if (after != null) {
+                        for (int end : itemEnds)
+                            targetStatements.put(end, after);
+                    } else {
+                        ends.addAll(itemEnds);
+                    }
+                }
+            } else if (statement instanceof Conditional) {
+                List<Integer> chainEnds = new ArrayList<>();
+                for (Conditional c = (Conditional) statement; c != null; c = c.getFallingClause()) {
+                    positions.put(c, length);
+                    int test = c.getMode() == Conditional.ConditionalMode.ELSE ? -1 : emit(BRANCH, c);
+                    lowerItems(c, chainEnds);
+                    if (test != -1)
+                        targets[test] = length;
+                }
+                patch(chainEnds, length);
+            } else if (statement instanceof Loop || statement instanceof While) {
+                int start = emit(statement instanceof Loop ? LOOP : WHILE, statement);
+                List<Integer> itemEnds = new ArrayList<>();
+                lowerItems((CodeSection) statement, itemEnds);
+                patch(itemEnds, start);
+                targets[start] = length;
+            } else if (statement instanceof CodeSection) {
+                lowerItems((CodeSection) statement, ends);
+            } else {
+                ends.add(emit(RUN, statement));
+            }
+        }
+
+        private int emit(byte operation, Statement statement) {
+            if (length == operations.length) {
+                operations = Arrays.copyOf(operations, length * 2);
+                statements = Arrays.copyOf(statements, length * 2);
+                targets = Arrays.copyOf(targets, length * 2);
+            }
+            operations[length] = operation;
+            statements[length] = statement;
+            return length++;
+        }
+
+        private void patch(List<Integer> instructions, int target) {
+            for (int instruction : instructions)
+                targets[instruction] = target;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compiles the code of a {@link Trigger} into a class of its own, that runs its instructions one after the other
+ * instead of going through the switch of {@link Program#run} for each of them.
+ * <br>
+ * As every trigger gets its own class, each call the generated code makes only ever sees the one statement or
+ * expression it was compiled for, which lets the JVM inline it, where the same call made by the interpreter sees
+ * every kind of statement there is. Conditions that are {@linkplain Literal literals} are evaluated while compiling.
+ * <br>
+ * Code containing statements that have to be {@linkplain Statement#walk walked} to know where to go next isn't
+ * compiled, and keeps being interpreted.
+ */
+final class ProgramCompiler {
+    private static final String PACKAGE = "io/github/syst3ms/skriptparser/lang/compiled/";
+    private static final String COMPILED_CODE = "io/github/syst3ms/skriptparser/lang/CompiledCode";
+    private static final String STATEMENT = "io/github/syst3ms/skriptparser/lang/Statement";
+    private static final String EXPRESSION = "io/github/syst3ms/skriptparser/lang/Expression";
+    private static final String LOOP = "io/github/syst3ms/skriptparser/lang/Loop";
+    private static final String CONTEXT = "Lio/github/syst3ms/skriptparser/event/TriggerContext;";
+    private static final AtomicInteger compiledCount = new AtomicInteger();
+
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int AALOAD = 0x32;
+    private static final int SIPUSH = 0x11;
+    private static final int IFEQ = 0x99;
+    private static final int GOTO = 0xa7;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int PUTFIELD = 0xb5;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int CHECKCAST = 0xc0;
+
+    private final String name = PACKAGE + "Trigger" + compiledCount.getAndIncrement();
+    private final ConstantPool pool = new ConstantPool();
+    /**
+     * The objects the generated code uses, each stored in a field of its own
+     */
+    private final List<Object> constants = new ArrayList<>();
+    private final List<String> constantTypes = new ArrayList<>();
+    private final Bytes code = new Bytes();
+    /**
+     * The positions of the jumps in the generated code, and the instruction each of them goes to
+     */
+    private final List<int[]> jumps = new ArrayList<>();
+
+    private ProgramCompiler() {}
+
+    /**
+     * Compiles the code of a trigger
+     * @param operations the operations of its instructions
+     * @param statements the statements of its instructions
+     * @param targets where its instructions go if they don't go on to the next one
+     * @return the compiled code, or {@literal null} if it can't be compiled, which is reported if the generated class
+     * fails to load
+     */
+    @Nullable
+    static CompiledCode compile(byte[] operations, Statement[] statements, int[] targets) {
+        ProgramCompiler compiler = new ProgramCompiler();
+        byte[] bytes = compiler.generate(operations, statements, targets);
+        if (bytes == null)
+            return null;
+        try {
+            Class<?> c = new Loader().define(compiler.name.replace('/', '.'), bytes);
+            return (CompiledCode) c.getConstructor(Object[].class).newInstance((Object) compiler.constants.toArray());
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // The code is still interpreted, but this is a bug in the generated class
+            System.err.println("Couldn't load the compiled code of a trigger, it will be interpreted instead");
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    @Nullable
+    private byte[] generate(byte[] operations, Statement[] statements, int[] targets) {
+        int length = operations.length;
+        int[] starts = new int[length + 1];
+        for (int i = 0; i < length; i++) {
+            starts[i] = code.length;
+            switch (operations[i]) {
+                case Program.RUN:
+                    call(statements[i], STATEMENT, INVOKEVIRTUAL, "run", "(" + CONTEXT + ")Z");
+                    jump(IFEQ, targets[i]);
+                    break;
+                case Program.LOOP:
+                    call(statements[i], LOOP, INVOKEVIRTUAL, "advance", "(" + CONTEXT + ")Z");
+                    jump(IFEQ, targets[i]);
+                    break;
+                case Program.BRANCH:
+                case Program.WHILE:
+                    Expression<Boolean> condition = operations[i] == Program.BRANCH
+                            ? ((Conditional) statements[i]).getCondition()
+                            : ((While) statements[i]).getCondition();
+                    test(condition, targets[i]);
+                    break;
+                case Program.JUMP:
+                    if (targets[i] != i + 1)
+                        jump(GOTO, targets[i]);
+                    break;
+                default:
+                    return null;
+            }
+        }
+        starts[length] = code.length;
+        code.u1(RETURN);
+        if (code.length > Short.MAX_VALUE) // Jumps couldn't reach that far
+            return null;
+        for (int[] jump : jumps)
+            code.patch(jump[0] + 1, starts[jump[1]] - jump[0]);
+        return write();
+    }
+
+    /**
+     * Generates a call to a method of a constant, passing it the event
+     */
+    private void call(Object receiver, String type, int invoke, String method, String descriptor) {
+        code.u1(ALOAD_0).u1(GETFIELD).u2(constant(receiver, type)).u1(ALOAD_1);
+        if (invoke == INVOKEINTERFACE) {
+            code.u1(invoke).u2(pool.member(11, type, method, descriptor)).u1(2).u1(0);
+        } else {
+            code.u1(invoke).u2(pool.member(10, type, method, descriptor));
+        }
+    }
+
+    /**
+     * Generates the test of a condition, going to the given instruction if it isn't met
+     */
+    @SuppressWarnings("unchecked")
+    private void test(@Nullable Expression<Boolean> condition, int target) {
+        if (condition instanceof Literal && ((Literal<Boolean>) condition).getValues().length <= 1) {
+            Boolean value = ((Literal<Boolean>) condition).getSingle();
+            if (value == null || !value)
+                jump(GOTO, target);
+        } else if (condition == null) {
+            jump(GOTO, target);
+        } else {
+            call(condition, EXPRESSION, INVOKEINTERFACE, "getBoolean", "(" + CONTEXT + ")Z");
+            jump(IFEQ, target);
+        }
+    }
+
+    private void jump(int opcode, int target) {
+        jumps.add(new int[] {code.length, target});
+        code.u1(opcode).u2(0);
+    }
+
+    /**
+     * @return the field holding the given object, typed as the given class
+     */
+    private int constant(Object value, String type) {
+        int index = constants.size();
+        constants.add(value);
+        constantTypes.add(type);
+        return pool.member(9, name, "c" + index, "L" + type + ";");
+    }
+
+    private byte[] write() {
+        Bytes constructor = new Bytes();
+        constructor.u1(ALOAD_0).u1(INVOKESPECIAL).u2(pool.member(10, "java/lang/Object", "<init>", "()V"));
+        for (int i = 0; i < constants.size(); i++) {
+            constructor.u1(ALOAD_0).u1(ALOAD_1).u1(SIPUSH).u2(i).u1(AALOAD)
+                    .u1(CHECKCAST).u2(pool.classRef(constantTypes.get(i)))
+                    .u1(PUTFIELD).u2(pool.member(9, name, "c" + i, "L" + constantTypes.get(i) + ";"));
+        }
+        constructor.u1(RETURN);
+
+        Bytes members = new Bytes();
+        members.u2(constants.size());
+        for (int i = 0; i < constants.size(); i++) {
+            members.u2(0x0012) // private final
+                    .u2(pool.utf8("c" + i))
+                    .u2(pool.utf8("L" + constantTypes.get(i) + ";"))
+                    .u2(0);
+        }
+        members.u2(2);
+        method(members, "<init>", "([Ljava/lang/Object;)V", constructor);
+        method(members, "run", "(" + CONTEXT + ")V", code);
+        members.u2(0);
+
+        int thisClass = pool.classRef(name);
+        int superClass = pool.classRef("java/lang/Object");
+        int compiledCode = pool.classRef(COMPILED_CODE);
+        Bytes file = new Bytes();
+        // Version 49 classes are verified without stack map frames, which this code doesn't need to compute then
+        file.u4(0xCAFEBABE).u2(0).u2(49);
+        file.u2(pool.count).append(pool.entries);
+        file.u2(0x0031) // public final super
+                .u2(thisClass)
+                .u2(superClass)
+                .u2(1).u2(compiledCode);
+        file.append(members);
+        return Arrays.copyOf(file.data, file.length);
+    }
+
+    private void method(Bytes members, String name, String descriptor, Bytes body) {
+        members.u2(0x0001) // public
+                .u2(pool.utf8(name))
+                .u2(pool.utf8(descriptor))
+                .u2(1)
+                .u2(pool.utf8("Code"))
+                .u4(12 + body.length)
+                .u2(3) // max stack
+                .u2(2) // max locals
+                .u4(body.length)
+                .append(body)
+                .u2(0)
+                .u2(0);
+    }
+
+    private static final class Loader extends ClassLoader {
+        Loader() {
+            super(ProgramCompiler.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class ConstantPool {
+        private final Map<String, Integer> indices = new HashMap<>();
+        private final Bytes entries = new Bytes();
+        private int count = 1;
+
+        int utf8(String value) {
+            Bytes entry = new Bytes();
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            entry.u1(1).u2(bytes.length);
+            for (byte b : bytes)
+                entry.u1(b);
+            return add("utf8 " + value, entry);
+        }
+
+        int classRef(String name) {
+            int nameIndex = utf8(name);
+            return add("class " + name, new Bytes().u1(7).u2(nameIndex));
+        }
+
+        /**
+         * @param tag the tag of a field ({@literal 9}), method ({@literal 10}) or interface method ({@literal 11})
+         *            reference
+         */
+        int member(int tag, String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = add("type " + name + descriptor, new Bytes().u1(12).u2(nameIndex).u2(descriptorIndex));
+            return add(tag + " " + owner + "." + name + descriptor, new Bytes().u1(tag).u2(ownerIndex).u2(nameAndType));
+        }
+
+        private int add(String key, Bytes entry) {
+            Integer index = indices.get(key);
+            if (index != null)
+                return index;
+            entries.append(entry);
+            indices.put(key, count);
+            return count++;
+        }
+    }
+
+    private static final class Bytes {
+        private byte[] data = new byte[64];
+        private int length;
+
+        Bytes u1(int value) {
+            if (length == data.length)
+                data = Arrays.copyOf(data, length * 2);
+            data[length++] = (byte) value;
+            return this;
+        }
+
+        Bytes u2(int value) {
+            return u1(value >>> 8).u1(value);
+        }
+
+        Bytes u4(int value) {
+            return u2(value >>> 16).u2(value);
+        }
+
+        Bytes append(Bytes other) {
+            for (int i = 0; i < other.length; i++)
+                u1(other.data[i]);
+            return this;
+        }
+
+        void patch(int position, int value) {
+            data[position] = (byte) (value >>> 8);
+            data[position + 1] = (byte) value;
+        }
+    }
+}
@@ -50,6 +50,49 @@ public class SimpleLiteral<T> implements Literal<T> {
         }
     }
 
+    @Override
+    @Nullable
+    public T getSingle(TriggerContext ctx) {
+        if (values.length == 0) {
+            return null;
+        } else if (!isAndList) {
+            return CollectionUtils.getRandom(values);
+        } else if (values.length > 1) {
+            throw new SkriptRuntimeException("Can't call getSingle on an expression that returns multiple values !");
+        } else {
+            return values[0];
+        }
+    }
+
+    @Override
+    @Nullable
+    public Class<?> getPrimitiveType() {
+        if (values.length != 1)
+            return null;
+        if (values[0] instanceof Long)
+            return long.class;
+        if (values[0] instanceof Double)
+            return double.class;
+        if (values[0] instanceof Boolean)
+            return boolean.class;
+        return null;
+    }
+
+    @Override
+    public long getLong(TriggerContext ctx) {
+        return values.length == 1 ? ((Number) values[0]).longValue() : Literal.super.getLong(ctx);
+    }
+
+    @Override
+    public double getDouble(TriggerContext ctx) {
+        return values.length == 1 ? ((Number) values[0]).doubleValue() : Literal.super.getDouble(ctx);
+    }
+
+    @Override
+    public boolean getBoolean(TriggerContext ctx) {
+        return values.length == 1 ? (Boolean) values[0] : Literal.super.getBoolean(ctx);
+    }
+
     @Override
     public String toString(@Nullable TriggerContext ctx, boolean debug) {
         if (isSingle()) {
@@ -3,6 +3,8 @@ package io.github.syst3ms.skriptparser.lang;
 import io.github.syst3ms.skriptparser.event.TriggerContext;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
+
 /**
  * The base class for any runnable line of code inside of a script.
  * @see CodeSection
@@ -15,16 +17,27 @@ public abstract class Statement implements SyntaxElement {
     protected Statement next;
 
     /**
-     * Runs all code starting at a given point sequentially
+     * Runs all code starting at a given point sequentially, with a new {@link Frame} for local variables. Code inside of
+     * a {@link Trigger} runs as the {@linkplain Program flat instructions} of that trigger.
      * @param start the Statement the method should first run
      * @param context the context
      * @return {@code true} if the code ran normally, and {@code false} if any exception occurred
      */
     public static boolean runAll(Statement start, TriggerContext context) {
-        Statement item = start;
+        Statement root = start;
+        while (root.getParent() != null)
+            root = root.getParent();
+        Frame previous = Frame.enter(root instanceof Trigger
+                ? ((Trigger) root).getLocalVariableSlots()
+                : Collections.emptyMap());
         try {
-            while (item != null)
-                item = item.walk(context);
+            if (root instanceof Trigger) {
+                ((Trigger) root).getProgram().run(start, context);
+            } else {
+                Statement item = start;
+                while (item != null)
+                    item = item.walk(context);
+            }
             return true;
         } catch (StackOverflowError so) {
             System.err.println("The script repeated itself infinitely !");
@@ -32,6 +45,8 @@ public abstract class Statement implements SyntaxElement {
         } catch (Exception e) {
             System.err.println("An exception occurred. Stack trace :");
             e.printStackTrace();
+        } finally {
+            Frame.exit(previous);
         }
         return false;
     }
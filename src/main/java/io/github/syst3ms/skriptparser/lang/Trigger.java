@@ -4,27 +4,61 @@ import io.github.syst3ms.skriptparser.event.TriggerContext;
 import io.github.syst3ms.skriptparser.file.FileSection;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.parsing.ParseContext;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collections;
+import java.util.Map;
+
 /**
  * A top-level section, that is not contained in code.
  * Usually declares an event.
  */
 public class Trigger extends CodeSection {
     private final SkriptEvent event;
+    private Map<String, Integer> localVariableSlots = Collections.emptyMap();
+    @Nullable
+    private volatile Program program;
 
     public Trigger(SkriptEvent event) {
         this.event = event;
     }
 
+    /**
+     * @return the event this trigger was declared with
+     */
+    public SkriptEvent getEvent() {
+        return event;
+    }
+
     @Override
     public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
         return true;
     }
 
     @Override
-    public void loadSection(FileSection section, SkriptLogger logger) {
-        setItems(event.loadSection(section, logger));
+    public void loadSection(FileSection section, ParserState parserState, SkriptLogger logger) {
+        parserState.resetLocalVariableSlots();
+        setItems(event.loadSection(section, parserState, logger));
+        localVariableSlots = parserState.resetLocalVariableSlots();
+    }
+
+    /**
+     * @return the {@link Frame} slots of the local variables used in this trigger, by name
+     * @see ParserState#getLocalVariableSlot(String)
+     */
+    public Map<String, Integer> getLocalVariableSlots() {
+        return localVariableSlots;
+    }
+
+    /**
+     * @return the code of this trigger as a flat array of instructions, lowered the first time it is run
+     */
+    Program getProgram() {
+        Program program = this.program;
+        if (program == null)
+            this.program = program = Program.of(this);
+        return program;
     }
 
     @Override
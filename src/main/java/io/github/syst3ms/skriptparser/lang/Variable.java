@@ -8,12 +8,9 @@ import io.github.syst3ms.skriptparser.types.Type;
 import io.github.syst3ms.skriptparser.types.TypeManager;
 import io.github.syst3ms.skriptparser.types.changers.Arithmetic;
 import io.github.syst3ms.skriptparser.types.changers.Changer;
-import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
-import io.github.syst3ms.skriptparser.types.comparisons.Relation;
 import io.github.syst3ms.skriptparser.types.conversions.Converters;
 import io.github.syst3ms.skriptparser.util.ClassUtils;
 import io.github.syst3ms.skriptparser.variables.Variables;
-import javafx.util.Pair;
 import org.jetbrains.annotations.Nullable;
 
 import java.lang.reflect.Array;
@@ -23,7 +20,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A reference to a variable, whose value is only known at runtime. It can be local to the event, meaning it isn't
@@ -37,16 +34,31 @@ public class Variable<T> implements Expression<T> {
     private final boolean list;
     private final Class<?> type;
     private final Class<?> supertype;
+    /**
+     * The {@link Frame} slot of this variable if it is local and has a constant name, {@literal -1} otherwise
+     */
+    private final int slot;
 
     public Variable(VariableString name, boolean local, boolean list, Class<?> type) {
+        this(name, local, list, type, -1);
+    }
+
+    public Variable(VariableString name, boolean local, boolean list, Class<?> type, int slot) {
         this.name = name;
         this.local = local;
         this.list = list;
         this.type = type;
         this.supertype = ClassUtils.getCommonSuperclass(this.type);
+        this.slot = slot;
     }
 
     private Object getRaw(TriggerContext ctx) {
+        if (slot != -1) {
+            Object val = Variables.getLocalVariable(slot);
+            if (val == null)
+                return Variables.getVariable(Variables.LOCAL_VARIABLE_TOKEN + name.defaultVariableName(), ctx, false);
+            return val;
+        }
         String n = name.toString(ctx);
         if (n.endsWith(Variables.LIST_SEPARATOR + "*") != list) // prevents e.g. {%expr%} where "%expr%" ends with "::*" from returning a Map
             return null;
@@ -90,6 +102,14 @@ public class Variable<T> implements Expression<T> {
         return one;
     }
 
+    @Override
+    @Nullable
+    public T getSingle(TriggerContext ctx) {
+        if (list)
+            return Expression.super.getSingle(ctx);
+        return getConverted(ctx);
+    }
+
     private T getConverted(TriggerContext ctx) {
         return (T) Converters.convert(get(ctx), type);
     }
@@ -120,36 +140,20 @@ public class Variable<T> implements Expression<T> {
     public Iterator<T> iterator(TriggerContext ctx) {
         if (!list)
             throw new SkriptRuntimeException("");
-        String n = this.name.toString(ctx);
-        String name = n.substring(0, n.length() - 1);
-        Object val = Variables.getVariable(name + "*", ctx, local);
-        if (val == null)
-            return Collections.emptyIterator();
-        assert val instanceof TreeMap;
-        // temporary list to prevent CMEs
-        @SuppressWarnings("unchecked")
-        Iterator<String> keys = new ArrayList<>(((Map<String, Object>) val).keySet()).iterator();
+        Iterator<Map.Entry<String, Object>> elements = variablesIterator(ctx);
         return new Iterator<T>() {
-            @Nullable
-            private String key;
             @Nullable
             private T next;
 
             @SuppressWarnings({"unchecked"})
             @Override
             public boolean hasNext() {
-                if (next != null)
-                    return true;
-                while (keys.hasNext()) {
-                    key = keys.next();
-                    if (key != null) {
-                        next = (T) Converters.convert(Variables.getVariable(name + key, ctx, local), type);
-                        if (next != null && !(next instanceof TreeMap))
-                            return true;
-                    }
+                while (next == null && elements.hasNext()) {
+                    next = (T) Converters.convert(elements.next().getValue(), type);
+                    if (next instanceof Map)
+                        next = null;
                 }
-                next = null;
-                return false;
+                return next != null;
             }
 
             @Override
@@ -171,56 +175,100 @@ public class Variable<T> implements Expression<T> {
 
     /**
      * @param ctx the event
-     * @return an {@link Iterator} that iterates over pairs of indexes and values
+     * @param value a value
+     * @return how many values of this list variable are equal to the given value, which unlike comparing it to each of
+     * {@link #getValues(TriggerContext) its values} doesn't take longer for larger lists
+     * @see Variables#countInList(String, Object, TriggerContext, boolean)
      */
-    public Iterator<Pair<String, Object>> variablesIterator(TriggerContext ctx) {
-        if (!list)
-            throw new SkriptRuntimeException("Looping a non-list variable");
-        String n = this.name.toString(ctx);
-        String name = n.substring(0, n.length() - 1);
-        Object val = Variables.getVariable(name + "*", ctx, local);
-        if (val == null)
-            return Collections.emptyIterator();
-        assert val instanceof TreeMap;
-        // temporary list to prevent CMEs
-        @SuppressWarnings("unchecked")
-        Iterator<String> keys = new ArrayList<>(((Map<String, Object>) val).keySet()).iterator();
-        return new Iterator<Pair<String, Object>>() {
-            @Nullable
-            private String key;
-            @Nullable
-            private Object next;
+    public int countEqual(TriggerContext ctx, Object value) {
+        assert list;
+        String n = name.toString(ctx);
+        return n.endsWith(Variables.LIST_SEPARATOR + "*") ? Variables.countInList(n, value, ctx, local) : 0;
+    }
 
-            @Override
-            public boolean hasNext() {
-                if (next != null)
-                    return true;
-                while (keys.hasNext()) {
-                    key = keys.next();
-                    if (key != null) {
-                        next = Variables.getVariable(name + key, ctx, local) ;
-                        if (next != null && !(next instanceof TreeMap))
-                            return true;
-                    }
-                }
-                next = null;
-                return false;
-            }
+    /**
+     * @param ctx the event
+     * @return how many values this list variable has, without getting them
+     * @see Variables#listSize(String, TriggerContext, boolean)
+     */
+    public int size(TriggerContext ctx) {
+        assert list;
+        String n = name.toString(ctx);
+        return n.endsWith(Variables.LIST_SEPARATOR + "*") ? Variables.listSize(n, ctx, local) : 0;
+    }
 
-            @Override
-            public Pair<String, Object> next() {
-                if (!hasNext())
-                    throw new NoSuchElementException();
-                Pair<String, Object> n = new Pair<>(key, next);
-                next = null;
-                return n;
-            }
+    /**
+     * Limits how many elements this list variable keeps, and for how long
+     * @param ctx the event
+     * @param capacity how many elements can have a value at most, or {@code 0} for no limit
+     * @param timeToLive how long values are kept after they were set, or {@code 0} for no limit
+     * @param unit the unit of the time to live
+     * @return whether the limits are enforced
+     * @see Variables#limitList(String, int, long, TimeUnit, TriggerContext, boolean)
+     */
+    public boolean limit(TriggerContext ctx, int capacity, long timeToLive, TimeUnit unit) {
+        assert list;
+        String n = name.toString(ctx);
+        return n.endsWith(Variables.LIST_SEPARATOR + "*") && Variables.limitList(n, capacity, timeToLive, unit, ctx, local);
+    }
 
-            @Override
-            public void remove() {
-                throw new UnsupportedOperationException();
-            }
-        };
+    /**
+     * @param ctx the event
+     * @return the sum of the numerical values of this list variable, without getting them
+     * @see Variables#listSum(String, TriggerContext, boolean)
+     */
+    public Number sum(TriggerContext ctx) {
+        assert list;
+        String n = name.toString(ctx);
+        return n.endsWith(Variables.LIST_SEPARATOR + "*") ? Variables.listSum(n, ctx, local) : 0L;
+    }
+
+    /**
+     * @param ctx the event
+     * @param count how many elements to find at most
+     * @param descending whether to find the highest values instead of the lowest
+     * @return the elements of this list variable with the highest or lowest numerical values, as pairs of their index and
+     * value, found without sorting the whole list every time
+     * @see Variables#sortedElements(String, int, boolean, TriggerContext, boolean)
+     */
+    public List<Map.Entry<String, Object>> sortedElements(TriggerContext ctx, int count, boolean descending) {
+        assert list;
+        String n = name.toString(ctx);
+        return n.endsWith(Variables.LIST_SEPARATOR + "*")
+                ? Variables.sortedElements(n, count, descending, ctx, local)
+                : Collections.emptyList();
+    }
+
+    /**
+     * @param ctx the event
+     * @param from the lowest value, included
+     * @param to the highest value, included
+     * @return the elements of this list variable whose value is within that range, in ascending order, as pairs of their
+     * index and value
+     * @see Variables#elementsBetween(String, Number, Number, TriggerContext, boolean)
+     */
+    public List<Map.Entry<String, Object>> elementsBetween(TriggerContext ctx, Number from, Number to) {
+        assert list;
+        String n = name.toString(ctx);
+        return n.endsWith(Variables.LIST_SEPARATOR + "*")
+                ? Variables.elementsBetween(n, from, to, ctx, local)
+                : Collections.emptyList();
+    }
+
+    /**
+     * @param ctx the event
+     * @return an {@link Iterator} that iterates over pairs of indexes and values. The elements iterated over are those
+     * the list has when this is called, without copying them, and their values are read as they are reached, so the list
+     * can be changed while it is iterated over.
+     * @see Variables#iterateList(String, TriggerContext, boolean)
+     */
+    public Iterator<Map.Entry<String, Object>> variablesIterator(TriggerContext ctx) {
+        if (!list)
+            throw new SkriptRuntimeException("Looping a non-list variable");
+        String n = name.toString(ctx);
+        return n.endsWith(Variables.LIST_SEPARATOR + "*")
+                ? Variables.iterateList(n, ctx, local)
+                : Collections.emptyIterator();
     }
 
     @Override
@@ -238,10 +286,14 @@ public class Variable<T> implements Expression<T> {
     @Nullable
     @Override
     public <C> Expression<C> convertExpression(Class<C> to) {
-        return new Variable<>(name, local, list, to);
+        return new Variable<>(name, local, list, to, slot);
     }
 
     private void set(TriggerContext ctx, @Nullable Object value) {
+        if (slot != -1) {
+            Variables.setLocalVariable(slot, value);
+            return;
+        }
         Variables.setVariable(name.toString(ctx), value, ctx, local);
     }
 
@@ -321,49 +373,18 @@ public class Variable<T> implements Expression<T> {
             case REMOVE_ALL:
                 assert changeWith.length > 0;
                 if (list) {
-                    Map<String, Object> o = (Map<String, Object>) getRaw(ctx);
-                    if (mode == ChangeMode.REMOVE) {
-                        if (o == null)
-                            return;
-                        ArrayList<String> rem = new ArrayList<>(); // prevents CMEs
-                        for (Object d : changeWith) {
-                            for (Map.Entry<String, Object> i : o.entrySet()) {
-                                if (Relation.EQUAL.is(Comparators.compare(i.getValue(), d))) {
-                                    rem.add(i.getKey());
-                                    break;
-                                }
-                            }
-                        }
-                        for (String r : rem) {
-                            assert r != null;
-                            setIndex(ctx, r, null);
-                        }
-                    } else if (mode == ChangeMode.REMOVE_ALL) {
-                        if (o == null)
-                            return;
-                        ArrayList<String> rem = new ArrayList<>(); // prevents CMEs
-                        for (Map.Entry<String, Object> i : o.entrySet()) {
-                            for (Object d : changeWith) {
-                                if (Relation.EQUAL.is(Comparators.compare(i.getValue(), d)))
-                                    rem.add(i.getKey());
-                            }
-                        }
-                        for (String r : rem) {
-                            assert r != null;
-                            setIndex(ctx, r, null);
-                        }
+                    String n = name.toString(ctx);
+                    if (mode == ChangeMode.ADD) {
+                        Variables.addToList(n, changeWith, ctx, local);
                     } else {
-                        assert mode == ChangeMode.ADD;
-                        int i = 1;
-                        for (Object d : changeWith) {
-                            if (o != null)
-                                while (o.containsKey(String.valueOf(i)))
-                                    i++;
-                            setIndex(ctx, String.valueOf(i), d);
-                            i++;
-                        }
+                        for (Object d : changeWith)
+                            Variables.removeFromList(n, d, mode == ChangeMode.REMOVE_ALL, ctx, local);
                     }
                 } else {
+                    // Numbers are changed in place, which is the most common case by far
+                    if (changeWith.length == 1 && changeWith[0] instanceof Number
+                            && addNumber(ctx, (Number) changeWith[0], mode != ChangeMode.ADD))
+                        break;
                     Object o = get(ctx);
                     Type<?> type;
                     if (o == null) {
@@ -371,34 +392,21 @@ public class Variable<T> implements Expression<T> {
                     } else {
                         type = TypeManager.getByClass(o.getClass());
                     }
-                    Arithmetic a = null;
                     Changer<?> changer;
                     Class<?>[] cs;
-                    if (o == null || type == null || (a = type.getArithmetic()) != null) {
-                        boolean changed = false;
-                        for (Object d : changeWith) {
-                            if (o == null || type == null) {
-                                type = TypeManager.getByClass(d.getClass());
-                                //Mirre Start
-                                if (type != null && type.getArithmetic() != null || d instanceof Number)
-                                    o = d;
-                                //Mirre End
-                                changed = true;
-                                continue;
-                            }
-                            assert a != null;
-                            Class<?> r = a.getRelativeType();
-                            Object diff = Converters.convert(d, r);
-                            if (diff != null) {
-                                if (mode == ChangeMode.ADD)
-                                    o = a.add(o, diff);
-                                else
-                                    o = a.subtract(o, diff);
-                                changed = true;
-                            }
+                    if (o == null || type == null || type.getArithmetic() != null) {
+                        if (slot == -1 && !local) {
+                            // Other threads could be changing the same variable, so it has to be read and written at once
+                            Variables.changeVariable(name.toString(ctx), v -> {
+                                Object current = v != null ? v : o;
+                                Object result = applyArithmetic(current, changeWith, mode);
+                                return result != current ? result : v;
+                            }, ctx, false);
+                        } else {
+                            Object result = applyArithmetic(o, changeWith, mode);
+                            if (result != o)
+                                set(ctx, result);
                         }
-                        if (changed)
-                            set(ctx, o);
                     } else if ((changer = type.getDefaultChanger()) != null && (cs = changer.acceptsChange(mode)) != null) {
                         Object[] one = (Object[]) Array.newInstance(o.getClass(), 1);
                         one[0] = o;
@@ -417,4 +425,61 @@ public class Variable<T> implements Expression<T> {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return whether this variable was set to a number, and the given number could be added to or subtracted from it
+     * @see Variables#addNumber(String, Number, boolean, TriggerContext, boolean)
+     */
+    private boolean addNumber(TriggerContext ctx, Number difference, boolean subtract) {
+        if (slot != -1)
+            return Variables.addLocalNumber(slot, difference, subtract);
+        return Variables.addNumber(name.toString(ctx), difference, subtract, ctx, local);
+    }
+
+    /**
+     * Adds or subtracts values to or from a value, using its {@link Arithmetic}
+     * @param o the value, or {@literal null} if there is none yet
+     * @param changeWith the values to add or subtract
+     * @param mode {@link ChangeMode#ADD} or {@link ChangeMode#REMOVE}
+     * @return the result, or {@code o} itself if nothing could be added or subtracted
+     */
+    @Nullable
+    private static Object applyArithmetic(@Nullable Object o, Object[] changeWith, ChangeMode mode) {
+        Type<?> type = o == null ? null : TypeManager.getByClass(o.getClass());
+        Arithmetic<Object, Object> a = arithmeticOf(type);
+        Object result = o;
+        for (Object d : changeWith) {
+            if (result == null || type == null) {
+                type = TypeManager.getByClass(d.getClass());
+                //Mirre Start
+                if (type != null && type.getArithmetic() != null || d instanceof Number) {
+                    result = d;
+                    a = arithmeticOf(type);
+                }
+                //Mirre End
+                continue;
+            }
+            if (a == null)
+                break;
+            Class<?> r = a.getRelativeType();
+            Object diff = Converters.convert(d, r);
+            if (diff != null) {
+                if (mode == ChangeMode.ADD)
+                    result = a.add(result, diff);
+                else
+                    result = a.subtract(result, diff);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the {@link Arithmetic} of a type, which is only ever given values of that type and differences converted
+     * to {@linkplain Arithmetic#getRelativeType() its relative type}
+     */
+    @SuppressWarnings("unchecked")
+    @Nullable
+    private static Arithmetic<Object, Object> arithmeticOf(@Nullable Type<?> type) {
+        return type == null ? null : (Arithmetic<Object, Object>) type.getArithmetic();
+    }
+}
@@ -46,5 +46,20 @@ public abstract class ConditionalExpression implements Expression<Boolean> {
         return new Boolean[]{check(ctx)};
     }
 
+    @Override
+    public Boolean getSingle(TriggerContext ctx) {
+        return check(ctx);
+    }
+
+    @Override
+    public Class<?> getPrimitiveType() {
+        return boolean.class;
+    }
+
+    @Override
+    public boolean getBoolean(TriggerContext ctx) {
+        return check(ctx);
+    }
+
     protected abstract boolean check(TriggerContext ctx);
 }
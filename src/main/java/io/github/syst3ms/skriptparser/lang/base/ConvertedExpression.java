@@ -48,6 +48,13 @@ public class ConvertedExpression<F, T> implements Expression<T> {
         return Converters.convert(source.getValues(ctx), to, converter);
     }
 
+    @Override
+    @Nullable
+    public T getSingle(TriggerContext ctx) {
+        F f = source.getSingle(ctx);
+        return f == null ? null : converter.apply(f);
+    }
+
     @Override
     public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
         throw new UnsupportedOperationException();
@@ -1,8 +1,8 @@
 package io.github.syst3ms.skriptparser.parsing;
 
-import io.github.syst3ms.skriptparser.event.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.pattern.CompiledPattern;
 import io.github.syst3ms.skriptparser.pattern.PatternElement;
 
 import java.util.ArrayList;
@@ -13,29 +13,55 @@ import java.util.regex.MatchResult;
  * A parser instance used for matching a pattern to a syntax
  */
 public class MatchContext {
-    private String originalPattern;
-    public PatternElement originalElement;
+    private final CompiledPattern compiledPattern;
+    public final PatternElement originalElement;
     // Provided to the syntax's class
-    private final Class<? extends TriggerContext>[] currentContext;
+    private final ParserState parserState;
     private final SkriptLogger logger;
     private List<Expression<?>> parsedExpressions = new ArrayList<>();
     private List<MatchResult> regexMatches = new ArrayList<>();
     private int patternIndex = 0;
     private int parseMark = 0;
 
-    public MatchContext(PatternElement e, Class<? extends TriggerContext>[] currentContext, SkriptLogger logger) {
-        this.originalPattern = e.toString();
-        this.originalElement = e;
-        this.currentContext = currentContext;
+    public MatchContext(CompiledPattern pattern, ParserState parserState, SkriptLogger logger) {
+        this.compiledPattern = pattern;
+        this.originalElement = pattern.getElement();
+        this.parserState = parserState;
         this.logger = logger;
     }
 
+    public MatchContext(PatternElement e, ParserState parserState, SkriptLogger logger) {
+        this(CompiledPattern.compile(e), parserState, logger);
+    }
+
+    public CompiledPattern getCompiledPattern() {
+        return compiledPattern;
+    }
+
     public PatternElement getOriginalElement() {
         return originalElement;
     }
 
+    /**
+     * Whether the given element is the one this {@link MatchContext} was created for. Elements use this to decide
+     * whether they should {@linkplain #advanceInPattern() advance in the pattern}.
+     * @param e the element
+     * @return whether the element is the original element
+     */
+    public boolean isOriginalElement(PatternElement e) {
+        return originalElement == e;
+    }
+
     public String getOriginalPattern() {
-        return originalPattern;
+        return compiledPattern.getPattern();
+    }
+
+    /**
+     * @return what could possibly be found in the string at the current index in the pattern
+     * @see CompiledPattern#getPossibleInputs(int)
+     */
+    public List<PatternElement> getPossibleInputs() {
+        return compiledPattern.getPossibleInputs(patternIndex);
     }
 
     public int getPatternIndex() {
@@ -70,7 +96,11 @@ public class MatchContext {
      * @return a {@link ParseContext} based on this {@link MatchContext}
      */
     public ParseContext toParseResult() {
-        return new ParseContext(currentContext, originalElement, regexMatches, parseMark, originalPattern, logger);
+        return new ParseContext(parserState.getCurrentContexts(), originalElement, regexMatches, parseMark, compiledPattern.getPattern(), parserState, logger);
+    }
+
+    public ParserState getParserState() {
+        return parserState;
     }
 
     public SkriptLogger getLogger() {
@@ -17,14 +17,16 @@ public class ParseContext {
     private final String expressionString;
     private final List<MatchResult> matches;
     private final int parseMark;
+    private final ParserState parserState;
     private final SkriptLogger logger;
 
-    public ParseContext(Class<? extends TriggerContext>[] currentContexts, PatternElement element, List<MatchResult> matches, int parseMark, String expressionString, SkriptLogger logger) {
+    public ParseContext(Class<? extends TriggerContext>[] currentContexts, PatternElement element, List<MatchResult> matches, int parseMark, String expressionString, ParserState parserState, SkriptLogger logger) {
         this.currentContexts = currentContexts;
         this.element = element;
         this.expressionString = expressionString;
         this.matches = matches;
         this.parseMark = parseMark;
+        this.parserState = parserState;
         this.logger = logger;
     }
 
@@ -60,6 +62,13 @@ public class ParseContext {
         return currentContexts;
     }
 
+    /**
+     * @return the state of the parser the syntax was matched with
+     */
+    public ParserState getParserState() {
+        return parserState;
+    }
+
     public SkriptLogger getLogger() {
         return logger;
     }
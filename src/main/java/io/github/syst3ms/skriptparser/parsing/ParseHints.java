@@ -0,0 +1,289 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.pattern.CompiledPattern;
+import io.github.syst3ms.skriptparser.registration.ExpressionInfo;
+import io.github.syst3ms.skriptparser.registration.SyntaxIndex;
+import io.github.syst3ms.skriptparser.registration.SyntaxInfo;
+import io.github.syst3ms.skriptparser.registration.SyntaxManager;
+import io.github.syst3ms.skriptparser.types.Type;
+import io.github.syst3ms.skriptparser.types.TypeManager;
+import io.github.syst3ms.skriptparser.types.comparisons.ComparatorInfo;
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import io.github.syst3ms.skriptparser.types.conversions.Converters;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parsing decisions taken while parsing a script, that is which {@link SyntaxInfo} and which of its patterns ended up
+ * matching each string. After a script has been parsed without errors, these are saved next to a hash of its contents
+ * and a {@linkplain #fingerprint() fingerprint} of the registered syntaxes. The next time the same script is loaded with
+ * the same syntaxes, each string is first matched against the one pattern that is known to match it, and strings that
+ * are known not to match anything are not matched at all.
+ * <br>
+ * A decision that doesn't hold anymore is simply ignored, and the string is parsed as usual.
+ */
+class ParseHints {
+    static final int EXPRESSION = 0, BOOLEAN = 1, EFFECT = 2, SECTION = 3, TRIGGER = 4;
+    private static final int MAGIC = 0x534B5048; // "SKPH"
+    private static final int VERSION = 1;
+
+    @Nullable
+    private final Map<Key, Decision> loaded;
+    private final Map<Key, Decision> recorded = new HashMap<>();
+    private boolean stale;
+
+    private ParseHints(@Nullable Map<Key, Decision> loaded) {
+        this.loaded = loaded;
+    }
+
+    /**
+     * @return hints that don't know about any decision yet, and only record them
+     */
+    static ParseHints empty() {
+        return new ParseHints(null);
+    }
+
+    /**
+     * @param line the line the string is on, as in {@link io.github.syst3ms.skriptparser.file.FileElement#getLine()}
+     * @param kind what the string was parsed as, like {@link #EXPRESSION}
+     * @param type the type the string was parsed as, if relevant
+     * @param s the string
+     * @return the decision that was taken the last time this string was parsed, or {@literal null} if it isn't known
+     */
+    @Nullable
+    Decision get(int line, int kind, Object type, String s) {
+        return loaded == null ? null : loaded.get(new Key(line, kind, type.toString(), s));
+    }
+
+    /**
+     * Records which syntax and pattern a string was successfully parsed with
+     * @param line the line the string is on
+     * @param kind what the string was parsed as
+     * @param type the type the string was parsed as, if relevant
+     * @param s the string
+     * @param info the matching syntax
+     * @param pattern the index of the matching pattern
+     */
+    void record(int line, int kind, Object type, String s, SyntaxInfo<?> info, int pattern) {
+        recorded.put(new Key(line, kind, type.toString(), s), new Decision(info.getSyntaxClass().getName(), pattern));
+    }
+
+    /**
+     * Records that a string couldn't be parsed at all
+     * @param line the line the string is on
+     * @param kind what the string was parsed as
+     * @param type the type the string was parsed as, if relevant
+     * @param s the string
+     */
+    void recordFailure(int line, int kind, Object type, String s) {
+        recorded.put(new Key(line, kind, type.toString(), s), Decision.FAILURE);
+    }
+
+    /**
+     * Tells these hints that one of their decisions didn't hold, so they should be saved again
+     */
+    void markStale() {
+        stale = true;
+    }
+
+    /**
+     * @return whether the recorded decisions differ from the ones that were loaded
+     */
+    boolean shouldSave() {
+        return loaded == null || stale;
+    }
+
+    /**
+     * Reads the hints stored in a file
+     * @param file the file
+     * @param contentHash the {@linkplain #hash(String) hash} of the script being parsed
+     * @param fingerprint the current {@linkplain #fingerprint() fingerprint}
+     * @return the stored hints, or {@link #empty() empty hints} if the file doesn't exist, is unreadable, or was saved
+     * for a different script content or different syntaxes
+     */
+    static ParseHints read(Path file, String contentHash, String fingerprint) {
+        if (!Files.isRegularFile(file))
+            return empty();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                return empty();
+            if (!in.readUTF().equals(contentHash) || !in.readUTF().equals(fingerprint))
+                return empty();
+            int size = in.readInt();
+            Map<Key, Decision> decisions = new HashMap<>(size * 4 / 3 + 1);
+            for (int i = 0; i < size; i++) {
+                Key key = new Key(in.readInt(), in.readByte(), in.readUTF(), in.readUTF());
+                String syntaxClass = in.readUTF();
+                int pattern = in.readInt();
+                decisions.put(key, pattern == -1 ? Decision.FAILURE : new Decision(syntaxClass, pattern));
+            }
+            return new ParseHints(Collections.unmodifiableMap(decisions));
+        } catch (IOException e) {
+            return empty();
+        }
+    }
+
+    /**
+     * Saves the recorded decisions to a file, replacing it atomically where possible
+     * @param file the file
+     * @param contentHash the {@linkplain #hash(String) hash} of the script that was parsed
+     * @param fingerprint the {@linkplain #fingerprint() fingerprint} the script was parsed with
+     * @throws IOException if the file couldn't be written
+     */
+    void write(Path file, String contentHash, String fingerprint) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(contentHash);
+                out.writeUTF(fingerprint);
+                out.writeInt(recorded.size());
+                for (Map.Entry<Key, Decision> entry : recorded.entrySet()) {
+                    Key key = entry.getKey();
+                    Decision decision = entry.getValue();
+                    out.writeInt(key.line);
+                    out.writeByte(key.kind);
+                    out.writeUTF(key.type);
+                    out.writeUTF(key.s);
+                    out.writeUTF(decision.getSyntaxClass());
+                    out.writeInt(decision.getPattern());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Computes a fingerprint of everything that was registered and that influences parsing: all syntaxes with their
+     * patterns and priorities, all types in the order literals are tried in, and all converters and comparators, which
+     * decide what an expression can be used as.
+     * @return the fingerprint
+     */
+    static String fingerprint() {
+        StringBuilder sb = new StringBuilder();
+        for (SyntaxIndex<?> index : new SyntaxIndex<?>[] {
+                SyntaxManager.getExpressionIndex(),
+                SyntaxManager.getEffectIndex(),
+                SyntaxManager.getSectionIndex(),
+                SyntaxManager.getTriggerIndex()
+        }) {
+            for (SyntaxInfo<?> info : index.getAll()) {
+                sb.append(info.getSyntaxClass().getName()).append('\0').append(info.getPriority());
+                if (info instanceof ExpressionInfo)
+                    sb.append('\0').append(((ExpressionInfo<?, ?>) info).getReturnType());
+                for (CompiledPattern pattern : info.getCompiledPatterns()) {
+                    sb.append('\0').append(pattern.getPattern());
+                }
+                sb.append('\n');
+            }
+            sb.append('\n');
+        }
+        for (Map.Entry<Class<?>, Type<?>> entry : TypeManager.getClassToTypeMap().entrySet()) {
+            sb.append(entry.getKey().getName()).append('\0').append(entry.getValue()).append('\n');
+        }
+        sb.append('\n');
+        // The converters and comparators themselves are mostly lambdas, whose class names change from a run to another
+        for (Converters.ConverterInfo<?, ?> info : Converters.getConverters()) {
+            sb.append(info.getFrom().getName()).append('\0')
+                    .append(info.getTo().getName()).append('\0')
+                    .append(info.getOptions()).append('\n');
+        }
+        sb.append('\n');
+        for (ComparatorInfo<?, ?> info : Comparators.getComparators()) {
+            sb.append(info.getFirstClass().getName()).append('\0')
+                    .append(info.getSecondClass().getName()).append('\0')
+                    .append(info.getComparator().supportsOrdering()).append('\n');
+        }
+        return hash(sb.toString());
+    }
+
+    /**
+     * @param s a string
+     * @return the hexadecimal SHA-256 hash of that string
+     */
+    static String hash(String s) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) { // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Which syntax and which pattern a string was parsed with, or the fact that it couldn't be parsed
+     */
+    static final class Decision {
+        static final Decision FAILURE = new Decision("", -1);
+
+        private final String syntaxClass;
+        private final int pattern;
+
+        Decision(String syntaxClass, int pattern) {
+            this.syntaxClass = syntaxClass;
+            this.pattern = pattern;
+        }
+
+        boolean isFailure() {
+            return pattern == -1;
+        }
+
+        String getSyntaxClass() {
+            return syntaxClass;
+        }
+
+        int getPattern() {
+            return pattern;
+        }
+    }
+
+    private static final class Key {
+        private final int line;
+        private final int kind;
+        private final String type;
+        private final String s;
+
+        Key(int line, int kind, String type, String s) {
+            this.line = line;
+            this.kind = kind;
+            this.type = type;
+            this.s = s;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (!(obj instanceof Key))
+                return false;
+            Key other = (Key) obj;
+            return line == other.line && kind == other.kind && type.equals(other.type) && s.equals(other.s);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * (31 * line + kind) + type.hashCode()) + s.hashCode();
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.event.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.CodeSection;
+import io.github.syst3ms.skriptparser.lang.Effect;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Loop;
+import io.github.syst3ms.skriptparser.lang.base.ConditionalExpression;
+import io.github.syst3ms.skriptparser.registration.ExpressionInfo;
+import io.github.syst3ms.skriptparser.registration.SkriptEventInfo;
+import io.github.syst3ms.skriptparser.registration.SyntaxInfo;
+import io.github.syst3ms.skriptparser.util.RecentElementList;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * An object holding the state of a parsing job, that is passed along all the parsing methods of {@link SyntaxParser}.
+ * Nothing that changes while parsing is shared between two instances, so separate jobs (like separate scripts) can
+ * safely be parsed on separate threads. One instance should however never be used by two threads at once.
+ */
+public class ParserState {
+    /**
+     * All {@link Effect effects} that are successfully parsed during parsing, in order of last successful parsing
+     */
+    private final RecentElementList<SyntaxInfo<? extends Effect>> recentEffects = new RecentElementList<>();
+    /**
+     * All {@link CodeSection sections} that are successfully parsed during parsing, in order of last successful parsing
+     */
+    private final RecentElementList<SyntaxInfo<? extends CodeSection>> recentSections = new RecentElementList<>();
+    /**
+     * All {@link io.github.syst3ms.skriptparser.lang.SkriptEvent events} that are successfully parsed during parsing, in order of last successful parsing
+     */
+    private final RecentElementList<SkriptEventInfo<?>> recentEvents = new RecentElementList<>();
+    /**
+     * All {@link Expression expressions} that are successfully parsed during parsing, in order of last successful parsing
+     */
+    private final RecentElementList<ExpressionInfo<?, ?>> recentExpressions = new RecentElementList<>();
+    /**
+     * All {@link ConditionalExpression conditions} that are successfully parsed during parsing, in order of last successful parsing
+     */
+    private final RecentElementList<ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>> recentConditions = new RecentElementList<>();
+    @SuppressWarnings("unchecked")
+    private Class<? extends TriggerContext>[] currentContexts = new Class[]{};
+    private final LinkedList<Loop> currentLoops = new LinkedList<>();
+    /**
+     * Results of parsing an expression from a string, failures included, for the line currently being parsed
+     */
+    private final Map<MemoKey, Expression<?>> memo = new HashMap<>();
+    private int currentLine = -1;
+    @Nullable
+    private ParseHints parseHints;
+    private int matchedPattern = -1;
+    /**
+     * The {@link io.github.syst3ms.skriptparser.lang.Frame} slots of the local variables with a constant name used in
+     * the trigger currently being parsed
+     */
+    private Map<String, Integer> localVariableSlots = new HashMap<>();
+
+    /**
+     * @return the {@link TriggerContext}s handled by the trigger currently being parsed
+     */
+    public Class<? extends TriggerContext>[] getCurrentContexts() {
+        return currentContexts;
+    }
+
+    public void setCurrentContexts(Class<? extends TriggerContext>[] currentContexts) {
+        this.currentContexts = currentContexts;
+    }
+
+    /**
+     * Registers a {@link Loop} whose contents are about to be parsed
+     * @param loop the loop
+     */
+    public void addCurrentLoop(Loop loop) {
+        currentLoops.addLast(loop);
+    }
+
+    /**
+     * @return the innermost {@link Loop} currently being parsed
+     */
+    public Loop getCurrentLoop() {
+        return currentLoops.getLast();
+    }
+
+    /**
+     * Unregisters the innermost {@link Loop}, once its contents have been parsed
+     */
+    public void removeCurrentLoop() {
+        currentLoops.removeLast();
+    }
+
+    /**
+     * @return all {@link Loop}s currently being parsed, from the outermost to the innermost
+     */
+    public Iterable<Loop> getCurrentLoops() {
+        return Collections.unmodifiableList(currentLoops);
+    }
+
+    /**
+     * @return how many {@link Loop}s are currently being parsed, which is the depth of the next one among the loops of
+     * its trigger
+     */
+    public int getCurrentLoopDepth() {
+        return currentLoops.size();
+    }
+
+    /**
+     * @param name the constant name of a local variable, without the local variable token
+     * @return the slot of that variable in the trigger currently being parsed, assigning a new one if needed
+     */
+    public int getLocalVariableSlot(String name) {
+        return localVariableSlots.computeIfAbsent(name, n -> localVariableSlots.size());
+    }
+
+    /**
+     * Starts assigning local variable slots from scratch, for a new trigger
+     * @return the slots that were assigned so far
+     */
+    public Map<String, Integer> resetLocalVariableSlots() {
+        Map<String, Integer> slots = Collections.unmodifiableMap(localVariableSlots);
+        localVariableSlots = new HashMap<>();
+        return slots;
+    }
+
+    RecentElementList<SyntaxInfo<? extends Effect>> getRecentEffects() {
+        return recentEffects;
+    }
+
+    RecentElementList<SyntaxInfo<? extends CodeSection>> getRecentSections() {
+        return recentSections;
+    }
+
+    RecentElementList<SkriptEventInfo<?>> getRecentEvents() {
+        return recentEvents;
+    }
+
+    RecentElementList<ExpressionInfo<?, ?>> getRecentExpressions() {
+        return recentExpressions;
+    }
+
+    RecentElementList<ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>> getRecentConditions() {
+        return recentConditions;
+    }
+
+    /**
+     * Tells this state a new line is being parsed. Memoized results from the previous line are forgotten, as they may
+     * depend on what came before them, like which loops are active.
+     * @param line the number of the line, as in {@link io.github.syst3ms.skriptparser.file.FileElement#getLine()}
+     */
+    public void nextLine(int line) {
+        memo.clear();
+        currentLine = line;
+    }
+
+    /**
+     * @return the number of the line currently being parsed, or {@literal -1} if parsing isn't line-based
+     */
+    public int getCurrentLine() {
+        return currentLine;
+    }
+
+    @Nullable
+    ParseHints getParseHints() {
+        return parseHints;
+    }
+
+    void setParseHints(@Nullable ParseHints parseHints) {
+        this.parseHints = parseHints;
+    }
+
+    /**
+     * @return the index of the pattern the last successfully matched syntax was matched with
+     */
+    int getMatchedPattern() {
+        return matchedPattern;
+    }
+
+    void setMatchedPattern(int matchedPattern) {
+        this.matchedPattern = matchedPattern;
+    }
+
+    /**
+     * @param s the string
+     * @param type the type the string was parsed as, like a {@link io.github.syst3ms.skriptparser.types.PatternType}
+     * @return whether the result of parsing this string as the given type is known
+     */
+    public boolean isMemoized(String s, Object type) {
+        return memo.containsKey(new MemoKey(s, type));
+    }
+
+    /**
+     * @param s the string
+     * @param type the type the string was parsed as
+     * @return the result of parsing the string as the given type, or {@literal null} if that failed
+     * @see #isMemoized(String, Object)
+     */
+    @Nullable
+    public Expression<?> getMemoized(String s, Object type) {
+        return memo.get(new MemoKey(s, type));
+    }
+
+    /**
+     * Remembers the result of parsing a string as a given type, until the {@linkplain #nextLine(int) next line}
+     * @param s the string
+     * @param type the type the string was parsed as
+     * @param result the parsed expression, or {@literal null} if parsing failed
+     */
+    public void memoize(String s, Object type, @Nullable Expression<?> result) {
+        memo.put(new MemoKey(s, type), result);
+    }
+
+    private static class MemoKey {
+        private final String s;
+        private final Object type;
+
+        MemoKey(String s, Object type) {
+            this.s = s;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(@Nullable Object obj) {
+            if (!(obj instanceof MemoKey))
+                return false;
+            MemoKey other = (MemoKey) obj;
+            return s.equals(other.s) && type.equals(other.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * s.hashCode() + type.hashCode();
+        }
+    }
+}
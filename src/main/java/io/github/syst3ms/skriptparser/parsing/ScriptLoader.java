@@ -7,28 +7,64 @@ import io.github.syst3ms.skriptparser.file.VoidElement;
 import io.github.syst3ms.skriptparser.lang.CodeSection;
 import io.github.syst3ms.skriptparser.lang.Conditional;
 import io.github.syst3ms.skriptparser.lang.Expression;
-import io.github.syst3ms.skriptparser.lang.Loop;
 import io.github.syst3ms.skriptparser.lang.Statement;
 import io.github.syst3ms.skriptparser.lang.Trigger;
 import io.github.syst3ms.skriptparser.log.LogEntry;
+import io.github.syst3ms.skriptparser.log.LogType;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.registration.SkriptAddon;
 import io.github.syst3ms.skriptparser.util.FileUtils;
 import io.github.syst3ms.skriptparser.util.MultiMap;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
 
 /**
  * Contains the logic for loading, parsing and interpreting entire script files
  */
 public class ScriptLoader {
-    private static final LinkedList<Loop> currentLoops = new LinkedList<>();
-    private static MultiMap<String, Trigger> triggerMap = new MultiMap<>();
+    private static final MultiMap<String, Trigger> triggerMap = new MultiMap<>();
+    /**
+     * The top-level sections of each loaded script along with the trigger they were parsed into, guarded by {@link #triggerMap}
+     */
+    private static final MultiMap<String, LoadedTrigger> loadedTriggers = new MultiMap<>();
+    @Nullable
+    private static volatile Path cacheDirectory;
+
+    /**
+     * Sets the directory in which the parsing decisions of successfully parsed scripts are saved. As long as neither a
+     * script nor the registered syntaxes change, loading that script again only tries the patterns that are known to
+     * match, instead of searching through all registered syntaxes.
+     * @param cacheDirectory the directory, or {@literal null} to disable caching, which is the default
+     */
+    public static void setCacheDirectory(@Nullable Path cacheDirectory) {
+        ScriptLoader.cacheDirectory = cacheDirectory;
+    }
+
+    /**
+     * @return the directory parsing decisions are cached in, or {@literal null} if caching is disabled
+     * @see #setCacheDirectory(Path)
+     */
+    @Nullable
+    public static Path getCacheDirectory() {
+        return cacheDirectory;
+    }
 
     /**
      * Parses and loads the provided script in memory
@@ -36,14 +72,126 @@ public class ScriptLoader {
      * @param debug
      */
     public static List<LogEntry> loadScript(File script, boolean debug) {
+        List<LogEntry> logs = parseScript(script, debug, cacheDirectory != null ? ParseHints.fingerprint() : null, false);
+        SkriptAddon.getAddons().forEach(SkriptAddon::finishedLoading);
+        return logs;
+    }
+
+    /**
+     * Parses and loads the provided scripts in memory. Each script is parsed by a separate task on the common
+     * {@link ForkJoinPool}, with its own {@link ParserState} and {@link SkriptLogger}, so scripts are parsed in parallel.
+     * Addons are only told that loading has finished once all scripts have been parsed.
+     * @param scripts the script files to load. Directories are searched recursively for scripts.
+     * @param debug
+     * @return the logs of each script, in the order the scripts were found
+     */
+    public static Map<Path, List<LogEntry>> loadScripts(Collection<Path> scripts, boolean debug) {
+        List<Path> files = new ArrayList<>();
+        for (Path script : scripts) {
+            if (Files.isDirectory(script)) {
+                try (Stream<Path> walk = Files.walk(script)) {
+                    walk.filter(Files::isRegularFile).sorted().forEach(files::add);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            } else {
+                files.add(script);
+            }
+        }
+        String fingerprint = cacheDirectory != null ? ParseHints.fingerprint() : null;
+        List<ForkJoinTask<List<LogEntry>>> tasks = new ArrayList<>(files.size());
+        for (Path file : files) {
+            tasks.add(ForkJoinPool.commonPool().submit(() -> parseScript(file.toFile(), debug, fingerprint, false)));
+        }
+        Map<Path, List<LogEntry>> logs = new LinkedHashMap<>();
+        for (int i = 0; i < files.size(); i++) {
+            logs.put(files.get(i), tasks.get(i).join());
+        }
+        SkriptAddon.getAddons().forEach(SkriptAddon::finishedLoading);
+        return logs;
+    }
+
+    /**
+     * Reloads a script that was already loaded. Triggers whose lines haven't changed, regardless of where they moved to
+     * in the file, are kept as they are ; only new and modified triggers are parsed. The triggers of the script are then
+     * replaced all at once in the {@linkplain #getTriggerMap() trigger map}, and at the same time addons are told about
+     * the triggers that were {@linkplain SkriptAddon#unloadTrigger(Trigger) removed} and
+     * {@linkplain SkriptAddon#handleTrigger(Trigger) handle} the new ones. Nothing changes for addons until the whole
+     * script has been parsed.
+     * <br>
+     * A script that wasn't loaded before is simply loaded, without telling addons that loading has finished.
+     * @param script the script file to reload
+     * @param debug
+     * @return the logs of the triggers that were parsed again
+     */
+    public static List<LogEntry> reloadScript(File script, boolean debug) {
+        return parseScript(script, debug, null, true);
+    }
+
+    /**
+     * Unloads all triggers of a script, for example because it was deleted
+     * @param script the script file
+     */
+    public static void unloadScript(File script) {
+        String scriptKey = getScriptKey(script);
+        List<LoadedTrigger> removed;
+        synchronized (triggerMap) {
+            triggerMap.remove(scriptKey);
+            removed = loadedTriggers.remove(scriptKey);
+        }
+        if (removed != null) {
+            for (LoadedTrigger loaded : removed) {
+                unloadTrigger(loaded.trigger);
+            }
+        }
+    }
+
+    /**
+     * @param script a script file
+     * @return whether that script was loaded and its triggers weren't unloaded since
+     */
+    public static boolean isLoaded(File script) {
+        synchronized (triggerMap) {
+            return loadedTriggers.containsKey(getScriptKey(script));
+        }
+    }
+
+    /**
+     * @return the absolute paths of all {@linkplain #isLoaded(File) loaded} scripts
+     */
+    public static List<Path> getLoadedScripts() {
+        List<Path> scripts = new ArrayList<>();
+        synchronized (triggerMap) {
+            for (String scriptKey : loadedTriggers.keySet()) {
+                scripts.add(Paths.get(scriptKey));
+            }
+        }
+        return scripts;
+    }
+
+    /**
+     * @param fingerprint the {@linkplain ParseHints#fingerprint() fingerprint} of the registered syntaxes, or
+     *                    {@literal null} if caching is disabled
+     * @param reload whether unchanged triggers from the last time this script was loaded should be kept, and the
+     *               others replaced
+     */
+    private static List<LogEntry> parseScript(File script, boolean debug, @Nullable String fingerprint, boolean reload) {
         FileParser parser = new FileParser();
         SkriptLogger logger = new SkriptLogger(debug);
+        ParserState parserState = new ParserState();
+        Path directory = cacheDirectory;
+        Path cacheFile = null;
+        String contentHash = null;
         List<FileElement> elements;
-        String scriptName;
+        String scriptKey = getScriptKey(script);
         try {
             List<String> lines = FileUtils.readAllLines(script);
-            scriptName = script.getName().replaceAll("(.+)\\..+", "$1");
-            elements = parser.parseFileLines(scriptName,
+            if (directory != null && fingerprint != null) {
+                contentHash = ParseHints.hash(String.join("\n", lines));
+                cacheFile = directory.resolve(ParseHints.hash(script.getAbsolutePath()) + ".hints");
+                parserState.setParseHints(ParseHints.read(cacheFile, contentHash, fingerprint));
+            }
+            elements = parser.parseFileLines(getScriptName(script),
                     lines,
                     0,
                     1,
@@ -55,46 +203,166 @@ public class ScriptLoader {
             return Collections.emptyList();
         }
         logger.setFileInfo(script.getName(), elements);
+        Map<String, Deque<LoadedTrigger>> previous = new HashMap<>();
+        if (reload) {
+            synchronized (triggerMap) {
+                for (LoadedTrigger loaded : loadedTriggers.getOrDefault(scriptKey, Collections.emptyList())) {
+                    previous.computeIfAbsent(loaded.key, k -> new ArrayDeque<>()).add(loaded);
+                }
+            }
+        }
+        List<LoadedTrigger> current = new ArrayList<>();
+        List<LoadedTrigger> added = new ArrayList<>();
         for (FileElement element : elements) {
             logger.nextLine();
+            parserState.nextLine(element.getLine());
             if (element instanceof VoidElement)
                 continue;
             if (element instanceof FileSection) {
-                Trigger trig = SyntaxParser.parseTrigger((FileSection) element, logger);
+                FileSection section = (FileSection) element;
+                String key = getSectionKey(section);
+                Deque<LoadedTrigger> unchanged = previous.get(key);
+                if (unchanged != null && !unchanged.isEmpty()) {
+                    current.add(unchanged.poll());
+                    continue;
+                }
+                // A reloaded script only hands its new triggers to addons once all of them were parsed
+                Trigger trig = SyntaxParser.parseTrigger(section, parserState, logger, !reload);
                 if (trig == null) {
                     continue;
                 }
-                triggerMap.putOne(scriptName, trig);
+                if (reload) {
+                    LoadedTrigger loaded = new LoadedTrigger(key, trig);
+                    current.add(loaded);
+                    added.add(loaded);
+                } else {
+                    synchronized (triggerMap) {
+                        triggerMap.putOne(scriptKey, trig);
+                        loadedTriggers.putOne(scriptKey, new LoadedTrigger(key, trig));
+                    }
+                }
             } else {
                 logger.error("Can't have code outside of a trigger");
             }
             logger.logOutput();
         }
-        SkriptAddon.getAddons().forEach(SkriptAddon::finishedLoading);
-        return logger.close();
+        if (reload) {
+            List<Trigger> triggers = new ArrayList<>(current.size());
+            for (LoadedTrigger loaded : current) {
+                triggers.add(loaded.trigger);
+            }
+            List<Trigger> removed = new ArrayList<>();
+            for (Deque<LoadedTrigger> unused : previous.values()) {
+                for (LoadedTrigger loaded : unused) {
+                    removed.add(loaded.trigger);
+                }
+            }
+            synchronized (triggerMap) {
+                triggerMap.put(scriptKey, triggers);
+                loadedTriggers.put(scriptKey, current);
+                swapTriggers(removed, added);
+            }
+        }
+        List<LogEntry> logs = logger.close();
+        ParseHints hints = parserState.getParseHints();
+        if (cacheFile != null && hints != null && hints.shouldSave()
+                && logs.stream().noneMatch(entry -> entry.getType() == LogType.ERROR)) {
+            try {
+                hints.write(cacheFile, contentHash, fingerprint);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        return logs;
+    }
+
+    private static String getScriptName(File script) {
+        return script.getName().replaceAll("(.+)\\..+", "$1");
+    }
+
+    /**
+     * @param script a script file
+     * @return the key of the triggers of that script in the {@linkplain #getTriggerMap() trigger map}, which is its
+     * absolute path, so that scripts with the same name in different directories are kept apart
+     */
+    public static String getScriptKey(File script) {
+        return script.toPath().toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * @return a string representing all the lines of a section, but not where they are located in the file
+     */
+    private static String getSectionKey(FileSection section) {
+        StringBuilder sb = new StringBuilder();
+        appendLines(section, sb);
+        return sb.toString();
+    }
+
+    private static void appendLines(FileElement element, StringBuilder sb) {
+        if (element instanceof VoidElement)
+            return;
+        sb.append(element).append('\n');
+        if (element instanceof FileSection) {
+            for (FileElement child : ((FileSection) element).getElements()) {
+                appendLines(child, sb);
+            }
+        }
+    }
+
+    /**
+     * Replaces triggers in all addons. Each addon is told about the removed triggers and handles its new triggers
+     * while its lock is held, so that it never sees both the old and the new version of a script at once.
+     * @param removed the triggers to unload
+     * @param added the new triggers, which weren't handled yet
+     */
+    private static void swapTriggers(List<Trigger> removed, List<LoadedTrigger> added) {
+        Map<SkriptAddon, List<Trigger>> handled = new HashMap<>();
+        for (LoadedTrigger loaded : added) {
+            handled.computeIfAbsent(SyntaxParser.getRegisterer(loaded.trigger), k -> new ArrayList<>()).add(loaded.trigger);
+        }
+        for (SkriptAddon addon : SkriptAddon.getAddons()) {
+            synchronized (addon) {
+                for (Trigger trigger : removed) {
+                    addon.unloadTrigger(trigger);
+                }
+                for (Trigger trigger : handled.getOrDefault(addon, Collections.emptyList())) {
+                    addon.handleTrigger(trigger);
+                }
+            }
+        }
+    }
+
+    private static void unloadTrigger(Trigger trigger) {
+        for (SkriptAddon addon : SkriptAddon.getAddons()) {
+            synchronized (addon) {
+                addon.unloadTrigger(trigger);
+            }
+        }
     }
 
     /**
      * Parses all items inside of a given section.
      * @param section the section
+     * @param parserState the current parser state
      * @param logger the logger
      * @return a list of {@linkplain Statement effects} inside of the section
      */
-    public static List<Statement> loadItems(FileSection section, SkriptLogger logger) {
+    public static List<Statement> loadItems(FileSection section, ParserState parserState, SkriptLogger logger) {
         List<Statement> items = new ArrayList<>();
         List<FileElement> elements = section.getElements();
         for (FileElement element : elements) {
             logger.logOutput();
+            parserState.nextLine(element.getLine());
             if (element instanceof FileSection) {
                 FileSection sec = (FileSection) element;
                 String content = sec.getLineContent();
                 if (content.regionMatches(true, 0, "if ", 0, "if ".length())) {
                     String toParse = content.substring("if ".length());
-                    Expression<Boolean> booleanExpression = SyntaxParser.parseBooleanExpression(toParse, SyntaxParser.MAYBE_CONDITIONAL, logger);
+                    Expression<Boolean> booleanExpression = SyntaxParser.parseBooleanExpression(toParse, SyntaxParser.MAYBE_CONDITIONAL, parserState, logger);
                     if (booleanExpression == null) {
                         continue;
                     }
-                    items.add(new Conditional(sec, booleanExpression, Conditional.ConditionalMode.IF, logger));
+                    items.add(new Conditional(sec, booleanExpression, Conditional.ConditionalMode.IF, parserState, logger));
                 } else if (content.regionMatches(true, 0, "else if ", 0, "else if ".length())) {
                     if (items.size() == 0 ||
                         !(items.get(items.size() - 1) instanceof Conditional) ||
@@ -104,11 +372,11 @@ public class ScriptLoader {
                     }
 
                     String toParse = content.substring("else if ".length());
-                    Expression<Boolean> booleanExpression = SyntaxParser.parseBooleanExpression(toParse, SyntaxParser.MAYBE_CONDITIONAL, logger);
+                    Expression<Boolean> booleanExpression = SyntaxParser.parseBooleanExpression(toParse, SyntaxParser.MAYBE_CONDITIONAL, parserState, logger);
                     if (booleanExpression == null) {
                         continue;
                     }
-                    Conditional c = new Conditional(sec, booleanExpression, Conditional.ConditionalMode.ELSE_IF, logger);
+                    Conditional c = new Conditional(sec, booleanExpression, Conditional.ConditionalMode.ELSE_IF, parserState, logger);
                     ((Conditional) items.get(items.size() - 1)).setFallingClause(c);
                 } else if (content.equalsIgnoreCase("else")) {
                     if (items.size() == 0 ||
@@ -117,10 +385,10 @@ public class ScriptLoader {
                         logger.error("An 'else' must be placed after an 'if' or an 'else if'");
                         continue;
                     }
-                    Conditional c = new Conditional(sec, null, Conditional.ConditionalMode.ELSE, logger);
+                    Conditional c = new Conditional(sec, null, Conditional.ConditionalMode.ELSE, parserState, logger);
                     ((Conditional) items.get(items.size() - 1)).setFallingClause(c);
                 } else {
-                    CodeSection codeSection = SyntaxParser.parseSection(sec, logger);
+                    CodeSection codeSection = SyntaxParser.parseSection(sec, parserState, logger);
                     if (codeSection == null) {
                         continue;
                     }
@@ -128,7 +396,7 @@ public class ScriptLoader {
                 }
             } else {
                 String content = element.getLineContent();
-                Statement eff = SyntaxParser.parseStatement(content, logger);
+                Statement eff = SyntaxParser.parseStatement(content, parserState, logger);
                 if (eff == null) {
                     continue;
                 }
@@ -141,23 +409,23 @@ public class ScriptLoader {
         return items;
     }
 
-    public static void addCurrentLoop(Loop loop) {
-        currentLoops.addLast(loop);
-    }
-
-    public static Loop getCurrentLoop() {
-        return currentLoops.getLast();
-    }
-
-    public static void removeCurrentLoop() {
-        currentLoops.removeLast();
+    /**
+     * @return all loaded triggers, by {@linkplain #getScriptKey(File) script key}. Synchronize on the map before accessing it while scripts are loading.
+     */
+    public static MultiMap<String, Trigger> getTriggerMap() {
+        return triggerMap;
     }
 
-    public static Iterable<Loop> getCurrentLoops() {
-        return currentLoops;
-    }
+    /**
+     * A trigger, along with the lines it was parsed from
+     */
+    private static class LoadedTrigger {
+        private final String key;
+        private final Trigger trigger;
 
-    public static MultiMap<String, Trigger> getTriggerMap() {
-        return triggerMap;
+        LoadedTrigger(String key, Trigger trigger) {
+            this.key = key;
+            this.trigger = trigger;
+        }
     }
 }
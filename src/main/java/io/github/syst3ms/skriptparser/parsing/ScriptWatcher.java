@@ -0,0 +1,210 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.log.LogEntry;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+/**
+ * Watches a directory of scripts, including its subdirectories, and {@linkplain ScriptLoader#reloadScript(File, boolean) reloads}
+ * scripts when they change, or {@linkplain ScriptLoader#unloadScript(File) unloads} them when they are deleted.
+ * <br>
+ * Editors usually touch a file several times when saving it, so a script is only reloaded once no change to it has been
+ * seen for a short while. Reloading happens on the watcher's thread, and triggers are swapped all at once, so triggers
+ * that are running at the time are not interrupted.
+ */
+public class ScriptWatcher implements Closeable {
+    /**
+     * How long a script should stay untouched before being reloaded, in milliseconds, unless specified otherwise
+     */
+    public static final long DEFAULT_DEBOUNCE = 200;
+
+    private final boolean debug;
+    private final long debounce;
+    private final BiConsumer<Path, List<LogEntry>> logHandler;
+    private final WatchService watchService;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    /**
+     * Changed files that haven't been reloaded yet, along with the time of the last change to them, from {@link System#nanoTime()}
+     */
+    private final Map<Path, Long> pending = new LinkedHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * @param directory the directory to watch
+     * @param debug
+     * @param debounce how long a script should stay untouched before being reloaded, in milliseconds
+     * @param logHandler what to do with the logs of each reloaded script
+     * @throws IOException if the directory couldn't be watched
+     */
+    public ScriptWatcher(Path directory, boolean debug, long debounce, BiConsumer<Path, List<LogEntry>> logHandler) throws IOException {
+        this.debug = debug;
+        this.debounce = TimeUnit.MILLISECONDS.toNanos(debounce);
+        this.logHandler = logHandler;
+        this.watchService = directory.getFileSystem().newWatchService();
+        registerAll(directory);
+    }
+
+    /**
+     * Starts watching on a new daemon thread
+     * @return the thread
+     */
+    public Thread start() {
+        Thread thread = new Thread(this::run, "Script watcher");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Watches on the current thread, until this watcher is {@linkplain #close() closed} or the thread is interrupted
+     */
+    public void run() {
+        try {
+            while (!closed) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    long wait = pending.values().stream().mapToLong(Long::longValue).min().getAsLong() + debounce - System.nanoTime();
+                    key = watchService.poll(Math.max(wait, 0), TimeUnit.NANOSECONDS);
+                }
+                if (key != null)
+                    handleEvents(key);
+                reloadSettled();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+            // We were closed while waiting
+        }
+    }
+
+    private void handleEvents(WatchKey key) {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (directory == null)
+                break;
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) { // Some events were lost, so everything could have changed
+                directories.values().forEach(this::markAll);
+                continue;
+            }
+            Path path = directory.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                try {
+                    registerAll(path);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                markAll(path);
+            } else {
+                pending.put(path, System.nanoTime());
+            }
+        }
+        if (!key.reset())
+            directories.remove(key);
+    }
+
+    private void reloadSettled() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, Long>> iterator = pending.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (now - entry.getValue() < debounce)
+                continue;
+            iterator.remove();
+            Path path = entry.getKey();
+            if (Files.notExists(path) && forgetDirectory(path))
+                continue;
+            if (!isScript(path))
+                continue;
+            if (Files.isRegularFile(path)) {
+                logHandler.accept(path, ScriptLoader.reloadScript(path.toFile(), debug));
+            } else if (Files.notExists(path) && ScriptLoader.isLoaded(path.toFile())) {
+                ScriptLoader.unloadScript(path.toFile());
+            }
+        }
+    }
+
+    /**
+     * Stops watching a directory that was deleted or moved away, along with its subdirectories, and unloads the scripts
+     * that were loaded from it
+     * @param directory the directory
+     * @return whether the directory was being watched
+     */
+    private boolean forgetDirectory(Path directory) {
+        boolean watched = false;
+        Iterator<Map.Entry<WatchKey, Path>> iterator = directories.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<WatchKey, Path> entry = iterator.next();
+            if (entry.getValue().startsWith(directory)) {
+                entry.getKey().cancel();
+                iterator.remove();
+                watched = true;
+            }
+        }
+        if (watched) {
+            Path absolute = directory.toAbsolutePath().normalize();
+            for (Path script : ScriptLoader.getLoadedScripts()) {
+                if (script.startsWith(absolute))
+                    ScriptLoader.unloadScript(script.toFile());
+            }
+        }
+        return watched;
+    }
+
+    /**
+     * Editors create all sorts of temporary files next to the ones being edited, which shouldn't be loaded as scripts
+     */
+    private static boolean isScript(Path path) {
+        String name = path.getFileName().toString();
+        return !name.startsWith(".") && !name.endsWith("~");
+    }
+
+    private void registerAll(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            for (Path path : (Iterable<Path>) walk.filter(Files::isDirectory)::iterator) {
+                WatchKey key = path.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE
+                );
+                directories.put(key, path);
+            }
+        }
+    }
+
+    private void markAll(Path directory) {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.filter(Files::isRegularFile).forEach(path -> pending.put(path, System.nanoTime()));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops watching. Scripts that changed but weren't reloaded yet won't be.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+    }
+}
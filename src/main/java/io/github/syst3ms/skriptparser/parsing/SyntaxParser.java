@@ -1,6 +1,5 @@
 package io.github.syst3ms.skriptparser.parsing;
 
-import io.github.syst3ms.skriptparser.event.TriggerContext;
 import io.github.syst3ms.skriptparser.file.FileSection;
 import io.github.syst3ms.skriptparser.lang.CodeSection;
 import io.github.syst3ms.skriptparser.lang.Effect;
@@ -17,8 +16,9 @@ import io.github.syst3ms.skriptparser.lang.Variable;
 import io.github.syst3ms.skriptparser.lang.VariableString;
 import io.github.syst3ms.skriptparser.lang.base.ConditionalExpression;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
-import io.github.syst3ms.skriptparser.pattern.PatternElement;
+import io.github.syst3ms.skriptparser.pattern.CompiledPattern;
 import io.github.syst3ms.skriptparser.registration.ExpressionInfo;
+import io.github.syst3ms.skriptparser.registration.SkriptAddon;
 import io.github.syst3ms.skriptparser.registration.SkriptEventInfo;
 import io.github.syst3ms.skriptparser.registration.SyntaxInfo;
 import io.github.syst3ms.skriptparser.registration.SyntaxManager;
@@ -27,7 +27,6 @@ import io.github.syst3ms.skriptparser.types.Type;
 import io.github.syst3ms.skriptparser.types.TypeManager;
 import io.github.syst3ms.skriptparser.types.conversions.Converters;
 import io.github.syst3ms.skriptparser.util.ClassUtils;
-import io.github.syst3ms.skriptparser.util.RecentElementList;
 import io.github.syst3ms.skriptparser.util.StringUtils;
 import io.github.syst3ms.skriptparser.variables.Variables;
 import org.intellij.lang.annotations.MagicConstant;
@@ -36,8 +35,10 @@ import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -75,49 +76,59 @@ public class SyntaxParser {
     public static final PatternType<Object> OBJECT_PATTERN_TYPE = new PatternType<>((Type<Object>) TypeManager.getByClass(Object.class), true);
 
     /**
-     * All {@link Effect effects} that are successfully parsed during parsing, in order of last successful parsing
-     */
-    private static final RecentElementList<SyntaxInfo<? extends Effect>> recentEffects = new RecentElementList<>();
-    /**
-     * All {@link CodeSection sections} that are successfully parsed during parsing, in order of last successful parsing
-     */
-    private static final RecentElementList<SyntaxInfo<? extends CodeSection>> recentSections = new RecentElementList<>();
-    /**
-     * All {@link SkriptEvent events} that are successfully parsed during parsing, in order of last successful parsing
-     */
-    private static final RecentElementList<SkriptEventInfo<?>> recentEvents = new RecentElementList<>();
-    /**
-     * All {@link Expression expressions} that are successfully parsed during parsing, in order of last successful parsing
-     */
-    private static final RecentElementList<ExpressionInfo<?, ?>> recentExpressions = new RecentElementList<>();
-    /**
-     * All {@link ConditionalExpression conditions} that are successfully parsed during parsing, in order of last successful parsing
+     * Parses an {@link Expression} from the given {@linkplain String} and {@link PatternType expected return type}
+     * @param <T> the type of the expression
+     * @param s the string to be parsed as an expression
+     * @param expectedType the expected return type
+     * @param logger
+     * @return an expression that was successfully parsed, or {@literal null} if the string is empty,
+     * no match was found
+     * or for another reason detailed in an error message.
      */
-    private static final RecentElementList<ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>> recentConditions = new RecentElementList<>();
-
-    private static Class<? extends TriggerContext>[] currentContexts = new Class[]{};
+    public static <T> Expression<? extends T> parseExpression(String s, PatternType<T> expectedType, SkriptLogger logger) {
+        return parseExpression(s, expectedType, new ParserState(), logger);
+    }
 
     /**
-     * Parses an {@link Expression} from the given {@linkplain String} and {@link PatternType expected return type}
+     * Parses an {@link Expression} from the given {@linkplain String} and {@link PatternType expected return type}.
+     * The result, successful or not, is memoized inside of the {@link ParserState} until it moves on to the next line.
      * @param <T> the type of the expression
      * @param s the string to be parsed as an expression
      * @param expectedType the expected return type
+     * @param parserState the current parser state
      * @param logger
      * @return an expression that was successfully parsed, or {@literal null} if the string is empty,
      * no match was found
      * or for another reason detailed in an error message.
      */
-    public static <T> Expression<? extends T> parseExpression(String s, PatternType<T> expectedType, SkriptLogger logger) {
+    public static <T> Expression<? extends T> parseExpression(String s, PatternType<T> expectedType, ParserState parserState, SkriptLogger logger) {
         if (s.isEmpty())
             return null;
+        if (parserState.isMemoized(s, expectedType))
+            return (Expression<? extends T>) parserState.getMemoized(s, expectedType);
+        ParseHints.Decision decision = getDecision(parserState, ParseHints.EXPRESSION, expectedType, s);
+        Expression<? extends T> expression = decision != null && decision.isFailure()
+                ? null
+                : parseUnmemoizedExpression(s, expectedType, decision, parserState, logger);
+        if (expression == null)
+            recordFailure(parserState, ParseHints.EXPRESSION, expectedType, s);
+        parserState.memoize(s, expectedType, expression);
+        return expression;
+    }
+
+    /**
+     * @param decision what was decided the last time this string was parsed, which isn't a failure
+     */
+    private static <T> Expression<? extends T> parseUnmemoizedExpression(String s, PatternType<T> expectedType, @Nullable ParseHints.Decision decision, ParserState parserState, SkriptLogger logger) {
+        String key = s; // Decisions are recorded for the string as it was given, parentheses included
         if (s.startsWith("(") && s.endsWith(")") && StringUtils.findClosingIndex(s, '(', ')', 0) == s.length() - 1) {
             s = s.substring(1, s.length() - 1);
         }
-        Expression<? extends T> literal = parseLiteral(s, expectedType, logger);
+        Expression<? extends T> literal = parseLiteral(s, expectedType, parserState, logger);
         if (literal != null) {
             return literal;
         }
-        Variable<? extends T> variable = (Variable<? extends T>) Variables.parseVariable(s, expectedType.getType().getTypeClass(), logger);
+        Variable<? extends T> variable = (Variable<? extends T>) Variables.parseVariable(s, expectedType.getType().getTypeClass(), parserState, logger);
         if (variable != null) {
             if (!variable.isSingle() && expectedType.isSingle()) {
                 logger.error("A single value was expected, but " + s + " represents multiple values.");
@@ -126,25 +137,41 @@ public class SyntaxParser {
             return variable;
         }
         if (!expectedType.isSingle()) {
-            Expression<? extends T> listLiteral = parseListLiteral(s, expectedType, logger);
+            Expression<? extends T> listLiteral = parseListLiteral(s, expectedType, parserState, logger);
             if (listLiteral != null) {
                 return listLiteral;
             }
         }
-        for (ExpressionInfo<?, ?> info : recentExpressions) {
-            Expression<? extends T> expr = matchExpressionInfo(s, info, expectedType, currentContexts, logger);
+        if (decision != null && !decision.isFailure()) {
+            ExpressionInfo<?, ?> info = SyntaxManager.getExpressionIndex().getByClassName(decision.getSyntaxClass());
+            Expression<? extends T> expr = info != null
+                    ? matchExpressionInfo(s, info, expectedType, decision.getPattern(), parserState, logger)
+                    : null;
             if (expr != null) {
-                recentExpressions.moveToFirst(info);
+                parserState.getRecentExpressions().moveToFirst(info);
+                recordMatch(parserState, parserState.getCurrentLine(), ParseHints.EXPRESSION, expectedType, key, info);
+                return expr;
+            }
+            markStale(parserState);
+        }
+        Set<ExpressionInfo<?, ?>> candidates = SyntaxManager.getExpressionIndex().getCandidates(s);
+        for (ExpressionInfo<?, ?> info : parserState.getRecentExpressions()) {
+            if (!candidates.contains(info))
+                continue;
+            Expression<? extends T> expr = matchExpressionInfo(s, info, expectedType, -1, parserState, logger);
+            if (expr != null) {
+                parserState.getRecentExpressions().moveToFirst(info);
+                recordMatch(parserState, parserState.getCurrentLine(), ParseHints.EXPRESSION, expectedType, key, info);
                 return expr;
             }
         }
         // Let's not loop over the same elements again
-        List<ExpressionInfo<?, ?>> remainingExpressions = SyntaxManager.getAllExpressions();
-        recentExpressions.removeFrom(remainingExpressions);
-        for (ExpressionInfo<?, ?> info : remainingExpressions) {
-            Expression<? extends T> expr = matchExpressionInfo(s, info, expectedType, currentContexts, logger);
+        parserState.getRecentExpressions().removeFrom(candidates);
+        for (ExpressionInfo<?, ?> info : candidates) {
+            Expression<? extends T> expr = matchExpressionInfo(s, info, expectedType, -1, parserState, logger);
             if (expr != null) {
-                recentExpressions.moveToFirst(info);
+                parserState.getRecentExpressions().moveToFirst(info);
+                recordMatch(parserState, parserState.getCurrentLine(), ParseHints.EXPRESSION, expectedType, key, info);
                 return expr;
             }
         }
@@ -165,6 +192,41 @@ public class SyntaxParser {
      * or for another reason detailed in an error message.
      */
     public static Expression<Boolean> parseBooleanExpression(String s, @MagicConstant(intValues = {NOT_CONDITIONAL, MAYBE_CONDITIONAL, CONDITIONAL}) int conditional, SkriptLogger logger) {
+        return parseBooleanExpression(s, conditional, new ParserState(), logger);
+    }
+
+    /**
+     * Parses a {@link Expression boolean expression} from the given {@linkplain String}.
+     * The result, successful or not, is memoized inside of the {@link ParserState} until it moves on to the next line.
+     * @param s the string to be parsed as an expression
+     * @param conditional a constant describing whether the result can be a {@link ConditionalExpression condition}
+     * @param parserState the current parser state
+     * @param logger
+     * @see SyntaxParser#NOT_CONDITIONAL
+     * @see SyntaxParser#MAYBE_CONDITIONAL
+     * @see SyntaxParser#CONDITIONAL
+     * @return a boolean expression that was successfully parsed, or {@literal null} if the string is empty,
+     * no match was found
+     * or for another reason detailed in an error message.
+     */
+    public static Expression<Boolean> parseBooleanExpression(String s, @MagicConstant(intValues = {NOT_CONDITIONAL, MAYBE_CONDITIONAL, CONDITIONAL}) int conditional, ParserState parserState, SkriptLogger logger) {
+        if (parserState.isMemoized(s, conditional))
+            return (Expression<Boolean>) parserState.getMemoized(s, conditional);
+        ParseHints.Decision decision = getDecision(parserState, ParseHints.BOOLEAN, conditional, s);
+        Expression<Boolean> expression = decision != null && decision.isFailure()
+                ? null
+                : parseUnmemoizedBooleanExpression(s, conditional, decision, parserState, logger);
+        if (expression == null)
+            recordFailure(parserState, ParseHints.BOOLEAN, conditional, s);
+        parserState.memoize(s, conditional, expression);
+        return expression;
+    }
+
+    /**
+     * @param decision what was decided the last time this string was parsed, which isn't a failure
+     */
+    private static Expression<Boolean> parseUnmemoizedBooleanExpression(String s, int conditional, @Nullable ParseHints.Decision decision, ParserState parserState, SkriptLogger logger) {
+        String key = s; // Decisions are recorded for the string as it was given, parentheses included
         // I swear this is the cleanest way to do it
         if (s.equalsIgnoreCase("true")) {
             return new SimpleLiteral<>(Boolean.class, true);
@@ -174,64 +236,44 @@ public class SyntaxParser {
         if (s.startsWith("(") && s.endsWith(")") && StringUtils.findClosingIndex(s, '(', ')', 0) == s.length() - 1) {
             s = s.substring(1, s.length() - 1);
         }
-        for (ExpressionInfo<?, ?> info : recentExpressions) {
-            if (info.getReturnType().getType().getTypeClass() != Boolean.class)
+        if (decision != null && !decision.isFailure()) {
+            ExpressionInfo<?, ?> info = SyntaxManager.getExpressionIndex().getByClassName(decision.getSyntaxClass());
+            Expression<Boolean> expr = info != null && info.getReturnType().getType().getTypeClass() == Boolean.class
+                    ? (Expression<Boolean>) matchExpressionInfo(s, info, BOOLEAN_PATTERN_TYPE, decision.getPattern(), parserState, logger)
+                    : null;
+            if (expr != null) {
+                if (!checkConditional(expr, info, conditional, parserState, logger))
+                    return null;
+                parserState.getRecentExpressions().moveToFirst(info);
+                recordMatch(parserState, parserState.getCurrentLine(), ParseHints.BOOLEAN, conditional, key, info);
+                return expr;
+            }
+            markStale(parserState);
+        }
+        Set<ExpressionInfo<?, ?>> candidates = SyntaxManager.getExpressionIndex().getCandidates(s);
+        for (ExpressionInfo<?, ?> info : parserState.getRecentExpressions()) {
+            if (info.getReturnType().getType().getTypeClass() != Boolean.class || !candidates.contains(info))
                 continue;
-            Expression<Boolean> expr = (Expression<Boolean>) matchExpressionInfo(s, info, BOOLEAN_PATTERN_TYPE, currentContexts,
-                    logger
-            );
+            Expression<Boolean> expr = (Expression<Boolean>) matchExpressionInfo(s, info, BOOLEAN_PATTERN_TYPE, -1, parserState, logger);
             if (expr != null) {
-                switch (conditional) {
-                    case 0: // Can't be conditional
-                        if (ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
-                            logger.error("The boolean expression must not be conditional");
-                            return null;
-                        }
-                        break;
-                    case 2: // Has to be conditional
-                        if (!ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
-                            logger.error("The boolean expression must be conditional");
-                            return null;
-                        }
-                    case 1: // Can be conditional
-                        if (ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
-                            recentConditions.moveToFirst((ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>) info);
-                        }
-                    default: // You just want me dead, don't you ?
-                        break;
-                }
-                recentExpressions.moveToFirst(info);
+                if (!checkConditional(expr, info, conditional, parserState, logger))
+                    return null;
+                parserState.getRecentExpressions().moveToFirst(info);
+                recordMatch(parserState, parserState.getCurrentLine(), ParseHints.BOOLEAN, conditional, key, info);
                 return expr;
             }
         }
         // Let's not loop over the same elements again
-        List<ExpressionInfo<?, ?>> remainingExpressions = SyntaxManager.getAllExpressions();
-        recentExpressions.removeFrom(remainingExpressions);
-        for (ExpressionInfo<?, ?> info : remainingExpressions) {
+        parserState.getRecentExpressions().removeFrom(candidates);
+        for (ExpressionInfo<?, ?> info : candidates) {
             if (info.getReturnType().getType().getTypeClass() != Boolean.class)
                 continue;
-            Expression<Boolean> expr = (Expression<Boolean>) matchExpressionInfo(s, info, BOOLEAN_PATTERN_TYPE, currentContexts, logger);
+            Expression<Boolean> expr = (Expression<Boolean>) matchExpressionInfo(s, info, BOOLEAN_PATTERN_TYPE, -1, parserState, logger);
             if (expr != null) {
-                switch (conditional) {
-                    case 0: // Can't be conditional
-                        if (ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
-                            logger.error("The boolean expression must not be conditional");
-                            return null;
-                        }
-                        break;
-                    case 2: // Has to be conditional
-                        if (!ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
-                            logger.error("The boolean expression must be conditional");
-                            return null;
-                        }
-                    case 1: // Can be conditional
-                        if (ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
-                            recentConditions.moveToFirst((ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>) info);
-                        }
-                    default: // You just want me dead, don't you ?
-                        break;
-                }
-                recentExpressions.moveToFirst(info);
+                if (!checkConditional(expr, info, conditional, parserState, logger))
+                    return null;
+                parserState.getRecentExpressions().moveToFirst(info);
+                recordMatch(parserState, parserState.getCurrentLine(), ParseHints.BOOLEAN, conditional, key, info);
                 return expr;
             }
         }
@@ -239,33 +281,68 @@ public class SyntaxParser {
         return null;
     }
 
+    /**
+     * Checks whether a parsed boolean expression is allowed to be, or not to be, a {@link ConditionalExpression condition}
+     * @return whether the expression is accepted
+     */
+    private static boolean checkConditional(Expression<Boolean> expr, ExpressionInfo<?, ?> info, int conditional, ParserState parserState, SkriptLogger logger) {
+        switch (conditional) {
+            case 0: // Can't be conditional
+                if (ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
+                    logger.error("The boolean expression must not be conditional");
+                    return false;
+                }
+                break;
+            case 2: // Has to be conditional
+                if (!ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
+                    logger.error("The boolean expression must be conditional");
+                    return false;
+                }
+            case 1: // Can be conditional
+                if (ConditionalExpression.class.isAssignableFrom(expr.getClass())) {
+                    parserState.getRecentConditions().moveToFirst((ExpressionInfo<? extends ConditionalExpression, ? extends Boolean>) info);
+                }
+            default: // You just want me dead, don't you ?
+                break;
+        }
+        return true;
+    }
+
     /**
      * Parses a line of code as an {@link InlineCondition}
      * @param s the line to be parsed
+     * @param parserState the current parser state
      * @param logger
      * @return an inline condition that was successfully parsed, or {@literal null} if the string is empty,
      * no match was found
      * or for another reason detailed in an error message
      */
     @Nullable
-    public static InlineCondition parseInlineCondition(String s, SkriptLogger logger) {
+    public static InlineCondition parseInlineCondition(String s, ParserState parserState, SkriptLogger logger) {
         if (s.isEmpty())
             return null;
-        Expression<Boolean> cond = parseBooleanExpression(s, CONDITIONAL, logger);
+        Expression<Boolean> cond = parseBooleanExpression(s, CONDITIONAL, parserState, logger);
         return cond != null ? new InlineCondition(cond) : null;
     }
 
-    private static <T> Expression<? extends T> matchExpressionInfo(String s, ExpressionInfo<?, ?> info, PatternType<T> expectedType, Class<? extends TriggerContext>[] currentContextss, SkriptLogger logger) {
-        List<PatternElement> patterns = info.getPatterns();
+    /**
+     * @param patternIndex the index of the only pattern to try, or {@literal -1} to try all of them
+     */
+    private static <T> Expression<? extends T> matchExpressionInfo(String s, ExpressionInfo<?, ?> info, PatternType<T> expectedType, int patternIndex, ParserState parserState, SkriptLogger logger) {
+        List<CompiledPattern> patterns = info.getCompiledPatterns();
         PatternType<?> infoType = info.getReturnType();
         Class<?> infoTypeClass = infoType.getType().getTypeClass();
         Class<T> expectedTypeClass = expectedType.getType().getTypeClass();
         if (!expectedTypeClass.isAssignableFrom(infoTypeClass) && !Converters.converterExists(infoTypeClass, expectedTypeClass))
             return null;
         for (int i = 0; i < patterns.size(); i++) {
-            PatternElement element = patterns.get(i);
-            MatchContext parser = new MatchContext(element, currentContextss, logger);
-            if (element.match(s, 0, parser) != -1) {
+            if (patternIndex != -1 && i != patternIndex)
+                continue;
+            CompiledPattern pattern = patterns.get(i);
+            if (!pattern.mayMatch(s))
+                continue;
+            MatchContext parser = new MatchContext(pattern, parserState, logger);
+            if (pattern.match(s, 0, parser) != -1) {
                 try {
                     Expression<? extends T> expression = (Expression<? extends T>) info.getSyntaxClass().newInstance();
                     if (!expression.init(
@@ -279,6 +356,7 @@ public class SyntaxParser {
                     if (!expectedTypeClass.isAssignableFrom(expressionReturnType)) { // Would only screw up in case of bad dynamic type usage
                         Expression<?> converted = expression.convertExpression(expectedTypeClass);
                         if (converted != null) {
+                            parserState.setMatchedPattern(i);
                             return (Expression<? extends T>) converted;
                         } else {
                             Type<?> type = TypeManager.getByClass(expressionReturnType);
@@ -295,6 +373,7 @@ public class SyntaxParser {
                         logger.error("A single value was expected, but " + s + " represents multiple values.");
                         continue;
                     }
+                    parserState.setMatchedPattern(i);
                     return expression;
                 } catch (InstantiationException | IllegalAccessException e) {
                     logger.error("Couldn't instantiate class " + info.getSyntaxClass().getName());
@@ -309,12 +388,13 @@ public class SyntaxParser {
      * @param <T> the type of the list literal
      * @param s the string to be parsed as a list literal
      * @param expectedType the expected return type (must be plural)
+     * @param parserState the current parser state
      * @param logger
      * @return a list literal that was successfully parsed, or {@literal null} if the string is empty,
      * no match was found
      * or for another reason detailed in an error message.
      */
-    public static <T> Expression<? extends T> parseListLiteral(String s, PatternType<T> expectedType, SkriptLogger logger) {
+    public static <T> Expression<? extends T> parseListLiteral(String s, PatternType<T> expectedType, ParserState parserState, SkriptLogger logger) {
         assert !expectedType.isSingle();
         if (!s.contains(",") && !s.contains("and") && !s.contains("nor") && !s.contains("or"))
             return null;
@@ -366,7 +446,7 @@ public class SyntaxParser {
         for (int i = 0; i < parts.size(); i++) {
             if ((i & 1) == 0) { // Even index == element
                 String part = parts.get(i);
-                Expression<? extends T> expression = parseExpression(part, expectedType, logger);
+                Expression<? extends T> expression = parseExpression(part, expectedType, parserState, logger);
                 if (expression == null) {
                     return null;
                 }
@@ -407,6 +487,21 @@ public class SyntaxParser {
      * or for another reason detailed in an error message.
      */
     public static <T> Expression<? extends T> parseLiteral(String s, PatternType<T> expectedType, SkriptLogger logger) {
+        return parseLiteral(s, expectedType, new ParserState(), logger);
+    }
+
+    /**
+     * Parses a literal of a given {@link PatternType type} from the given {@linkplain String}
+     * @param <T> the type of the literal
+     * @param s the string to be parsed as a literal
+     * @param expectedType the expected return type
+     * @param parserState the current parser state
+     * @param logger
+     * @return a literal that was successfully parsed, or {@literal null} if the string is empty,
+     * no match was found
+     * or for another reason detailed in an error message.
+     */
+    public static <T> Expression<? extends T> parseLiteral(String s, PatternType<T> expectedType, ParserState parserState, SkriptLogger logger) {
         Map<Class<?>, Type<?>> classToTypeMap = TypeManager.getClassToTypeMap();
         for (Class<?> c : classToTypeMap.keySet()) {
             Class<? extends T> expectedClass = expectedType.getType().getTypeClass();
@@ -422,7 +517,7 @@ public class SyntaxParser {
                         return new SimpleLiteral<>((Class<T>) c, literal).convertExpression(expectedType.getType().getTypeClass());
                     }
                 } else if (expectedClass == String.class || c == String.class) {
-                    VariableString vs = VariableString.newInstanceWithQuotes(s, logger);
+                    VariableString vs = VariableString.newInstanceWithQuotes(s, parserState, logger);
                     if (vs != null) {
                         return (Expression<? extends T>) vs;
                     }
@@ -441,22 +536,50 @@ public class SyntaxParser {
      * or for another reason detailed in an error message
      */
     public static Effect parseEffect(String s, SkriptLogger logger) {
+        return parseEffect(s, new ParserState(), logger);
+    }
+
+    /**
+     * Parses a line of code as an {@link Effect}
+     * @param s the line to be parsed
+     * @param parserState the current parser state
+     * @param logger the logger
+     * @return an effect that was successfully parsed, or {@literal null} if the string is empty,
+     * no match was found
+     * or for another reason detailed in an error message
+     */
+    public static Effect parseEffect(String s, ParserState parserState, SkriptLogger logger) {
         if (s.isEmpty())
             return null;
-        for (SyntaxInfo<? extends Effect> recentEffect : recentEffects) {
-            Effect eff = matchEffectInfo(s, recentEffect, logger);
+        ParseHints.Decision decision = getDecision(parserState, ParseHints.EFFECT, "", s);
+        if (decision != null) {
+            SyntaxInfo<? extends Effect> hintedEffect = SyntaxManager.getEffectIndex().getByClassName(decision.getSyntaxClass());
+            Effect eff = hintedEffect != null ? matchEffectInfo(s, hintedEffect, decision.getPattern(), parserState, logger) : null;
+            if (eff != null) {
+                parserState.getRecentEffects().moveToFirst(hintedEffect);
+                recordMatch(parserState, parserState.getCurrentLine(), ParseHints.EFFECT, "", s, hintedEffect);
+                return eff;
+            }
+            markStale(parserState);
+        }
+        Set<SyntaxInfo<? extends Effect>> candidates = SyntaxManager.getEffectIndex().getCandidates(s);
+        for (SyntaxInfo<? extends Effect> recentEffect : parserState.getRecentEffects()) {
+            if (!candidates.contains(recentEffect))
+                continue;
+            Effect eff = matchEffectInfo(s, recentEffect, -1, parserState, logger);
             if (eff != null) {
-                recentEffects.moveToFirst(recentEffect);
+                parserState.getRecentEffects().moveToFirst(recentEffect);
+                recordMatch(parserState, parserState.getCurrentLine(), ParseHints.EFFECT, "", s, recentEffect);
                 return eff;
             }
         }
         // Let's not loop over the same elements again
-        List<SyntaxInfo<? extends Effect>> remainingEffects = SyntaxManager.getEffects();
-        recentEffects.removeFrom(remainingEffects);
-        for (SyntaxInfo<? extends Effect> remainingEffect : remainingEffects) {
-            Effect eff = matchEffectInfo(s, remainingEffect, logger);
+        parserState.getRecentEffects().removeFrom(candidates);
+        for (SyntaxInfo<? extends Effect> remainingEffect : candidates) {
+            Effect eff = matchEffectInfo(s, remainingEffect, -1, parserState, logger);
             if (eff != null) {
-                recentEffects.moveToFirst(remainingEffect);
+                parserState.getRecentEffects().moveToFirst(remainingEffect);
+                recordMatch(parserState, parserState.getCurrentLine(), ParseHints.EFFECT, "", s, remainingEffect);
                 return eff;
             }
         }
@@ -464,12 +587,16 @@ public class SyntaxParser {
         return null;
     }
 
-    private static Effect matchEffectInfo(String s, SyntaxInfo<? extends Effect> info, SkriptLogger logger) {
-        List<PatternElement> patterns = info.getPatterns();
+    private static Effect matchEffectInfo(String s, SyntaxInfo<? extends Effect> info, int patternIndex, ParserState parserState, SkriptLogger logger) {
+        List<CompiledPattern> patterns = info.getCompiledPatterns();
         for (int i = 0; i < patterns.size(); i++) {
-            PatternElement element = patterns.get(i);
-            MatchContext parser = new MatchContext(element, currentContexts, logger);
-            if (element.match(s, 0, parser) != -1) {
+            if (patternIndex != -1 && i != patternIndex)
+                continue;
+            CompiledPattern pattern = patterns.get(i);
+            if (!pattern.mayMatch(s))
+                continue;
+            MatchContext parser = new MatchContext(pattern, parserState, logger);
+            if (pattern.match(s, 0, parser) != -1) {
                 try {
                     Effect eff = info.getSyntaxClass().newInstance();
                     if (!eff.init(
@@ -479,6 +606,7 @@ public class SyntaxParser {
                     )) {
                         continue;
                     }
+                    parserState.setMatchedPattern(i);
                     return eff;
                 } catch (InstantiationException | IllegalAccessException e) {
                     logger.error("Couldn't instantiate class " + info.getSyntaxClass());
@@ -491,47 +619,66 @@ public class SyntaxParser {
     /**
      * Parses a line of code as a {@link Statement}, either an {@link Effect} or an {@link InlineCondition}
      * @param s the line to be parsed
+     * @param parserState the current parser state
      * @param logger the logger
      * @return a statement that was successfully parsed, or {@literal null} if the string is empty,
      * no match was found
      * or for another reason detailed in an error message
      */
     @Nullable
-    public static Statement parseStatement(String s, SkriptLogger logger) {
+    public static Statement parseStatement(String s, ParserState parserState, SkriptLogger logger) {
         if (s.isEmpty())
             return null;
         if (s.regionMatches(true, 0, "continue if ", 0, "continue if ".length())) { // startsWithIgnoreCase
-            InlineCondition cond = parseInlineCondition(s.substring("continue if ".length()), logger);
+            InlineCondition cond = parseInlineCondition(s.substring("continue if ".length()), parserState, logger);
             if (cond != null)
                 return cond;
         }
-        return parseEffect(s, logger); // If that's null, we wanted to return null anyway
+        return parseEffect(s, parserState, logger); // If that's null, we wanted to return null anyway
     }
 
     /**
      * Parses a section of a file as a {@link CodeSection}
      * @param section the section to be parsed
+     * @param parserState the current parser state
      * @param logger the logger
      * @return a section that was successfully parsed, or {@literal null} if the section is empty,
      * no match was found
      * or for another reason detailed in an error message
      */
-    public static CodeSection parseSection(FileSection section, SkriptLogger logger) {
+    public static CodeSection parseSection(FileSection section, ParserState parserState, SkriptLogger logger) {
         if (section.getLineContent().isEmpty())
             return null;
-        for (SyntaxInfo<? extends CodeSection> recentSection : recentSections) {
-            CodeSection sec = matchSectionInfo(section, recentSection, logger);
+        // Parsing the contents of the section moves on to other lines
+        int line = parserState.getCurrentLine();
+        ParseHints.Decision decision = getDecision(parserState, ParseHints.SECTION, "", section.getLineContent());
+        if (decision != null) {
+            SyntaxInfo<? extends CodeSection> hintedSection = SyntaxManager.getSectionIndex().getByClassName(decision.getSyntaxClass());
+            CodeSection sec = hintedSection != null ? matchSectionInfo(section, hintedSection, decision.getPattern(), parserState, logger) : null;
+            if (sec != null) {
+                parserState.getRecentSections().moveToFirst(hintedSection);
+                recordMatch(parserState, line, ParseHints.SECTION, "", section.getLineContent(), hintedSection);
+                return sec;
+            }
+            markStale(parserState);
+        }
+        Set<SyntaxInfo<? extends CodeSection>> candidates = SyntaxManager.getSectionIndex().getCandidates(section.getLineContent());
+        for (SyntaxInfo<? extends CodeSection> recentSection : parserState.getRecentSections()) {
+            if (!candidates.contains(recentSection))
+                continue;
+            CodeSection sec = matchSectionInfo(section, recentSection, -1, parserState, logger);
             if (sec != null) {
-                recentSections.moveToFirst(recentSection);
+                parserState.getRecentSections().moveToFirst(recentSection);
+                recordMatch(parserState, line, ParseHints.SECTION, "", section.getLineContent(), recentSection);
                 return sec;
             }
         }
-        List<SyntaxInfo<? extends CodeSection>> remainingSections = SyntaxManager.getSections();
-        recentSections.removeFrom(remainingSections);
-        for (SyntaxInfo<? extends CodeSection> remainingSection : remainingSections) {
-            CodeSection sec = matchSectionInfo(section, remainingSection, logger);
+        parserState.getRecentSections().removeFrom(candidates);
+        for (SyntaxInfo<? extends CodeSection> remainingSection : candidates) {
+            CodeSection sec = matchSectionInfo(section, remainingSection, -1, parserState, logger);
             if (sec != null) {
-                recentSections.moveToFirst(remainingSection);
+                parserState.getRecentSections().moveToFirst(remainingSection);
+                recordMatch(parserState, line, ParseHints.SECTION, "", section.getLineContent(), remainingSection);
                 return sec;
             }
         }
@@ -539,12 +686,16 @@ public class SyntaxParser {
         return null;
     }
 
-    private static CodeSection matchSectionInfo(FileSection section, SyntaxInfo<? extends CodeSection> info, SkriptLogger logger) {
-        List<PatternElement> patterns = info.getPatterns();
+    private static CodeSection matchSectionInfo(FileSection section, SyntaxInfo<? extends CodeSection> info, int patternIndex, ParserState parserState, SkriptLogger logger) {
+        List<CompiledPattern> patterns = info.getCompiledPatterns();
         for (int i = 0; i < patterns.size(); i++) {
-            PatternElement element = patterns.get(i);
-            MatchContext parser = new MatchContext(element, currentContexts, logger);
-            if (element.match(section.getLineContent(), 0, parser) != -1) {
+            if (patternIndex != -1 && i != patternIndex)
+                continue;
+            CompiledPattern pattern = patterns.get(i);
+            if (!pattern.mayMatch(section.getLineContent()))
+                continue;
+            MatchContext parser = new MatchContext(pattern, parserState, logger);
+            if (pattern.match(section.getLineContent(), 0, parser) != -1) {
                 try {
                     CodeSection sec = info.getSyntaxClass().newInstance();
                     if (!sec.init(
@@ -555,7 +706,8 @@ public class SyntaxParser {
                         continue;
                     }
                     logger.logOutput();
-                    sec.loadSection(section, logger);
+                    sec.loadSection(section, parserState, logger);
+                    parserState.setMatchedPattern(i);
                     return sec;
                 } catch (InstantiationException | IllegalAccessException e) {
                     logger.error("Couldn't instantiate class " + info.getSyntaxClass());
@@ -565,34 +717,72 @@ public class SyntaxParser {
         return null;
     }
 
+    /**
+     * Parses a section of a file as a {@link Trigger}, and hands it to the addon that registered its event
+     * @param section the section to be parsed
+     * @param parserState the current parser state
+     * @param logger the logger
+     * @return a trigger that was successfully parsed, or {@literal null} if the section is empty,
+     * no match was found
+     * or for another reason detailed in an error message
+     */
+    @Nullable
+    public static Trigger parseTrigger(FileSection section, ParserState parserState, SkriptLogger logger) {
+        return parseTrigger(section, parserState, logger, true);
+    }
+
     /**
      * Parses a section of a file as a {@link Trigger}
      * @param section the section to be parsed
+     * @param parserState the current parser state
      * @param logger the logger
+     * @param handle whether the trigger should be handed to the addon that registered its event right away. If not,
+     *               it is up to the caller to hand it to {@linkplain #getRegisterer(Trigger) that addon} later on.
      * @return a trigger that was successfully parsed, or {@literal null} if the section is empty,
      * no match was found
      * or for another reason detailed in an error message
      */
     @Nullable
-    public static Trigger parseTrigger(FileSection section, SkriptLogger logger) {
+    public static Trigger parseTrigger(FileSection section, ParserState parserState, SkriptLogger logger, boolean handle) {
         if (section.getLineContent().isEmpty())
             return null;
-        for (SkriptEventInfo<?> recentEvent : recentEvents) {
-            Trigger trigger = matchEventInfo(section, recentEvent, logger);
+        // Parsing the contents of the trigger moves on to other lines
+        int line = parserState.getCurrentLine();
+        ParseHints.Decision decision = getDecision(parserState, ParseHints.TRIGGER, "", section.getLineContent());
+        if (decision != null) {
+            SkriptEventInfo<?> hintedEvent = SyntaxManager.getTriggerIndex().getByClassName(decision.getSyntaxClass());
+            Trigger trigger = hintedEvent != null ? matchEventInfo(section, hintedEvent, decision.getPattern(), parserState, logger) : null;
+            if (trigger != null) {
+                parserState.getRecentEvents().moveToFirst(hintedEvent);
+                recordMatch(parserState, line, ParseHints.TRIGGER, "", section.getLineContent(), hintedEvent);
+                if (handle)
+                    handleTrigger(hintedEvent, trigger);
+                return trigger;
+            }
+            markStale(parserState);
+        }
+        Set<SkriptEventInfo<?>> candidates = SyntaxManager.getTriggerIndex().getCandidates(section.getLineContent());
+        for (SkriptEventInfo<?> recentEvent : parserState.getRecentEvents()) {
+            if (!candidates.contains(recentEvent))
+                continue;
+            Trigger trigger = matchEventInfo(section, recentEvent, -1, parserState, logger);
             if (trigger != null) {
-                recentEvents.moveToFirst(recentEvent);
-                recentEvent.getRegisterer().handleTrigger(trigger);
+                parserState.getRecentEvents().moveToFirst(recentEvent);
+                recordMatch(parserState, line, ParseHints.TRIGGER, "", section.getLineContent(), recentEvent);
+                if (handle)
+                    handleTrigger(recentEvent, trigger);
                 return trigger;
             }
         }
         // Let's not loop over the same elements again
-        List<SkriptEventInfo<?>> remainingEvents = SyntaxManager.getTriggers();
-        recentEvents.removeFrom(remainingEvents);
-        for (SkriptEventInfo<?> remainingEvent : remainingEvents) {
-            Trigger trigger = matchEventInfo(section, remainingEvent, logger);
+        parserState.getRecentEvents().removeFrom(candidates);
+        for (SkriptEventInfo<?> remainingEvent : candidates) {
+            Trigger trigger = matchEventInfo(section, remainingEvent, -1, parserState, logger);
             if (trigger != null) {
-                recentEvents.moveToFirst(remainingEvent);
-                remainingEvent.getRegisterer().handleTrigger(trigger);
+                parserState.getRecentEvents().moveToFirst(remainingEvent);
+                recordMatch(parserState, line, ParseHints.TRIGGER, "", section.getLineContent(), remainingEvent);
+                if (handle)
+                    handleTrigger(remainingEvent, trigger);
                 return trigger;
             }
         }
@@ -600,12 +790,38 @@ public class SyntaxParser {
         return null;
     }
 
-    private static Trigger matchEventInfo(FileSection section, SkriptEventInfo<?> info, SkriptLogger logger) {
-        List<PatternElement> patterns = info.getPatterns();
+    /**
+     * Hands a trigger to the addon that registered its event. Since scripts can be {@linkplain ScriptLoader#loadScripts(Collection, boolean)
+     * loaded in parallel}, this is done while holding the addon's lock.
+     */
+    private static void handleTrigger(SkriptEventInfo<?> info, Trigger trigger) {
+        SkriptAddon registerer = info.getRegisterer();
+        synchronized (registerer) {
+            registerer.handleTrigger(trigger);
+        }
+    }
+
+    /**
+     * @param trigger a trigger
+     * @return the addon that registered the event of that trigger, and should therefore {@linkplain SkriptAddon#handleTrigger(Trigger) handle} it
+     */
+    public static SkriptAddon getRegisterer(Trigger trigger) {
+        SkriptEventInfo<?> info = SyntaxManager.getTriggerIndex().getByClassName(trigger.getEvent().getClass().getName());
+        if (info == null)
+            throw new SkriptParserException("The event " + trigger.getEvent().getClass().getName() + " isn't registered");
+        return info.getRegisterer();
+    }
+
+    private static Trigger matchEventInfo(FileSection section, SkriptEventInfo<?> info, int patternIndex, ParserState parserState, SkriptLogger logger) {
+        List<CompiledPattern> patterns = info.getCompiledPatterns();
         for (int i = 0; i < patterns.size(); i++) {
-            PatternElement element = patterns.get(i);
-            MatchContext parser = new MatchContext(element, currentContexts, logger);
-            if (element.match(section.getLineContent(), 0, parser) != -1) {
+            if (patternIndex != -1 && i != patternIndex)
+                continue;
+            CompiledPattern pattern = patterns.get(i);
+            if (!pattern.mayMatch(section.getLineContent()))
+                continue;
+            MatchContext parser = new MatchContext(pattern, parserState, logger);
+            if (pattern.match(section.getLineContent(), 0, parser) != -1) {
                 try {
                     SkriptEvent event = info.getSyntaxClass().newInstance();
                     if (!event.init(
@@ -616,9 +832,10 @@ public class SyntaxParser {
                         continue;
                     }
                     logger.logOutput();
+                    parserState.setCurrentContexts(info.getContexts());
                     Trigger trig = new Trigger(event);
-                    trig.loadSection(section, logger);
-                    setCurrentContexts(info.getContexts());
+                    trig.loadSection(section, parserState, logger);
+                    parserState.setMatchedPattern(i);
                     return trig;
                 } catch (InstantiationException | IllegalAccessException e) {
                     logger.error("Couldn't instantiate class " + info.getSyntaxClass());
@@ -628,7 +845,27 @@ public class SyntaxParser {
         return null;
     }
 
-    static void setCurrentContexts(Class<? extends TriggerContext>[] currentContexts) {
-        SyntaxParser.currentContexts = currentContexts;
+    @Nullable
+    private static ParseHints.Decision getDecision(ParserState parserState, int kind, Object type, String s) {
+        ParseHints hints = parserState.getParseHints();
+        return hints != null ? hints.get(parserState.getCurrentLine(), kind, type, s) : null;
+    }
+
+    private static void recordMatch(ParserState parserState, int line, int kind, Object type, String s, SyntaxInfo<?> info) {
+        ParseHints hints = parserState.getParseHints();
+        if (hints != null)
+            hints.record(line, kind, type, s, info, parserState.getMatchedPattern());
+    }
+
+    private static void recordFailure(ParserState parserState, int kind, Object type, String s) {
+        ParseHints hints = parserState.getParseHints();
+        if (hints != null)
+            hints.recordFailure(parserState.getCurrentLine(), kind, type, s);
+    }
+
+    private static void markStale(ParserState parserState) {
+        ParseHints hints = parserState.getParseHints();
+        if (hints != null)
+            hints.markStale();
     }
 }
@@ -41,7 +41,7 @@ public class ChoiceGroup implements PatternElement {
 
     @Override
     public int match(String s, int index, MatchContext parser) {
-        if (parser.getOriginalElement().equals(this))
+        if (parser.isOriginalElement(this))
             parser.advanceInPattern();
         for (ChoiceElement choice : choices) {
             int m = choice.getElement().match(s, index, parser);
@@ -0,0 +1,213 @@
+package io.github.syst3ms.skriptparser.pattern;
+
+import io.github.syst3ms.skriptparser.parsing.MatchContext;
+import io.github.syst3ms.skriptparser.parsing.SkriptParserException;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * An immutable, ready-to-match form of a {@link PatternElement}.
+ * Everything that only depends on the shape of the pattern, like what could possibly follow a given element, is computed
+ * once when the pattern is compiled, rather than on every single match attempt.
+ * <br>
+ * This isn't an automaton: strings are still matched by the recursive, backtracking {@link PatternElement#match}
+ * methods of the element tree. What compiling adds is the follow-set of every position in the flattened pattern, the
+ * text that must appear in a string for it to match at all, which lets most patterns be skipped without matching
+ * them, and the root element, which elements compare themselves to by identity.
+ */
+public final class CompiledPattern {
+    private final PatternElement element;
+    private final String pattern;
+    /**
+     * {@code possibleInputs[i]} is {@link PatternElement#getPossibleInputs(List)} applied to the flattened pattern,
+     * starting at index {@code i}
+     */
+    private final List<List<PatternElement>> possibleInputs;
+    /**
+     * {@code textOnly[i]} tells whether {@code possibleInputs[i]} only contains {@link TextElement}s
+     */
+    private final boolean[] textOnly;
+    /**
+     * Text that must appear somewhere in a string for it to have any chance of matching this pattern
+     */
+    private final String[] anchors;
+    /**
+     * The lowercase words a string matching this pattern could start with, or {@literal null} if it could start with anything
+     */
+    @Nullable
+    private final Set<String> leadingKeywords;
+
+    private CompiledPattern(PatternElement element) {
+        this.element = element;
+        this.pattern = element.toString();
+        List<PatternElement> flattened = PatternElement.flatten(element);
+        int size = flattened.size();
+        List<List<PatternElement>> possibleInputs = new ArrayList<>(size + 1);
+        this.textOnly = new boolean[size + 1];
+        for (int i = 0; i <= size; i++) {
+            List<PatternElement> inputs = PatternElement.getPossibleInputs(flattened.subList(i, size));
+            possibleInputs.add(Collections.unmodifiableList(inputs));
+            boolean onlyText = true;
+            for (PatternElement input : inputs) {
+                onlyText &= input instanceof TextElement;
+            }
+            textOnly[i] = onlyText;
+        }
+        this.possibleInputs = Collections.unmodifiableList(possibleInputs);
+        List<String> anchors = new ArrayList<>();
+        for (PatternElement e : flattened) {
+            if (e instanceof TextElement) {
+                String text = ((TextElement) e).getText().trim();
+                if (!text.isEmpty())
+                    anchors.add(text);
+            }
+        }
+        this.anchors = anchors.toArray(new String[0]);
+        Set<String> keywords = new HashSet<>();
+        this.leadingKeywords = collectLeadingKeywords(flattened, keywords) == LEADING_TERMINATED
+                ? Collections.unmodifiableSet(keywords)
+                : null;
+    }
+
+    /**
+     * Compiles a {@link PatternElement}, usually the result of {@link io.github.syst3ms.skriptparser.PatternParser#parsePattern(String)}
+     * @param element the element to compile
+     * @return the compiled pattern
+     */
+    public static CompiledPattern compile(PatternElement element) {
+        if (element == null)
+            throw new SkriptParserException("Can't compile an invalid pattern");
+        return new CompiledPattern(element);
+    }
+
+    /**
+     * @return the {@link PatternElement} this pattern was compiled from
+     */
+    public PatternElement getElement() {
+        return element;
+    }
+
+    /**
+     * @return the pattern in string form
+     */
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @param patternIndex the index inside of the pattern, as in {@link MatchContext#getPatternIndex()}
+     * @return what could possibly be found in a string from the given index onwards
+     * @see PatternElement#getPossibleInputs(List)
+     */
+    public List<PatternElement> getPossibleInputs(int patternIndex) {
+        return possibleInputs.get(patternIndex);
+    }
+
+    /**
+     * @param patternIndex the index inside of the pattern, as in {@link MatchContext#getPatternIndex()}
+     * @return whether everything that could be found from the given index onwards is plain text
+     */
+    public boolean hasOnlyTextInputs(int patternIndex) {
+        return textOnly[patternIndex];
+    }
+
+    /**
+     * A cheap check, used to skip patterns that couldn't possibly match a string. A return value of {@code true}
+     * does not mean the pattern matches, only that it should be tried.
+     * @param s the string
+     * @return whether all the mandatory text of this pattern is present inside of the string
+     */
+    public boolean mayMatch(String s) {
+        for (String anchor : anchors) {
+            if (!containsIgnoreCase(s, anchor))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * The words a string matching this pattern could start with. A string can only match this pattern if its first word
+     * starts with one of these, ignoring case.
+     * @return the leading keywords of this pattern, in lowercase, or {@literal null} if this pattern starts with an
+     * expression or a regex, and could therefore start with anything
+     */
+    @Nullable
+    public Set<String> getLeadingKeywords() {
+        return leadingKeywords;
+    }
+
+    /**
+     * Attempts to match this pattern against a string
+     * @param s the string
+     * @param index the index to start matching at
+     * @param context the context to match with
+     * @return the index at which the matching stopped, or {@literal -1} if it failed
+     * @see PatternElement#match(String, int, MatchContext)
+     */
+    public int match(String s, int index, MatchContext context) {
+        return element.match(s, index, context);
+    }
+
+    private static final int LEADING_EMPTY = 0, LEADING_TERMINATED = 1, LEADING_ANY = 2;
+
+    /**
+     * Collects the first words of the given sequence of elements
+     * @param elements the elements
+     * @param keywords the set the words are added to
+     * @return {@link #LEADING_TERMINATED} if a word was found in all cases, {@link #LEADING_ANY} if the sequence could
+     * start with anything, and {@link #LEADING_EMPTY} if the sequence could match nothing at all
+     */
+    private static int collectLeadingKeywords(List<PatternElement> elements, Set<String> keywords) {
+        for (PatternElement element : elements) {
+            if (element instanceof TextElement) {
+                String text = ((TextElement) element).getText().trim();
+                if (text.isEmpty())
+                    continue;
+                int end = 0;
+                while (end < text.length() && !Character.isWhitespace(text.charAt(end)))
+                    end++;
+                keywords.add(text.substring(0, end).toLowerCase(Locale.ENGLISH));
+                return LEADING_TERMINATED;
+            } else if (element instanceof OptionalGroup) {
+                int result = collectLeadingKeywords(PatternElement.flatten(((OptionalGroup) element).getElement()), keywords);
+                if (result == LEADING_ANY)
+                    return LEADING_ANY;
+            } else if (element instanceof ChoiceGroup) {
+                boolean canBeEmpty = false;
+                for (ChoiceElement choice : ((ChoiceGroup) element).getChoices()) {
+                    int result = collectLeadingKeywords(PatternElement.flatten(choice.getElement()), keywords);
+                    if (result == LEADING_ANY) {
+                        return LEADING_ANY;
+                    } else if (result == LEADING_EMPTY) {
+                        canBeEmpty = true;
+                    }
+                }
+                if (!canBeEmpty)
+                    return LEADING_TERMINATED;
+            } else { // Expressions and regexes could start with anything
+                return LEADING_ANY;
+            }
+        }
+        return LEADING_EMPTY;
+    }
+
+    private static boolean containsIgnoreCase(String s, String text) {
+        int max = s.length() - text.length();
+        for (int i = 0; i <= max; i++) {
+            if (s.regionMatches(true, i, text, 0, text.length()))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
@@ -42,7 +42,7 @@ public class CompoundElement implements PatternElement {
     public int match(String s, int index, MatchContext parser) {
         int i = index;
         for (PatternElement element : elements) {
-            if (parser.getOriginalElement().equals(this))
+            if (parser.isOriginalElement(this))
                 parser.advanceInPattern();
             int m = element.match(s, i, parser);
             if (m == -1) {
@@ -6,6 +6,7 @@ import io.github.syst3ms.skriptparser.lang.Variable;
 import io.github.syst3ms.skriptparser.lang.VariableString;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.parsing.MatchContext;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
 import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
 import io.github.syst3ms.skriptparser.types.PatternType;
 import io.github.syst3ms.skriptparser.util.StringUtils;
@@ -25,11 +26,13 @@ import java.util.regex.Matcher;
  */
 public class ExpressionElement implements PatternElement {
     private List<PatternType<?>> types;
+    private PatternType<?>[] typeArray;
     private Acceptance acceptance;
     private boolean nullable, acceptsConditional;
 
     public ExpressionElement(List<PatternType<?>> types, Acceptance acceptance, boolean nullable, boolean acceptsConditional) {
         this.types = types;
+        this.typeArray = types.toArray(new PatternType<?>[0]);
         this.acceptance = acceptance;
         this.nullable = nullable;
         this.acceptsConditional = acceptsConditional;
@@ -37,16 +40,16 @@ public class ExpressionElement implements PatternElement {
 
     @Override
     public int match(String s, int index, MatchContext parser) {
-        if (parser.getOriginalElement().equals(this))
+        if (parser.isOriginalElement(this))
             parser.advanceInPattern();
-        PatternType<?>[] typeArray = types.toArray(new PatternType<?>[0]);
         if (index >= s.length()) {
             return -1;
         }
+        ParserState parserState = parser.getParserState();
         SkriptLogger logger = parser.getLogger();
-        List<PatternElement> flattened = PatternElement.flatten(parser.getOriginalElement());
+        CompiledPattern pattern = parser.getCompiledPattern();
         // We look at what could possibly be after the expression in the current syntax
-        List<PatternElement> possibleInputs = PatternElement.getPossibleInputs(flattened.subList(parser.getPatternIndex(), flattened.size()));
+        List<PatternElement> possibleInputs = parser.getPossibleInputs();
         for (PatternElement possibleInput : possibleInputs) {  // We iterate over those possibilities
             if (possibleInput instanceof TextElement) {
                 String text = ((TextElement) possibleInput).getText();
@@ -56,7 +59,7 @@ public class ExpressionElement implements PatternElement {
                     if (index == 0)
                         return -1;
                     String toParse = s.substring(index).trim();
-                    Expression<?> expression = parse(toParse, typeArray, logger);
+                    Expression<?> expression = parse(toParse, typeArray, parserState, logger);
                     if (expression != null) {
                         parser.addExpression(expression);
                         return index + toParse.length();
@@ -66,7 +69,7 @@ public class ExpressionElement implements PatternElement {
                 int i = StringUtils.indexOfIgnoreCase(s, text, index);
                 while (i != -1) {
                     String toParse = s.substring(index, i).trim();
-                    Expression<?> expression = parse(toParse, typeArray, logger);
+                    Expression<?> expression = parse(toParse, typeArray, parserState, logger);
                     if (expression != null) {
                         parser.addExpression(expression);
                         return index + toParse.length();
@@ -83,7 +86,7 @@ public class ExpressionElement implements PatternElement {
                     String toParse = s.substring(index, i);
                     if (toParse.length() == parser.getOriginalPattern().length())
                         continue;
-                    Expression<?> expression = parse(toParse, typeArray, logger);
+                    Expression<?> expression = parse(toParse, typeArray, parserState, logger);
                     if (expression != null) {
                         parser.addExpression(expression);
                         return index + toParse.length();
@@ -91,10 +94,10 @@ public class ExpressionElement implements PatternElement {
                 }
             } else {
                 assert possibleInput instanceof ExpressionElement;
-                List<PatternElement> nextPossibleInputs = PatternElement.getPossibleInputs(flattened.subList(parser.getPatternIndex() + 1, flattened.size()));
-                if (nextPossibleInputs.stream().anyMatch(pe -> !(pe instanceof TextElement))) {
+                if (!pattern.hasOnlyTextInputs(parser.getPatternIndex() + 1)) {
                     continue;
                 }
+                List<PatternElement> nextPossibleInputs = pattern.getPossibleInputs(parser.getPatternIndex() + 1);
                 for (PatternElement nextPossibleInput : nextPossibleInputs) {
                     String text = ((TextElement) nextPossibleInput).getText();
                     if (text.equals("")) {
@@ -104,7 +107,7 @@ public class ExpressionElement implements PatternElement {
                             int i = StringUtils.indexOfIgnoreCase(s, split, index);
                             if (i != -1) {
                                 String toParse = s.substring(index, i);
-                                Expression<?> expression = parse(toParse, typeArray, logger);
+                                Expression<?> expression = parse(toParse, typeArray, parserState, logger);
                                 if (expression != null) {
                                     parser.addExpression(expression);
                                     return index + toParse.length();
@@ -123,7 +126,7 @@ public class ExpressionElement implements PatternElement {
                             int i = StringUtils.indexOfIgnoreCase(s, split, index);
                             if (i != -1) {
                                 String toParse = s.substring(index, i);
-                                Expression<?> expression = parse(toParse, typeArray, logger);
+                                Expression<?> expression = parse(toParse, typeArray, parserState, logger);
                                 if (expression != null) {
                                     parser.addExpression(expression);
                                     return index + toParse.length();
@@ -167,17 +170,19 @@ public class ExpressionElement implements PatternElement {
     }
 
     @SuppressWarnings("unchecked")
-    private <T> Expression<? extends T> parse(String s, PatternType<?>[] types, SkriptLogger logger) {
+    private <T> Expression<? extends T> parse(String s, PatternType<?>[] types, ParserState parserState, SkriptLogger logger) {
         for (PatternType<?> type : types) {
             Expression<? extends T> expression;
             if (type.equals(SyntaxParser.BOOLEAN_PATTERN_TYPE)) {
                 // NOTE : conditions call parseBooleanExpression straight away
                 expression = (Expression<? extends T>) SyntaxParser.parseBooleanExpression(
                         s,
-                        acceptsConditional ? SyntaxParser.MAYBE_CONDITIONAL : SyntaxParser.NOT_CONDITIONAL, logger
+                        acceptsConditional ? SyntaxParser.MAYBE_CONDITIONAL : SyntaxParser.NOT_CONDITIONAL,
+                        parserState,
+                        logger
                 );
             } else {
-                expression = SyntaxParser.parseExpression(s, (PatternType<T>) type, logger);
+                expression = SyntaxParser.parseExpression(s, (PatternType<T>) type, parserState, logger);
             }
             if (expression == null)
                 continue;
@@ -30,7 +30,7 @@ public class OptionalGroup implements PatternElement {
 
     @Override
     public int match(String s, int index, MatchContext parser) {
-        if (parser.getOriginalElement().equals(this))
+        if (parser.isOriginalElement(this))
             parser.advanceInPattern();
         int m = element.match(s, index, parser);
         return m != -1 ? m : index;
@@ -34,10 +34,9 @@ public class RegexGroup implements PatternElement {
 
     @Override
     public int match(String s, int index, MatchContext parser) {
-        if (parser.getOriginalElement().equals(this))
+        if (parser.isOriginalElement(this))
             parser.advanceInPattern();
-        List<PatternElement> flattened = PatternElement.flatten(parser.getOriginalElement());
-        List<PatternElement> possibleInputs = PatternElement.getPossibleInputs(flattened.subList(parser.getPatternIndex(), flattened.size()));
+        List<PatternElement> possibleInputs = parser.getPossibleInputs();
         for (PatternElement possibleInput : possibleInputs) {
             if (possibleInput instanceof TextElement) {
                 String text = ((TextElement) possibleInput).getText();
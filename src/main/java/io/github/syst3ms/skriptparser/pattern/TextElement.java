@@ -25,7 +25,7 @@ public class TextElement implements PatternElement {
     @Override
     public int match(String s, int index, MatchContext parser) {
         int i = index;
-        if (parser.getOriginalElement().equals(this))
+        if (parser.isOriginalElement(this))
             parser.advanceInPattern();
         String trimmed = text.trim();
         // We advance until we reach the first non-whitespace character in s
@@ -6,10 +6,15 @@ import io.github.syst3ms.skriptparser.types.changers.Arithmetic;
 import io.github.syst3ms.skriptparser.types.comparisons.Comparator;
 import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
 import io.github.syst3ms.skriptparser.types.comparisons.Relation;
+import io.github.syst3ms.skriptparser.types.serialization.SerializedOutput;
+import io.github.syst3ms.skriptparser.types.serialization.Serializer;
+import io.github.syst3ms.skriptparser.types.serialization.Serializers;
 import io.github.syst3ms.skriptparser.util.math.BigDecimalMath;
+import io.github.syst3ms.skriptparser.util.math.NumberMath;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 public class DefaultRegistration {
     public static void register() {
@@ -92,64 +97,79 @@ public class DefaultRegistration {
 
                         @Override
                         public Number add(Number value, Number difference) {
-                            if (value instanceof BigDecimal || difference instanceof BigDecimal) {
-                                if (value instanceof BigDecimal && difference instanceof BigDecimal) {
-                                    return ((BigDecimal) value).add(((BigDecimal) difference));
-                                } else if (value instanceof BigDecimal) {
-                                    return ((BigDecimal) value).add(new BigDecimal(difference.toString()));
-                                } else {
-                                    return ((BigDecimal) difference).add(new BigDecimal(value.toString()));
-                                }
-                            } else if (value instanceof Double || difference instanceof Double) {
-                                return value.doubleValue() + difference.doubleValue();
-                            } else if (value instanceof BigInteger || difference instanceof BigInteger) {
-                                if (value instanceof BigInteger && difference instanceof BigInteger) {
-                                    return ((BigInteger) value).add(((BigInteger) difference));
-                                } else if (value instanceof BigInteger) {
-                                    return ((BigInteger) value).add(BigInteger.valueOf(difference.longValue()));
-                                } else {
-                                    return ((BigInteger) difference).add(BigInteger.valueOf(value.longValue()));
-                                }
-                            } else {
-                                return value.longValue() + difference.longValue();
-                            }
+                            return NumberMath.add(value, difference);
                         }
 
                         @Override
                         public Number subtract(Number value, Number difference) {
-                            if (value instanceof BigDecimal || difference instanceof BigDecimal) {
-                                if (value instanceof BigDecimal && difference instanceof BigDecimal) {
-                                    return ((BigDecimal) value).subtract(((BigDecimal) difference));
-                                } else if (value instanceof BigDecimal) {
-                                    return ((BigDecimal) value).subtract(new BigDecimal(difference.toString()));
-                                } else {
-                                    return new BigDecimal(value.toString()).subtract((BigDecimal) difference);
-                                }
-                            } else if (value instanceof Double || difference instanceof Double) {
-                                return value.doubleValue() - difference.doubleValue();
-                            } else if (value instanceof BigInteger || difference instanceof BigInteger) {
-                                if (value instanceof BigInteger && difference instanceof BigInteger) {
-                                    return ((BigInteger) value).subtract(((BigInteger) difference));
-                                } else if (value instanceof BigInteger) {
-                                    return ((BigInteger) value).subtract(BigInteger.valueOf(difference.longValue()));
-                                } else {
-                                    return BigInteger.valueOf(value.longValue()).subtract((BigInteger) difference);
-                                }
-                            } else {
-                                return value.longValue() - difference.longValue();
-                            }
+                            return NumberMath.subtract(value, difference);
                         }
 
                         @Override
                         public Class<? extends Number> getRelativeType() {
                             return Number.class;
                         }
+                    })
+                    .serializer(new Serializer<Number>() {
+                        // Written before each number, to tell which class it is
+                        private static final int LONG = 0, DOUBLE = 1, BIG_INTEGER = 2, BIG_DECIMAL = 3, INTEGER = 4, FLOAT = 5;
+
+                        @Override
+                        public void serialize(Number value, SerializedOutput out) {
+                            if (value instanceof Long) {
+                                out.writeByte(LONG).writeVarLong(value.longValue());
+                            } else if (value instanceof Double) {
+                                out.writeByte(DOUBLE).writeDouble(value.doubleValue());
+                            } else if (value instanceof BigInteger) {
+                                byte[] bytes = ((BigInteger) value).toByteArray();
+                                out.writeByte(BIG_INTEGER).writeVarInt(bytes.length).writeBytes(bytes);
+                            } else if (value instanceof BigDecimal) {
+                                byte[] bytes = ((BigDecimal) value).unscaledValue().toByteArray();
+                                out.writeByte(BIG_DECIMAL).writeVarLong(((BigDecimal) value).scale()).writeVarInt(bytes.length).writeBytes(bytes);
+                            } else if (value instanceof Integer) {
+                                out.writeByte(INTEGER).writeVarLong(value.intValue());
+                            } else if (value instanceof Float) {
+                                out.writeByte(FLOAT).writeDouble(value.floatValue());
+                            } else {
+                                throw new IllegalArgumentException("Unknown number class: " + value.getClass().getName());
+                            }
+                        }
+
+                        @Override
+                        public Number deserialize(ByteBuffer in) {
+                            int tag = in.get();
+                            switch (tag) {
+                                case LONG:
+                                    return Serializers.readVarLong(in);
+                                case DOUBLE:
+                                    return in.getDouble();
+                                case BIG_INTEGER:
+                                    return new BigInteger(Serializers.readBytes(in));
+                                case BIG_DECIMAL:
+                                    int scale = (int) Serializers.readVarLong(in);
+                                    return new BigDecimal(new BigInteger(Serializers.readBytes(in)), scale);
+                                case INTEGER:
+                                    return (int) Serializers.readVarLong(in);
+                                case FLOAT:
+                                    return (float) in.getDouble();
+                                default:
+                                    throw new IllegalArgumentException("Unknown number tag: " + tag);
+                            }
+                        }
                     }).register();
-        registration.addType(
-                String.class,
-                "string",
-                "string¦s"
-        );
+        registration.newType(String.class, "string", "string¦s")
+                    .serializer(new Serializer<String>() {
+                        @Override
+                        public void serialize(String value, SerializedOutput out) {
+                            out.writeString(value);
+                        }
+
+                        @Override
+                        public String deserialize(ByteBuffer in) {
+                            return Serializers.readString(in);
+                        }
+                    })
+                    .register();
         registration.newType(Boolean.class, "boolean", "boolean¦s")
                     .literalParser(s -> {
                         if (s.equalsIgnoreCase("true")) {
@@ -161,6 +181,17 @@ public class DefaultRegistration {
                         }
                     })
                     .toStringFunction(String::valueOf)
+                    .serializer(new Serializer<Boolean>() {
+                        @Override
+                        public void serialize(Boolean value, SerializedOutput out) {
+                            out.writeByte(value ? 1 : 0);
+                        }
+
+                        @Override
+                        public Boolean deserialize(ByteBuffer in) {
+                            return in.get() != 0;
+                        }
+                    })
                     .register();
         registration.register();
         Comparators.registerComparator(
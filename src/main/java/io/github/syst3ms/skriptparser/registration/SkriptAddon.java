@@ -23,5 +23,14 @@ public abstract class SkriptAddon {
 
     public abstract void handleTrigger(Trigger trigger);
 
+    /**
+     * Called when a trigger is removed, because the script it comes from was reloaded or unloaded. Every addon is
+     * told about every removed trigger, so triggers that were never {@linkplain #handleTrigger(Trigger) handled} by
+     * this addon should simply be ignored.
+     * @param trigger the removed trigger
+     * @see io.github.syst3ms.skriptparser.parsing.ScriptLoader#reloadScript(java.io.File, boolean)
+     */
+    public void unloadTrigger(Trigger trigger) {}
+
     public void finishedLoading() {}
 }
@@ -0,0 +1,108 @@
+package io.github.syst3ms.skriptparser.registration;
+
+import io.github.syst3ms.skriptparser.pattern.CompiledPattern;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An index of {@link SyntaxInfo}s by the first word of their patterns, used to only try the syntaxes that could
+ * possibly match a given string. Syntaxes with a pattern that could start with anything (an expression or a regex) are
+ * always candidates.
+ * @param <T> the type of {@link SyntaxInfo}
+ * @see CompiledPattern#getLeadingKeywords()
+ */
+public class SyntaxIndex<T extends SyntaxInfo<?>> {
+    private final List<T> infos;
+    private final Map<String, BitSet> keywordBuckets = new HashMap<>();
+    private final BitSet fallbackBucket = new BitSet();
+    private final Map<String, T> byClassName = new HashMap<>();
+    /**
+     * All the distinct keyword lengths, in ascending order
+     */
+    private final int[] keywordLengths;
+
+    /**
+     * Builds an index over the given {@link SyntaxInfo}s. Candidates are always returned in the order of this list.
+     * @param infos the infos, usually sorted by {@link SyntaxManager#INFO_COMPARATOR}
+     */
+    public SyntaxIndex(List<T> infos) {
+        this.infos = Collections.unmodifiableList(new ArrayList<>(infos));
+        Set<Integer> lengths = new TreeSet<>();
+        for (int i = 0; i < this.infos.size(); i++) {
+            byClassName.putIfAbsent(this.infos.get(i).getSyntaxClass().getName(), this.infos.get(i));
+            Set<String> keywords = new HashSet<>();
+            boolean fallback = false;
+            for (CompiledPattern pattern : this.infos.get(i).getCompiledPatterns()) {
+                Set<String> leading = pattern.getLeadingKeywords();
+                if (leading == null) {
+                    fallback = true;
+                    break;
+                }
+                keywords.addAll(leading);
+            }
+            if (fallback) {
+                fallbackBucket.set(i);
+                continue;
+            }
+            for (String keyword : keywords) {
+                keywordBuckets.computeIfAbsent(keyword, k -> new BitSet()).set(i);
+                lengths.add(keyword.length());
+            }
+        }
+        this.keywordLengths = lengths.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return all indexed {@link SyntaxInfo}s
+     */
+    public List<T> getAll() {
+        return infos;
+    }
+
+    /**
+     * @param className the {@linkplain Class#getName() name} of a syntax class
+     * @return the first indexed {@link SyntaxInfo} registering that class, or {@literal null} if there is none
+     */
+    @Nullable
+    public T getByClassName(String className) {
+        return byClassName.get(className);
+    }
+
+    /**
+     * Looks up the {@link SyntaxInfo}s that could possibly match a string, based on its first word.
+     * @param s the string
+     * @return a new, mutable set of candidates, iterated in the same order as they were indexed
+     */
+    public Set<T> getCandidates(String s) {
+        BitSet candidates = (BitSet) fallbackBucket.clone();
+        int start = 0;
+        while (start < s.length() && Character.isWhitespace(s.charAt(start)))
+            start++;
+        int end = start;
+        while (end < s.length() && !Character.isWhitespace(s.charAt(end)))
+            end++;
+        for (int length : keywordLengths) {
+            if (start + length > end)
+                break;
+            BitSet bucket = keywordBuckets.get(s.substring(start, start + length).toLowerCase(Locale.ENGLISH));
+            if (bucket != null)
+                candidates.or(bucket);
+        }
+        Set<T> result = new LinkedHashSet<>(candidates.cardinality() * 4 / 3 + 1);
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            result.add(infos.get(i));
+        }
+        return result;
+    }
+}
@@ -3,8 +3,11 @@ package io.github.syst3ms.skriptparser.registration;
 import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.lang.SkriptEvent;
 import io.github.syst3ms.skriptparser.lang.SyntaxElement;
+import io.github.syst3ms.skriptparser.pattern.CompiledPattern;
 import io.github.syst3ms.skriptparser.pattern.PatternElement;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -14,12 +17,18 @@ import java.util.List;
 public class SyntaxInfo<C> {
     private Class<C> c;
     private List<PatternElement> patterns;
+    private List<CompiledPattern> compiledPatterns;
     private int priority;
     private SkriptAddon registerer;
 
     public SyntaxInfo(Class<C> c, List<PatternElement> patterns, int priority, SkriptAddon registerer) {
         this.c = c;
         this.patterns = patterns;
+        List<CompiledPattern> compiled = new ArrayList<>(patterns.size());
+        for (PatternElement pattern : patterns) {
+            compiled.add(CompiledPattern.compile(pattern));
+        }
+        this.compiledPatterns = Collections.unmodifiableList(compiled);
         this.priority = priority;
         this.registerer = registerer;
     }
@@ -28,6 +37,13 @@ public class SyntaxInfo<C> {
         return patterns;
     }
 
+    /**
+     * @return the {@linkplain #getPatterns() patterns} of this syntax, compiled and ready for matching
+     */
+    public List<CompiledPattern> getCompiledPatterns() {
+        return compiledPatterns;
+    }
+
     public Class<C> getSyntaxClass() {
         return c;
     }
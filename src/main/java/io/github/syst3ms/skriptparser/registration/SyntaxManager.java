@@ -7,7 +7,9 @@ import io.github.syst3ms.skriptparser.util.MultiMap;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +25,11 @@ public class SyntaxManager {
     private static List<SyntaxInfo<? extends Effect>> effects = new ArrayList<>();
     private static List<SyntaxInfo<? extends CodeSection>> sections = new ArrayList<>();
     private static List<SkriptEventInfo<?>> triggers = new ArrayList<>();
+    private static SyntaxIndex<ExpressionInfo<?, ?>> expressionIndex = new SyntaxIndex<>(Collections.emptyList());
+    private static SyntaxIndex<SyntaxInfo<? extends Effect>> effectIndex = new SyntaxIndex<>(Collections.emptyList());
+    private static SyntaxIndex<SyntaxInfo<? extends CodeSection>> sectionIndex = new SyntaxIndex<>(Collections.emptyList());
+    private static SyntaxIndex<SkriptEventInfo<?>> triggerIndex = new SyntaxIndex<>(Collections.emptyList());
+    private static Map<Class<?>, ExpressionInfo<?, ?>> expressionsByClass = new HashMap<>();
 
     public static List<SyntaxInfo<? extends CodeSection>> getSections() {
         return sections;
@@ -42,24 +49,68 @@ public class SyntaxManager {
                 expressions.putOne(key, info);
             }
         }
+        List<ExpressionInfo<?, ?>> allExpressions = expressions.getAllValues();
+        allExpressions.sort(INFO_COMPARATOR);
+        expressionIndex = new SyntaxIndex<>(allExpressions);
+        effectIndex = new SyntaxIndex<>(effects);
+        sectionIndex = new SyntaxIndex<>(sections);
+        triggerIndex = new SyntaxIndex<>(triggers);
+        Map<Class<?>, ExpressionInfo<?, ?>> byClass = new HashMap<>();
+        for (ExpressionInfo<?, ?> info : allExpressions) {
+            byClass.putIfAbsent(info.getSyntaxClass(), info);
+        }
+        expressionsByClass = byClass;
     }
 
     public static List<ExpressionInfo<?, ?>> getAllExpressions() {
-        List<ExpressionInfo<?, ?>> expressionInfos = expressions.getAllValues();
-        expressionInfos.sort(INFO_COMPARATOR);
-        return expressionInfos;
+        return new ArrayList<>(expressionIndex.getAll());
+    }
+
+    /**
+     * @param c the class of the {@link Expression}
+     * @return the info this class was registered with, or {@literal null} if it wasn't registered
+     */
+    @Nullable
+    public static ExpressionInfo<?, ?> getExpressionInfo(Class<?> c) {
+        return expressionsByClass.get(c);
     }
 
     @SuppressWarnings("unchecked")
     @Nullable
     public static <E extends Expression<T>, T> ExpressionInfo<E, T> getExpressionExact(Expression<T> expr) {
-        Class<?> c = expr.getSource().getClass();
-        for (ExpressionInfo<?, ?> info : SyntaxManager.getAllExpressions()) {
-            if (info.getSyntaxClass() == c) {
-                return (ExpressionInfo<E, T>) info;
-            }
-        }
-        return null;
+        return (ExpressionInfo<E, T>) getExpressionInfo(expr.getSource().getClass());
+    }
+
+    /**
+     * @return the index of all registered {@link Expression}s
+     * @see SyntaxIndex#getCandidates(String)
+     */
+    public static SyntaxIndex<ExpressionInfo<?, ?>> getExpressionIndex() {
+        return expressionIndex;
+    }
+
+    /**
+     * @return the index of all registered {@link Effect}s
+     * @see SyntaxIndex#getCandidates(String)
+     */
+    public static SyntaxIndex<SyntaxInfo<? extends Effect>> getEffectIndex() {
+        return effectIndex;
+    }
+
+    /**
+     * @return the index of all registered {@link CodeSection}s
+     * @see SyntaxIndex#getCandidates(String)
+     */
+    public static SyntaxIndex<SyntaxInfo<? extends CodeSection>> getSectionIndex() {
+        return sectionIndex;
+    }
+
+    /**
+     * @return the index of all registered {@linkplain io.github.syst3ms.skriptparser.lang.SkriptEvent events}
+     * @see SyntaxIndex#getCandidates(String)
+     */
+    public static SyntaxIndex<SkriptEventInfo<?>> getTriggerIndex() {
+        return triggerIndex;
     }
 
     public static List<SyntaxInfo<? extends Effect>> getEffects() {
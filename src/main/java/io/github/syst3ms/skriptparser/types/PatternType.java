@@ -33,6 +33,11 @@ public class PatternType<T> {
         }
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * type.hashCode() + (single ? 1 : 0);
+    }
+
     @Override
     public String toString() {
         String[] forms = type.getPluralForms();
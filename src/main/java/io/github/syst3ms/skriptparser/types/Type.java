@@ -2,6 +2,7 @@ package io.github.syst3ms.skriptparser.types;
 
 import io.github.syst3ms.skriptparser.types.changers.Arithmetic;
 import io.github.syst3ms.skriptparser.types.changers.Changer;
+import io.github.syst3ms.skriptparser.types.serialization.Serializer;
 import io.github.syst3ms.skriptparser.util.StringUtils;
 import org.jetbrains.annotations.Nullable;
 
@@ -24,6 +25,8 @@ public class Type<T> {
     private Changer<? super T> defaultChanger;
     @Nullable
     private Arithmetic<T, ?> arithmetic;
+    @Nullable
+    private Serializer<T> serializer;
 
     /**
      * Constructs a new Type.
@@ -95,7 +98,6 @@ public class Type<T> {
         this(typeClass, baseName, pattern, literalParser, toStringFunction, defaultChanger, null);
     }
 
-    @SuppressWarnings("unchecked")
     public Type(Class<T> typeClass,
                 String baseName,
                 String pattern,
@@ -103,6 +105,18 @@ public class Type<T> {
                 Function<? super T, String> toStringFunction,
                 @Nullable Changer<? super T> defaultChanger,
                 @Nullable Arithmetic<T, ?> arithmetic) {
+        this(typeClass, baseName, pattern, literalParser, toStringFunction, defaultChanger, arithmetic, null);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Type(Class<T> typeClass,
+                String baseName,
+                String pattern,
+                @Nullable Function<String, ? extends T> literalParser,
+                Function<? super T, String> toStringFunction,
+                @Nullable Changer<? super T> defaultChanger,
+                @Nullable Arithmetic<T, ?> arithmetic,
+                @Nullable Serializer<T> serializer) {
         this.typeClass = typeClass;
         this.baseName = baseName;
         this.literalParser = literalParser;
@@ -110,6 +124,7 @@ public class Type<T> {
         this.pluralForms = StringUtils.getForms(pattern.trim());
         this.defaultChanger = defaultChanger;
         this.arithmetic = arithmetic;
+        this.serializer = serializer;
     }
 
     @Nullable
@@ -165,4 +180,9 @@ public class Type<T> {
     public Arithmetic<T, ?> getArithmetic() {
         return arithmetic;
     }
+
+    @Nullable
+    public Serializer<T> getSerializer() {
+        return serializer;
+    }
 }
\ No newline at end of file
@@ -6,9 +6,11 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -24,6 +26,10 @@ public class Comparators {
 
     private static final Collection<ComparatorInfo<?, ?>> comparators = new ArrayList<>();
 
+    public static Collection<ComparatorInfo<?, ?>> getComparators() {
+        return Collections.unmodifiableCollection(comparators);
+    }
+
     /**
      * Registers a {@link Comparator}.
      *
@@ -54,17 +60,21 @@ public class Comparators {
         return javaComparator;
     }
 
-    private final static Map<Pair<Class<?>, Class<?>>, Comparator<?, ?>> comparatorsQuickAccess = new HashMap<>();
+    /**
+     * An empty {@link Optional} denotes the nonexistence of a comparator
+     */
+    private final static Map<Pair<Class<?>, Class<?>>, Optional<Comparator<?, ?>>> comparatorsQuickAccess = new ConcurrentHashMap<>();
 
     @SuppressWarnings("unchecked")
     @Nullable
     public static <F, S> Comparator<? super F, ? super S> getComparator(Class<F> f, Class<S> s) {
         Pair<Class<?>, Class<?>> p = new Pair<>(f, s);
-        if (comparatorsQuickAccess.containsKey(p))
-            return (Comparator<? super F, ? super S>) comparatorsQuickAccess.get(p);
-        Comparator<?, ?> comp = getComparator_i(f, s);
-        comparatorsQuickAccess.put(p, comp);
-        return (Comparator<? super F, ? super S>) comp;
+        Optional<Comparator<?, ?>> cached = comparatorsQuickAccess.get(p);
+        if (cached == null) {
+            cached = Optional.ofNullable(getComparator_i(f, s));
+            comparatorsQuickAccess.putIfAbsent(p, cached);
+        }
+        return (Comparator<? super F, ? super S>) cached.orElse(null);
     }
 
     @SuppressWarnings("unchecked")
@@ -29,9 +29,10 @@ import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 /**
@@ -245,7 +246,10 @@ public abstract class Converters {
         return l.toArray((T[]) Array.newInstance(superType, l.size()));
     }
 
-    private final static Map<Pair<Class<?>, Class<?>>, Function<?, ?>> convertersCache = new HashMap<>();
+    /**
+     * An empty {@link Optional} denotes the nonexistence of a converter
+     */
+    private final static Map<Pair<Class<?>, Class<?>>, Optional<Function<?, ?>>> convertersCache = new ConcurrentHashMap<>();
 
     /**
 	 * Tests whether a converter between the given classes exists.
@@ -278,11 +282,12 @@ public abstract class Converters {
     @SuppressWarnings("unchecked")
     public static <F, T> Function<? super F, ? extends T> getConverter(Class<F> from, Class<T> to) {
         Pair<Class<?>, Class<?>> p = new Pair<>(from, to);
-        if (convertersCache.containsKey(p)) // can contain null to denote nonexistence of a converter
-            return (Function<? super F, ? extends T>) convertersCache.get(p);
-        Function<? super F, ? extends T> c = getConverter_i(from, to);
-        convertersCache.put(p, c);
-        return c;
+        Optional<Function<?, ?>> cached = convertersCache.get(p);
+        if (cached == null) {
+            cached = Optional.ofNullable(getConverter_i(from, to));
+            convertersCache.putIfAbsent(p, cached);
+        }
+        return (Function<? super F, ? extends T>) cached.orElse(null);
     }
 
     @SuppressWarnings("unchecked")
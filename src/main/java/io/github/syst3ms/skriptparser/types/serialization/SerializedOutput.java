@@ -0,0 +1,110 @@
+package io.github.syst3ms.skriptparser.types.serialization;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A growable buffer that {@link Serializer}s write to. Besides raw bytes, it writes integers as variable-length
+ * integers, which take less space the closer they are to zero, and strings as their length followed by their UTF-8 bytes.
+ * Everything written here can be read back using the methods of {@link Serializers}.
+ */
+public final class SerializedOutput {
+    private byte[] bytes;
+    private int size;
+
+    public SerializedOutput() {
+        this(32);
+    }
+
+    public SerializedOutput(int capacity) {
+        this.bytes = new byte[capacity];
+    }
+
+    private void ensureCapacity(int extra) {
+        if (size + extra > bytes.length)
+            bytes = Arrays.copyOf(bytes, Math.max(size + extra, bytes.length * 2));
+    }
+
+    public SerializedOutput writeByte(int b) {
+        ensureCapacity(1);
+        bytes[size++] = (byte) b;
+        return this;
+    }
+
+    public SerializedOutput writeBytes(byte[] b) {
+        ensureCapacity(b.length);
+        System.arraycopy(b, 0, bytes, size, b.length);
+        size += b.length;
+        return this;
+    }
+
+    /**
+     * Writes an integer that is assumed not to be negative, such as a length, in 1 to 5 bytes
+     * @param i the integer
+     * @return this output
+     * @see Serializers#readVarInt(java.nio.ByteBuffer)
+     */
+    public SerializedOutput writeVarInt(int i) {
+        ensureCapacity(5);
+        while ((i & ~0x7F) != 0) {
+            bytes[size++] = (byte) ((i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        bytes[size++] = (byte) i;
+        return this;
+    }
+
+    /**
+     * Writes any integer in 1 to 10 bytes, small negative integers being as short as small positive ones
+     * @param l the integer
+     * @return this output
+     * @see Serializers#readVarLong(java.nio.ByteBuffer)
+     */
+    public SerializedOutput writeVarLong(long l) {
+        ensureCapacity(10);
+        long zigzag = (l << 1) ^ (l >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            bytes[size++] = (byte) ((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        bytes[size++] = (byte) zigzag;
+        return this;
+    }
+
+    public SerializedOutput writeLong(long l) {
+        ensureCapacity(8);
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            bytes[size++] = (byte) (l >>> shift);
+        }
+        return this;
+    }
+
+    public SerializedOutput writeDouble(double d) {
+        return writeLong(Double.doubleToRawLongBits(d));
+    }
+
+    /**
+     * @param s the string
+     * @return this output
+     * @see Serializers#readString(java.nio.ByteBuffer)
+     */
+    public SerializedOutput writeString(String s) {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(b.length);
+        return writeBytes(b);
+    }
+
+    /**
+     * @return the number of bytes written so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return a copy of the bytes written so far
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.syst3ms.skriptparser.types.serialization;
+
+import java.nio.ByteBuffer;
+
+/**
+ * An interface describing how values of a type are turned into bytes and back, so that they can be stored
+ * @param <T> the type
+ * @see Serializers
+ */
+public interface Serializer<T> {
+    /**
+     * Writes a value
+     * @param value the value
+     * @param out where to write it
+     * @throws IllegalArgumentException if this particular value can't be written
+     */
+    void serialize(T value, SerializedOutput out);
+
+    /**
+     * Reads a value, as it was {@linkplain #serialize(Object, SerializedOutput) written}. The buffer is positioned at the
+     * start of the value, and should be left positioned at its end.
+     * @param in the buffer to read from
+     * @return the value
+     * @throws IllegalArgumentException if the bytes don't make up a valid value
+     */
+    T deserialize(ByteBuffer in);
+}
@@ -0,0 +1,148 @@
+package io.github.syst3ms.skriptparser.types.serialization;
+
+import io.github.syst3ms.skriptparser.types.Type;
+import io.github.syst3ms.skriptparser.types.TypeManager;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Turns values into bytes and back, using the {@link Serializer} of their {@link Type}. The bytes start with the name
+ * of the type, so that they can be read back without knowing it in advance.
+ */
+@SuppressWarnings("unchecked")
+public class Serializers {
+
+    /**
+     * @param value a value
+     * @return whether the type of that value has a {@link Serializer}. Some values may still fail to be serialized.
+     */
+    public static boolean isSerializable(Object value) {
+        Type<?> type = TypeManager.getByClass(value.getClass());
+        return type != null && type.getSerializer() != null;
+    }
+
+    /**
+     * Serializes a value
+     * @param value the value
+     * @param out where to write it
+     * @return whether the value could be written. Nothing is written if it couldn't.
+     */
+    public static boolean serialize(Object value, SerializedOutput out) {
+        SerializedOutput valueOut = new SerializedOutput();
+        if (!write(value, valueOut))
+            return false;
+        out.writeBytes(valueOut.toByteArray());
+        return true;
+    }
+
+    /**
+     * @param value a value
+     * @return the value serialized, or {@literal null} if it can't be
+     * @see #serialize(Object, SerializedOutput)
+     */
+    @Nullable
+    public static byte[] serialize(Object value) {
+        SerializedOutput out = new SerializedOutput();
+        return write(value, out) ? out.toByteArray() : null;
+    }
+
+    private static boolean write(Object value, SerializedOutput out) {
+        Type<?> type = TypeManager.getByClass(value.getClass());
+        Serializer<Object> serializer = type == null ? null : (Serializer<Object>) type.getSerializer();
+        if (serializer == null)
+            return false;
+        out.writeString(type.getBaseName());
+        try {
+            serializer.serialize(value, out);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a value that was {@linkplain #serialize(Object, SerializedOutput) serialized}, without copying the buffer
+     * @param in the buffer, positioned at the start of the value, and left positioned at its end
+     * @return the value
+     * @throws IllegalArgumentException if the value can't be read, because its type isn't registered anymore, or doesn't
+     * have a serializer anymore, or the bytes are invalid
+     */
+    public static Object deserialize(ByteBuffer in) {
+        try {
+            String name = readString(in);
+            Type<?> type = TypeManager.getByExactName(name);
+            if (type == null || type.getSerializer() == null)
+                throw new IllegalArgumentException("The type '" + name + "' can't be deserialized");
+            return type.getSerializer().deserialize(in);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The value is truncated", e);
+        }
+    }
+
+    /**
+     * @param in a buffer
+     * @return an integer written with {@link SerializedOutput#writeVarInt(int)}
+     */
+    public static int readVarInt(ByteBuffer in) {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.get();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return result;
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    /**
+     * @param in a buffer
+     * @return an integer written with {@link SerializedOutput#writeVarLong(long)}
+     */
+    public static long readVarLong(ByteBuffer in) {
+        long zigzag = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    /**
+     * @param in a buffer
+     * @return a string written with {@link SerializedOutput#writeString(String)}
+     */
+    public static String readString(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length < 0 || length > in.remaining())
+            throw new IllegalArgumentException("Malformed string length: " + length);
+        String s;
+        if (in.hasArray()) {
+            s = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            byte[] bytes = new byte[length];
+            in.duplicate().get(bytes);
+            s = new String(bytes, StandardCharsets.UTF_8);
+        }
+        in.position(in.position() + length);
+        return s;
+    }
+
+    /**
+     * @param in a buffer
+     * @return bytes written with {@link SerializedOutput#writeVarInt(int) their length} followed by
+     * {@link SerializedOutput#writeBytes(byte[]) themselves}
+     */
+    public static byte[] readBytes(ByteBuffer in) {
+        int length = readVarInt(in);
+        if (length < 0 || length > in.remaining())
+            throw new IllegalArgumentException("Malformed length: " + length);
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+}
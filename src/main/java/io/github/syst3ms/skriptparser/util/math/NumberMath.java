@@ -13,6 +13,68 @@ public class NumberMath {
     private static final BigDecimal RADIANS_TO_DEGREES = new BigDecimal(180).divide(BigDecimalMath.PI, BigDecimalMath.DEFAULT_CONTEXT);
     private static final BigDecimal DEGREES_TO_RADIANS = BigDecimalMath.PI.divide(new BigDecimal(180), BigDecimalMath.DEFAULT_CONTEXT);
 
+    /**
+     * Adds two numbers. The result is a {@link BigDecimal} if either of them is one, otherwise a {@link Double} if either
+     * of them is one, otherwise a {@link BigInteger} if either of them is one or if the sum doesn't fit in a {@code long},
+     * and a {@link Long} otherwise.
+     */
+    public static Number add(Number value, Number difference) {
+        if (value instanceof BigDecimal || difference instanceof BigDecimal) {
+            if (value instanceof BigDecimal && difference instanceof BigDecimal) {
+                return ((BigDecimal) value).add(((BigDecimal) difference));
+            } else if (value instanceof BigDecimal) {
+                return ((BigDecimal) value).add(new BigDecimal(difference.toString()));
+            } else {
+                return ((BigDecimal) difference).add(new BigDecimal(value.toString()));
+            }
+        } else if (value instanceof Double || difference instanceof Double) {
+            return value.doubleValue() + difference.doubleValue();
+        } else if (value instanceof BigInteger || difference instanceof BigInteger) {
+            if (value instanceof BigInteger && difference instanceof BigInteger) {
+                return ((BigInteger) value).add(((BigInteger) difference));
+            } else if (value instanceof BigInteger) {
+                return ((BigInteger) value).add(BigInteger.valueOf(difference.longValue()));
+            } else {
+                return ((BigInteger) difference).add(BigInteger.valueOf(value.longValue()));
+            }
+        } else {
+            long a = value.longValue(), b = difference.longValue(), sum = a + b;
+            if (((a ^ sum) & (b ^ sum)) < 0) // Overflow
+                return BigInteger.valueOf(a).add(BigInteger.valueOf(b));
+            return sum;
+        }
+    }
+
+    /**
+     * Subtracts a number from another. The class of the result is chosen the same way as in {@link #add(Number, Number)}.
+     */
+    public static Number subtract(Number value, Number difference) {
+        if (value instanceof BigDecimal || difference instanceof BigDecimal) {
+            if (value instanceof BigDecimal && difference instanceof BigDecimal) {
+                return ((BigDecimal) value).subtract(((BigDecimal) difference));
+            } else if (value instanceof BigDecimal) {
+                return ((BigDecimal) value).subtract(new BigDecimal(difference.toString()));
+            } else {
+                return new BigDecimal(value.toString()).subtract((BigDecimal) difference);
+            }
+        } else if (value instanceof Double || difference instanceof Double) {
+            return value.doubleValue() - difference.doubleValue();
+        } else if (value instanceof BigInteger || difference instanceof BigInteger) {
+            if (value instanceof BigInteger && difference instanceof BigInteger) {
+                return ((BigInteger) value).subtract(((BigInteger) difference));
+            } else if (value instanceof BigInteger) {
+                return ((BigInteger) value).subtract(BigInteger.valueOf(difference.longValue()));
+            } else {
+                return BigInteger.valueOf(value.longValue()).subtract((BigInteger) difference);
+            }
+        } else {
+            long a = value.longValue(), b = difference.longValue(), result = a - b;
+            if (((a ^ b) & (a ^ result)) < 0) // Overflow
+                return BigInteger.valueOf(a).subtract(BigInteger.valueOf(b));
+            return result;
+        }
+    }
+
     public static Number abs(Number n) {
         if (n instanceof Long) {
             return Math.abs(n.longValue());
@@ -0,0 +1,238 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * The default {@link VariableStore}, which keeps variables in memory. Variables are split into stripes according to the first part of their name, such that a variable and all
+ * of the elements of the list it may be part of always end up in the same stripe, and each stripe has its own lock.
+ * <br>
+ * Because the lists returned by {@link VariableMap#getVariable(String)} reflect later changes to them, this map returns
+ * copies of them instead, in the same order, taken while no other thread could change them.
+ */
+public class ConcurrentVariableMap implements VariableStore {
+    private static final int STRIPES = 64;
+
+    private final VariableMap[] stripes = new VariableMap[STRIPES];
+    @Nullable
+    private volatile BiConsumer<String, Object> changeListener;
+
+    public ConcurrentVariableMap() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new VariableMap();
+            stripes[i].setEvictionListener(name -> notifyChange(name, null));
+        }
+    }
+
+    @Nullable
+    @Override
+    public Object getVariable(String name) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            Object value = stripe.getVariable(name);
+            return value instanceof Map ? copy((Map<?, ?>) value) : value;
+        }
+    }
+
+    @Override
+    public void setVariable(String name, @Nullable Object value) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            stripe.setVariable(name, value);
+            notifyChange(name, value);
+        }
+    }
+
+    @Nullable
+    @Override
+    public Object changeVariable(String name, UnaryOperator<Object> change) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            Object value = change.apply(stripe.getVariable(name));
+            stripe.setVariable(name, value);
+            notifyChange(name, value);
+            return value;
+        }
+    }
+
+    @Override
+    public boolean addNumber(String name, Number difference, boolean subtract) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            if (!stripe.addNumber(name, difference, subtract))
+                return false;
+            if (changeListener != null)
+                notifyChange(name, stripe.getVariable(name));
+            return true;
+        }
+    }
+
+    @Override
+    public void addToList(String name, Object[] values) {
+        String prefix = name.substring(0, name.length() - 1);
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            for (Object value : values) {
+                int index = stripe.addToList(name, value);
+                if (changeListener != null)
+                    notifyChange(prefix + index, value);
+            }
+        }
+    }
+
+    @Override
+    public void removeFromList(String name, Object value, boolean all) {
+        String prefix = name.substring(0, name.length() - 1);
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            for (String key : stripe.removeFromList(name, value, all)) {
+                if (changeListener != null)
+                    notifyChange(prefix + key, stripe.getVariable(prefix + key));
+            }
+        }
+    }
+
+    @Override
+    public int countInList(String name, Object value) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            return stripe.countInList(name, value);
+        }
+    }
+
+    @Override
+    public int listSize(String name) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            return stripe.listSize(name);
+        }
+    }
+
+    @Override
+    public boolean limitList(String name, int capacity, long timeToLive, TimeUnit unit) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            stripe.limitList(name, capacity, timeToLive, unit);
+            return true;
+        }
+    }
+
+    @Override
+    public Number listSum(String name) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            return stripe.listSum(name);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * The iterator locks the list each time it reads from it, so that it doesn't need to copy it.
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> iterateList(String name) {
+        VariableMap stripe = stripeOf(name);
+        Iterator<Map.Entry<String, Object>> iterator;
+        synchronized (stripe) {
+            iterator = stripe.iterateList(name);
+        }
+        return new Iterator<Map.Entry<String, Object>>() {
+            @Override
+            public boolean hasNext() {
+                synchronized (stripe) {
+                    return iterator.hasNext();
+                }
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                synchronized (stripe) {
+                    return iterator.next();
+                }
+            }
+        };
+    }
+
+    @Override
+    public List<Map.Entry<String, Object>> sortedElements(String name, int count, boolean descending) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            return stripe.sortedElements(name, count, descending);
+        }
+    }
+
+    @Override
+    public List<Map.Entry<String, Object>> elementsBetween(String name, Number from, Number to) {
+        VariableMap stripe = stripeOf(name);
+        synchronized (stripe) {
+            return stripe.elementsBetween(name, from, to);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <br>
+     * The variables of each stripe are copied while it is locked, and the action is performed after it is unlocked.
+     */
+    @Override
+    public void forEach(BiConsumer<String, Object> action) {
+        List<Map.Entry<String, Object>> entries = new ArrayList<>();
+        for (VariableMap stripe : stripes) {
+            synchronized (stripe) {
+                stripe.forEach((name, value) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(name, value)));
+            }
+            entries.forEach(e -> action.accept(e.getKey(), e.getValue()));
+            entries.clear();
+        }
+    }
+
+    /**
+     * Sets what should be notified of every change made to this map. It is called while the changed variable is locked,
+     * so that changes to the same variable are seen in the order they were made, and it should return quickly.
+     * @param changeListener takes the name of each changed variable and its new value, as in
+     *                       {@link #setVariable(String, Object)}, or {@literal null} to stop notifying anything
+     */
+    public void setChangeListener(@Nullable BiConsumer<String, Object> changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    private void notifyChange(String name, @Nullable Object value) {
+        BiConsumer<String, Object> listener = changeListener;
+        if (listener != null)
+            listener.accept(name, value);
+    }
+
+    private VariableMap stripeOf(String name) {
+        int end = name.indexOf(Variables.LIST_SEPARATOR);
+        int hash = (end == -1 ? name : name.substring(0, end)).hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+
+    /**
+     * Copies the elements of a list. Elements that are lists themselves are only copied along with their own value,
+     * which is all that is read from them through a list, so that the lists below them aren't copied as well.
+     */
+    private static Map<String, Object> copy(Map<?, ?> list) {
+        Map<String, Object> copy = new LinkedHashMap<>(list.size() * 4 / 3 + 1); // keeps the order of the list
+        for (Map.Entry<?, ?> entry : list.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof Map) {
+                Object ownValue = ((Map<?, ?>) value).get(null);
+                value = ownValue != null ? Collections.singletonMap(null, ownValue) : Collections.emptyMap();
+            }
+            copy.put((String) entry.getKey(), value);
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,141 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Maps the values of the elements of a list to their keys, so that the elements equal to a value can be found without
+ * {@linkplain Comparators#compare(Object, Object) comparing} it to each of them.
+ * <br>
+ * Only strings, booleans and numbers are indexed, under a key that is equal for two values exactly when the built-in
+ * comparators consider them equal: numbers are reduced to a {@code long} or a {@link BigDecimal} without trailing zeros.
+ * Values whose equality can't be hashed that way, like {@code 0.0} which is equal to {@code 0} but not to {@code -0.0},
+ * are kept aside and have to be compared one by one.
+ */
+final class ListIndex {
+    /**
+     * Larger {@code long}s can't be compared exactly with {@code double}s, which the number comparator does
+     */
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    /**
+     * Maps index keys to the key of the only element with that value, or to a set of keys
+     */
+    private final Map<Object, Object> keysByValue = new HashMap<>();
+    private final NavigableSet<String> unindexed = new TreeSet<>(VariableMap.KEY_COMPARATOR);
+
+    /**
+     * @param value a value
+     * @return the key the value is indexed under, or {@literal null} if it isn't indexed
+     */
+    @Nullable
+    static Object indexKey(@Nullable Object value) {
+        if (value instanceof String || value instanceof Boolean) {
+            return value;
+        } else if (value instanceof Long) {
+            long l = (Long) value;
+            return l > MAX_EXACT_DOUBLE || l < -MAX_EXACT_DOUBLE ? null : value;
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        } else if (value instanceof Double) {
+            double d = (Double) value;
+            if (d == 0 || Double.isNaN(d) || Double.isInfinite(d) || Math.abs(d) >= MAX_EXACT_DOUBLE)
+                return null;
+            if (d == Math.rint(d))
+                return (long) d;
+            return new BigDecimal(value.toString()).stripTrailingZeros(); // As the number comparator does
+        } else if (value instanceof BigInteger) {
+            BigInteger i = (BigInteger) value;
+            return i.bitLength() < 64 ? (Object) i.longValue() : new BigDecimal(i).stripTrailingZeros();
+        } else if (value instanceof BigDecimal) {
+            BigDecimal d = (BigDecimal) value;
+            if (d.signum() == 0)
+                return 0L;
+            d = d.stripTrailingZeros();
+            if (d.scale() <= 0) {
+                BigInteger i = d.toBigInteger();
+                if (i.bitLength() < 64)
+                    return i.longValue();
+            }
+            return d;
+        }
+        return null;
+    }
+
+    /**
+     * Updates the index after the value of an element changed
+     * @param key the key of the element
+     * @param previous its previous value, which may be a {@link NumberCell}, or {@literal null} if it didn't have one
+     * @param value its new value, which may be a {@link NumberCell}, or {@literal null} if it doesn't have one anymore
+     */
+    void update(String key, @Nullable Object previous, @Nullable Object value) {
+        if (previous != null)
+            remove(key, NumberCell.unwrap(previous));
+        if (value != null)
+            add(key, NumberCell.unwrap(value));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void add(String key, Object value) {
+        Object indexKey = indexKey(value);
+        if (indexKey == null) {
+            unindexed.add(key);
+            return;
+        }
+        Object keys = keysByValue.putIfAbsent(indexKey, key);
+        if (keys instanceof String) {
+            NavigableSet<String> set = new TreeSet<>(VariableMap.KEY_COMPARATOR);
+            set.add((String) keys);
+            set.add(key);
+            keysByValue.put(indexKey, set);
+        } else if (keys != null) {
+            ((NavigableSet<String>) keys).add(key);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void remove(String key, Object value) {
+        Object indexKey = indexKey(value);
+        if (indexKey == null) {
+            unindexed.remove(key);
+            return;
+        }
+        Object keys = keysByValue.get(indexKey);
+        if (keys instanceof String) {
+            keysByValue.remove(indexKey);
+        } else if (keys != null) {
+            NavigableSet<String> set = (NavigableSet<String>) keys;
+            set.remove(key);
+            if (set.size() == 1)
+                keysByValue.put(indexKey, set.first());
+        }
+    }
+
+    /**
+     * @param indexKey an {@linkplain #indexKey(Object) index key}
+     * @return the keys of the elements indexed under it, in order
+     */
+    @SuppressWarnings("unchecked")
+    Collection<String> keysOf(Object indexKey) {
+        Object keys = keysByValue.get(indexKey);
+        if (keys == null)
+            return Collections.emptySet();
+        return keys instanceof String ? Collections.singleton((String) keys) : (NavigableSet<String>) keys;
+    }
+
+    /**
+     * @return the keys of the elements whose value isn't indexed, in order
+     */
+    NavigableSet<String> unindexedKeys() {
+        return unindexed;
+    }
+}
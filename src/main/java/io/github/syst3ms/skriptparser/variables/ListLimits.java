@@ -0,0 +1,99 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Limits how many elements a list keeps, and for how long, so that lists used as caches don't grow forever.
+ * <br>
+ * Only the elements' own values are limited: once there are more of them than the capacity, the least recently used
+ * one is removed, and values are removed once they have been set for longer than the time to live. Setting or reading
+ * the value of an element counts as using it.
+ * <br>
+ * As every value of a list lives as long as the others, values expire in the order they were set, so the values to
+ * remove are always the first ones of a list ordered by when they were set or used. Each of them is found in constant
+ * time, and is only removed once, so that removing them costs a constant amount of time per value set.
+ */
+final class ListLimits {
+    private final int capacity;
+    private final long timeToLive;
+    /**
+     * The keys of the elements with a value, in the order their value was last set, with the time it was, in
+     * {@linkplain System#nanoTime() nanoseconds}
+     */
+    @Nullable
+    private final LinkedHashMap<String, Long> setTimes;
+    /**
+     * The keys of the elements with a value, from the least recently used to the most recently used one
+     */
+    @Nullable
+    private final LinkedHashMap<String, Boolean> uses;
+
+    /**
+     * @param capacity how many elements can have a value at most, or {@code 0} for no limit
+     * @param timeToLive how long a value is kept after it was set, in nanoseconds, or {@code 0} for no limit
+     */
+    ListLimits(int capacity, long timeToLive) {
+        this.capacity = capacity;
+        this.timeToLive = timeToLive;
+        this.setTimes = timeToLive > 0 ? new LinkedHashMap<>() : null;
+        this.uses = capacity > 0 ? new LinkedHashMap<>(16, 0.75f, true) : null;
+    }
+
+    /**
+     * Takes note of the value of an element changing
+     * @param key the key of the element
+     * @param value its new value, or {@literal null} if it doesn't have one anymore
+     */
+    void update(String key, @Nullable Object value) {
+        if (value == null) {
+            if (setTimes != null)
+                setTimes.remove(key);
+            if (uses != null)
+                uses.remove(key);
+        } else {
+            if (setTimes != null) {
+                setTimes.remove(key); // Moves it to the end
+                setTimes.put(key, System.nanoTime());
+            }
+            if (uses != null)
+                uses.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Takes note of the value of an element being read
+     * @param key the key of the element
+     */
+    void use(String key) {
+        if (uses != null)
+            uses.get(key);
+    }
+
+    /**
+     * @return the key of an element whose value should be removed now, or {@literal null} if there is none
+     */
+    @Nullable
+    String evictable() {
+        if (setTimes != null && !setTimes.isEmpty()) {
+            Map.Entry<String, Long> first = setTimes.entrySet().iterator().next();
+            if (System.nanoTime() - first.getValue() >= timeToLive)
+                return first.getKey();
+        }
+        if (uses != null && uses.size() > capacity)
+            return uses.keySet().iterator().next();
+        return null;
+    }
+
+    /**
+     * Forgets about every element, once they have all been removed
+     */
+    void clear() {
+        if (setTimes != null)
+            setTimes.clear();
+        if (uses != null)
+            uses.clear();
+    }
+}
@@ -0,0 +1,134 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.util.math.NumberMath;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+
+/**
+ * Keeps the sum of the numerical values of the elements of a list, so that it doesn't have to be computed again every
+ * time it is needed.
+ * <br>
+ * The sum is of the same class as if the values had been added one by one with {@link NumberMath#add(Number, Number)}:
+ * a {@link BigDecimal} if any value is one, otherwise a {@code double} if any value is one, otherwise a
+ * {@link BigInteger} if any value is one or the sum doesn't fit in a {@code long}. Values are kept exactly as they are
+ * added and removed, so that removing a value never leaves a rounding error behind; the sum of {@code double}s is only
+ * rounded when it is asked for, which can make it more precise than adding them one by one.
+ */
+final class ListSum {
+    /**
+     * The sum of the integral values, along with {@link #overflow}
+     */
+    private long integral;
+    /**
+     * What didn't fit in {@link #integral}, if anything ever didn't
+     */
+    @Nullable
+    private BigInteger overflow;
+    /**
+     * The exact sum of the finite {@code double}s, as they are written, which is how the number comparator and
+     * {@link NumberMath} see them next to {@link BigDecimal}s
+     */
+    private BigDecimal doubles = BigDecimal.ZERO;
+    private BigDecimal decimals = BigDecimal.ZERO;
+    private int bigIntegerCount, doubleCount, decimalCount;
+    private int nanCount, positiveInfinityCount, negativeInfinityCount;
+
+    /**
+     * @param list the map of a list, as returned by {@link VariableMap#getVariable(String)}, or anything else
+     * @return a new sum of the values of that list, which doesn't follow later changes to it
+     */
+    static ListSum of(@Nullable Object list) {
+        ListSum sum = new ListSum();
+        if (list instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) list).entrySet()) {
+                if (entry.getKey() != null)
+                    sum.update(null, VariableMap.ownValue(entry.getValue()));
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Updates the sum after the value of an element changed
+     * @param previous its previous value, which may be a {@link NumberCell}, or {@literal null} if it didn't have one
+     * @param value its new value, which may be a {@link NumberCell}, or {@literal null} if it doesn't have one anymore
+     */
+    void update(@Nullable Object previous, @Nullable Object value) {
+        previous = NumberCell.unwrap(previous);
+        value = NumberCell.unwrap(value);
+        if (previous instanceof Number)
+            add((Number) previous, -1);
+        if (value instanceof Number)
+            add((Number) value, 1);
+    }
+
+    private void add(Number value, int sign) {
+        if (value instanceof Double || value instanceof Float) {
+            doubleCount += sign;
+            double d = value.doubleValue();
+            if (Double.isNaN(d)) {
+                nanCount += sign;
+            } else if (Double.isInfinite(d)) {
+                if (d > 0) {
+                    positiveInfinityCount += sign;
+                } else {
+                    negativeInfinityCount += sign;
+                }
+            } else if (d != 0) {
+                BigDecimal decimal = new BigDecimal(value.toString());
+                doubles = sign > 0 ? doubles.add(decimal) : doubles.subtract(decimal);
+            }
+        } else if (value instanceof BigDecimal) {
+            decimalCount += sign;
+            decimals = sign > 0 ? decimals.add((BigDecimal) value) : decimals.subtract((BigDecimal) value);
+        } else if (value instanceof BigInteger) {
+            bigIntegerCount += sign;
+            BigInteger i = (BigInteger) value;
+            if (i.bitLength() < 64) {
+                addIntegral(i.longValue(), sign);
+            } else {
+                BigInteger o = overflow != null ? overflow : BigInteger.ZERO;
+                overflow = sign > 0 ? o.add(i) : o.subtract(i);
+            }
+        } else {
+            addIntegral(value.longValue(), sign);
+        }
+    }
+
+    private void addIntegral(long value, int sign) {
+        long result = sign > 0 ? integral + value : integral - value;
+        if (sign > 0 ? ((integral ^ result) & (value ^ result)) < 0 : ((integral ^ value) & (integral ^ result)) < 0) {
+            BigInteger o = overflow != null ? overflow : BigInteger.ZERO;
+            BigInteger v = BigInteger.valueOf(value);
+            overflow = (sign > 0 ? o.add(v) : o.subtract(v)).add(BigInteger.valueOf(integral));
+            integral = 0;
+        } else {
+            integral = result;
+        }
+    }
+
+    /**
+     * @return the sum, which is {@code 0} if there are no numerical values
+     */
+    Number get() {
+        if (nanCount > 0 || positiveInfinityCount > 0 && negativeInfinityCount > 0) {
+            return Double.NaN;
+        } else if (positiveInfinityCount > 0) {
+            return Double.POSITIVE_INFINITY;
+        } else if (negativeInfinityCount > 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        BigInteger integral = overflow != null ? overflow.add(BigInteger.valueOf(this.integral)) : null;
+        if (decimalCount > 0 || doubleCount > 0) {
+            BigDecimal sum = doubles.add(integral != null ? new BigDecimal(integral) : BigDecimal.valueOf(this.integral));
+            return decimalCount > 0 ? decimals.add(sum) : (Number) sum.doubleValue();
+        } else if (bigIntegerCount > 0 || integral != null && integral.bitLength() >= 64) {
+            return integral != null ? integral : BigInteger.valueOf(this.integral);
+        } else {
+            return integral != null ? integral.longValue() : this.integral;
+        }
+    }
+}
@@ -0,0 +1,951 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import io.github.syst3ms.skriptparser.types.comparisons.Relation;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * A {@link VariableStore} that keeps variables in files mapped into memory, instead of on the heap. Variables are there
+ * as soon as the store is opened, without having to be loaded, and the operating system decides which parts of the
+ * files stay in memory, so there can be many more variables than the heap could hold.
+ * <br>
+ * There are two files. The data file is split into fixed-size segments, each mapped separately, from which blocks whose
+ * size is a power of two are allocated, and reused once freed. Each variable has a record block, holding its full name
+ * and links to its parent list and its siblings and children, like the nodes of a {@link VariableMap}, plus a separate
+ * block holding its {@linkplain ValueCodec encoded} value. The index file is an open-addressed hash table from the full
+ * name of each variable to its record, so that getting or setting a variable doesn't depend on how deep it is.
+ * <br>
+ * The record of a list also keeps how many of its elements have a value, and the lowest index that may be free, so that
+ * the size of a list is known and values are added to it without looking at all of its elements. Like those of a
+ * {@link VariableMap}, the {@linkplain #limitList(String, int, long, TimeUnit) limits} and {@linkplain #listSum(String)
+ * sums} of lists are only kept in memory, and don't outlive the store.
+ * <br>
+ * Changes are written to the mapped files directly, and reach the disk whenever the operating system decides to, or when
+ * the store is {@linkplain #close() closed}. A store that wasn't closed properly because the whole system stopped may
+ * be corrupted.
+ */
+public class MappedVariableStore implements VariableStore {
+    private static final String DATA = "variables.data", INDEX = "variables.index";
+    private static final int MAGIC = 0x534B564D; // "SKVM"
+    private static final int VERSION = 3;
+    private static final int SEGMENT_SHIFT = 24;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int MIN_BLOCK_SHIFT = 6;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Data file header
+    private static final int DATA_END = 8, DATA_FREE_LISTS = 16, DATA_START = 256;
+    // Blocks
+    private static final int BLOCK_SHIFT = 0, BLOCK_KIND = 4;
+    private static final int FREE = 0, RECORD = 1, VALUE = 2;
+    private static final int FREE_NEXT = 8, VALUE_BYTES = 8;
+    /**
+     * The largest encoded value that fits in a block
+     */
+    private static final long MAX_VALUE_BYTES = SEGMENT_SIZE - VALUE_BYTES;
+    private static final int PARENT = 8, FIRST_CHILD = 16, PREVIOUS = 24, NEXT = 32, VALUE_OFFSET = 40,
+            VALUE_LENGTH = 48, HASH = 52, KEY_LENGTH = 56, VALUE_COUNT = 60, NEXT_INDEX = 64, KEY = 68;
+    // Index file
+    private static final int INDEX_CAPACITY = 8, INDEX_SIZE = 12, INDEX_TOMBSTONES = 16, SLOTS = 64;
+    private static final long TOMBSTONE = -1;
+
+    private final Path directory;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final MappedFile data;
+    private MappedFile index;
+    private boolean closed;
+    /**
+     * The limits of lists, by the name of the list. Elements of limited lists can only be read while holding the write
+     * lock, as reading them counts as using them.
+     */
+    private final Map<String, ListLimits> limits = new ConcurrentHashMap<>();
+    /**
+     * The sums of the lists they were asked for, by the name of the list, guarded by the write lock
+     */
+    private final Map<String, ListSum> sums = new HashMap<>();
+
+    private MappedVariableStore(Path directory, MappedFile data, MappedFile index) {
+        this.directory = directory;
+        this.data = data;
+        this.index = index;
+    }
+
+    /**
+     * Opens the store kept in a directory, creating it if it doesn't exist yet
+     * @param directory the directory
+     * @return the store
+     * @throws IOException if the store couldn't be read or created
+     */
+    public static MappedVariableStore open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        MappedFile data = new MappedFile(directory.resolve(DATA));
+        MappedFile index = new MappedFile(directory.resolve(INDEX));
+        try {
+            if (data.getInt(0) == 0) {
+                data.putInt(0, MAGIC);
+                data.putInt(4, VERSION);
+                data.putLong(DATA_END, DATA_START);
+                initIndex(index, INITIAL_CAPACITY);
+            } else if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION || index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+                throw new IOException("Unknown variable store format in " + directory);
+            }
+        } catch (IOException e) {
+            data.close();
+            index.close();
+            throw e;
+        }
+        return new MappedVariableStore(directory, data, index);
+    }
+
+    @Nullable
+    @Override
+    public Object getVariable(String name) {
+        if (name.endsWith(Variables.LIST_SEPARATOR + "*")) {
+            String listName = listName(name);
+            Lock locked = lockList(listName);
+            try {
+                long record = find(listName);
+                return record != 0 && data.getLong(record + FIRST_CHILD) != 0 ? readList(record, listName) : null;
+            } finally {
+                locked.unlock();
+            }
+        }
+        int separator = lastSeparator(name);
+        String listName = separator != -1 ? name.substring(0, separator) : null;
+        Lock locked = listName != null ? lockList(listName) : lockRead();
+        try {
+            long record = find(name);
+            Object value = record != 0 ? readValue(record, name) : null;
+            ListLimits listLimits = locked == lock.writeLock() ? limits.get(listName) : null;
+            if (value != null && listLimits != null)
+                listLimits.use(name.substring(separator + Variables.LIST_SEPARATOR.length()));
+            return value;
+        } finally {
+            locked.unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name or the value is too large to be stored, in which case nothing is changed
+     */
+    @Override
+    public void setVariable(String name, @Nullable Object value) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (name.endsWith(Variables.LIST_SEPARATOR + "*")) {
+                if (value != null)
+                    return;
+                long record = find(listName(name));
+                if (record != 0) {
+                    deleteChildren(record);
+                    prune(record);
+                }
+            } else {
+                set(name, value);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the name or the new value is too large to be stored, in which case nothing is
+     * changed
+     */
+    @Nullable
+    @Override
+    public Object changeVariable(String name, UnaryOperator<Object> change) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            long record = find(name);
+            Object value = change.apply(record != 0 ? readValue(record, name) : null);
+            set(name, value);
+            return value;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, Object> action) {
+        List<Map.Entry<String, Object>> entries = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            int capacity = index.getInt(INDEX_CAPACITY);
+            for (int i = 0; i < capacity; i++) {
+                long record = index.getLong(slot(i));
+                if (record == 0 || record == TOMBSTONE || data.getLong(record + VALUE_OFFSET) == 0)
+                    continue;
+                String name = readName(record);
+                Object value = readValue(record, name);
+                if (value != null)
+                    entries.add(new AbstractMap.SimpleImmutableEntry<>(name, value));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        entries.forEach(e -> action.accept(e.getKey(), e.getValue()));
+    }
+
+    /**
+     * Adds values to a list, each at the lowest index from 1 onwards that isn't used yet. The record of the list
+     * remembers the next index that may be free, so adding values one after the other doesn't look at all the previous
+     * ones every time.
+     */
+    /**
+     * @throws IllegalArgumentException if a value is too large to be stored, in which case it and the values after it
+     * aren't added
+     */
+    @Override
+    public void addToList(String name, Object[] values) {
+        String listName = listName(name);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            for (Object value : values) {
+                // Evicting elements may have deleted the list in the meantime
+                long record = findOrCreate(listName);
+                int i = Math.max(data.getInt(record + NEXT_INDEX), 1);
+                while (find(listName + Variables.LIST_SEPARATOR + i) != 0)
+                    i++;
+                // Before setting the value, so that the index is free again if the element is evicted right away
+                data.putInt(record + NEXT_INDEX, i + 1);
+                try {
+                    set(listName + Variables.LIST_SEPARATOR + i, value);
+                } catch (IllegalArgumentException e) {
+                    data.putInt(record + NEXT_INDEX, i);
+                    prune(record);
+                    throw e;
+                }
+            }
+            prune(find(listName)); // In case no value could be stored
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeFromList(String name, Object value, boolean all) {
+        String listName = listName(name);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            evict(listName);
+            long record = find(listName);
+            if (record == 0)
+                return;
+            List<Long> removed = new ArrayList<>();
+            for (Map.Entry<String, Long> child : children(record, listName)) {
+                Object element = readValue(child.getValue(), listName + Variables.LIST_SEPARATOR + child.getKey());
+                if (element != null && Relation.EQUAL.is(Comparators.compare(element, value))) {
+                    removed.add(child.getValue());
+                    if (!all)
+                        break;
+                }
+            }
+            for (long child : removed) {
+                writeValue(child, null);
+                prune(child);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int countInList(String name, Object value) {
+        String listName = listName(name);
+        Lock locked = lockList(listName);
+        try {
+            long record = find(listName);
+            if (record == 0)
+                return 0;
+            int count = 0;
+            for (long child = data.getLong(record + FIRST_CHILD); child != 0; child = data.getLong(child + NEXT)) {
+                if (data.getLong(child + VALUE_OFFSET) != 0
+                        && Relation.EQUAL.is(Comparators.compare(readValue(child, readName(child)), value)))
+                    count++;
+            }
+            return count;
+        } finally {
+            locked.unlock();
+        }
+    }
+
+    /**
+     * @return how many elements of the list have a value, which is kept in the record of the list
+     */
+    @Override
+    public int listSize(String name) {
+        String listName = listName(name);
+        Lock locked = lockList(listName);
+        try {
+            long record = find(listName);
+            return record != 0 ? data.getInt(record + VALUE_COUNT) : 0;
+        } finally {
+            locked.unlock();
+        }
+    }
+
+    /**
+     * Sums the numerical values of a list. Once this has been called, the sum is kept up to date until the list is
+     * deleted or the store is closed, so later calls don't take longer for larger lists.
+     */
+    @Override
+    public Number listSum(String name) {
+        String listName = listName(name);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            evict(listName);
+            long record = find(listName);
+            if (record == 0)
+                return 0L;
+            ListSum sum = sums.get(listName);
+            if (sum == null) {
+                sum = new ListSum();
+                for (long child = data.getLong(record + FIRST_CHILD); child != 0; child = data.getLong(child + NEXT)) {
+                    if (data.getLong(child + VALUE_OFFSET) != 0)
+                        sum.update(null, readValue(child, readName(child)));
+                }
+                sums.put(listName, sum);
+            }
+            return sum.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Iterates over the elements of a list that have a value of their own, in order. The keys of the list are copied,
+     * but not the values, which are read when each element is reached.
+     */
+    @Override
+    public Iterator<Map.Entry<String, Object>> iterateList(String name) {
+        String listName = listName(name);
+        List<String> keys = new ArrayList<>();
+        Lock locked = lockList(listName);
+        try {
+            long record = find(listName);
+            if (record == 0)
+                return Collections.emptyIterator();
+            for (Map.Entry<String, Long> child : children(record, listName)) {
+                keys.add(child.getKey());
+            }
+        } finally {
+            locked.unlock();
+        }
+        Iterator<String> iterator = keys.iterator();
+        return new Iterator<Map.Entry<String, Object>>() {
+            @Nullable
+            private Map.Entry<String, Object> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && iterator.hasNext()) {
+                    String key = iterator.next();
+                    Object value = getVariable(listName + Variables.LIST_SEPARATOR + key);
+                    if (value != null)
+                        next = new AbstractMap.SimpleImmutableEntry<>(key, value);
+                }
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Map.Entry<String, Object> n = next;
+                next = null;
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Limits how many elements a list keeps, and for how long, the same way a {@link VariableMap} does. The limits stay
+     * in place when the list is deleted, until the store is closed.
+     * @return {@code true}, as limits are always enforced
+     * @see ListLimits
+     */
+    @Override
+    public boolean limitList(String name, int capacity, long timeToLive, TimeUnit unit) {
+        String listName = listName(name);
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if (capacity <= 0 && timeToLive <= 0) {
+                limits.remove(listName);
+                return true;
+            }
+            ListLimits listLimits = new ListLimits(Math.max(capacity, 0), Math.max(unit.toNanos(timeToLive), 0));
+            long record = find(listName);
+            if (record != 0) {
+                for (Map.Entry<String, Long> child : children(record, listName)) {
+                    if (data.getLong(child.getValue() + VALUE_OFFSET) != 0)
+                        listLimits.update(child.getKey(), Boolean.TRUE);
+                }
+            }
+            limits.put(listName, listLimits);
+            evict(listName);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes all changes to the disk, and closes the files
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed)
+                return;
+            closed = true;
+            data.close();
+            index.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void checkOpen() {
+        if (closed)
+            throw new IllegalStateException("The variable store in " + directory + " is closed");
+    }
+
+    private static String listName(String name) {
+        return name.substring(0, name.length() - Variables.LIST_SEPARATOR.length() - 1);
+    }
+
+    private Lock lockRead() {
+        Lock locked = lock.readLock();
+        locked.lock();
+        try {
+            checkOpen();
+        } catch (IllegalStateException e) {
+            locked.unlock();
+            throw e;
+        }
+        return locked;
+    }
+
+    /**
+     * Locks the store to read from a list. A limited list is locked for writing instead, as the elements over its limits
+     * are removed before anything is read from it.
+     * @param listName the name of the list, without the trailing {@code ::*}
+     * @return the lock that was taken, to release afterwards
+     */
+    private Lock lockList(String listName) {
+        if (!limits.containsKey(listName))
+            return lockRead();
+        Lock locked = lock.writeLock();
+        locked.lock();
+        try {
+            checkOpen();
+            evict(listName);
+        } catch (RuntimeException e) {
+            locked.unlock();
+            throw e;
+        }
+        return locked;
+    }
+
+    /**
+     * Removes the elements of a list that are over its limits, if it has any
+     */
+    private void evict(String listName) {
+        ListLimits listLimits = limits.get(listName);
+        if (listLimits == null)
+            return;
+        String key;
+        while ((key = listLimits.evictable()) != null) {
+            long record = find(listName + Variables.LIST_SEPARATOR + key);
+            if (record != 0 && data.getLong(record + VALUE_OFFSET) != 0) {
+                writeValue(record, null); // Which tells the limits about it
+                prune(record);
+            } else {
+                listLimits.update(key, null);
+            }
+        }
+    }
+
+    private void set(String name, @Nullable Object value) {
+        byte[] bytes = value == null ? null : ValueCodec.encode(value);
+        if (bytes != null && bytes.length > MAX_VALUE_BYTES)
+            throw new IllegalArgumentException("The value of this variable is too large to be stored (" + bytes.length + " bytes): " + name);
+        if (bytes == null) { // A value that can't be stored deletes the variable, so that an older value doesn't stay around
+            long record = find(name);
+            if (record != 0) {
+                writeValue(record, null);
+                prune(record);
+            }
+        } else {
+            writeValue(findOrCreate(name), bytes);
+        }
+        if (!limits.isEmpty()) {
+            int separator = lastSeparator(name);
+            if (separator != -1)
+                evict(name.substring(0, separator));
+        }
+    }
+
+    /*
+     * Records
+     */
+
+    private long find(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(name);
+        int mask = index.getInt(INDEX_CAPACITY) - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            long record = index.getLong(slot(i));
+            if (record == 0)
+                return 0;
+            if (record != TOMBSTONE && data.getInt(record + HASH) == hash && Arrays.equals(readKey(record), key))
+                return record;
+        }
+    }
+
+    private long findOrCreate(String name) {
+        long record = find(name);
+        if (record != 0)
+            return record;
+        int separator = lastSeparator(name);
+        long parent = separator == -1 ? 0 : findOrCreate(name.substring(0, separator));
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(name);
+        record = allocate(KEY + key.length, RECORD);
+        if (record == 0)
+            throw new IllegalArgumentException("The name of this variable is too long: " + name);
+        data.putLong(record + PARENT, parent);
+        data.putLong(record + FIRST_CHILD, 0);
+        data.putLong(record + PREVIOUS, 0);
+        data.putLong(record + VALUE_OFFSET, 0);
+        data.putInt(record + VALUE_LENGTH, 0);
+        data.putInt(record + HASH, hash);
+        data.putInt(record + KEY_LENGTH, key.length);
+        data.putInt(record + VALUE_COUNT, 0);
+        data.putInt(record + NEXT_INDEX, 1);
+        data.put(record + KEY, key);
+        if (parent != 0) {
+            long next = data.getLong(parent + FIRST_CHILD);
+            data.putLong(record + NEXT, next);
+            if (next != 0)
+                data.putLong(next + PREVIOUS, record);
+            data.putLong(parent + FIRST_CHILD, record);
+        } else {
+            data.putLong(record + NEXT, 0);
+        }
+        insert(record, hash);
+        return record;
+    }
+
+    /**
+     * @return the start of the last list separator in the name, found the same way {@link VariableMap} splits names
+     */
+    private static int lastSeparator(String name) {
+        int last = -1;
+        for (int i = name.indexOf(Variables.LIST_SEPARATOR); i != -1; i = name.indexOf(Variables.LIST_SEPARATOR, i + Variables.LIST_SEPARATOR.length())) {
+            last = i;
+        }
+        return last;
+    }
+
+    /**
+     * Deletes records, starting from the given one and going up, as long as they hold nothing
+     */
+    private void prune(long record) {
+        while (record != 0 && data.getLong(record + VALUE_OFFSET) == 0 && data.getLong(record + FIRST_CHILD) == 0) {
+            long parent = data.getLong(record + PARENT);
+            delete(record);
+            record = parent;
+        }
+    }
+
+    private void deleteChildren(long record) {
+        long child = data.getLong(record + FIRST_CHILD);
+        while (child != 0) {
+            long next = data.getLong(child + NEXT);
+            deleteChildren(child);
+            delete(child);
+            child = next;
+        }
+    }
+
+    private void delete(long record) {
+        long parent = data.getLong(record + PARENT);
+        long previous = data.getLong(record + PREVIOUS);
+        long next = data.getLong(record + NEXT);
+        if (previous != 0) {
+            data.putLong(previous + NEXT, next);
+        } else if (parent != 0) {
+            data.putLong(parent + FIRST_CHILD, next);
+        }
+        if (next != 0)
+            data.putLong(next + PREVIOUS, previous);
+        writeValue(record, null);
+        if (parent != 0 || !sums.isEmpty()) {
+            String name = readName(record);
+            sums.remove(name);
+            if (parent != 0) {
+                int index = listIndex(name.substring(lastSeparator(name) + Variables.LIST_SEPARATOR.length()));
+                if (index > 0 && index < data.getInt(parent + NEXT_INDEX))
+                    data.putInt(parent + NEXT_INDEX, index);
+            }
+        }
+        remove(record);
+        free(record);
+    }
+
+    /**
+     * @return the index a key stands for, as {@link #addToList(String, Object[])} writes it, or {@code -1} if it isn't one
+     */
+    private static int listIndex(String key) {
+        if (key.isEmpty() || key.length() > 9 || key.charAt(0) == '0')
+            return -1;
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) < '0' || key.charAt(i) > '9')
+                return -1;
+        }
+        return Integer.parseInt(key);
+    }
+
+    private byte[] readKey(long record) {
+        byte[] key = new byte[data.getInt(record + KEY_LENGTH)];
+        data.get(record + KEY, key);
+        return key;
+    }
+
+    private String readName(long record) {
+        return new String(readKey(record), StandardCharsets.UTF_8);
+    }
+
+    @Nullable
+    private Object readValue(long record, String name) {
+        long value = data.getLong(record + VALUE_OFFSET);
+        if (value == 0)
+            return null;
+        return ValueCodec.decode(name, data.slice(value + VALUE_BYTES, data.getInt(record + VALUE_LENGTH)));
+    }
+
+    /**
+     * Writes the value of a record, and updates the size, sum and limits of the list it is in
+     */
+    private void writeValue(long record, @Nullable byte[] bytes) {
+        long value = data.getLong(record + VALUE_OFFSET);
+        long parent = data.getLong(record + PARENT);
+        String name = null;
+        ListSum sum = null;
+        ListLimits listLimits = null;
+        Object previous = null;
+        if (parent != 0 && (!sums.isEmpty() || !limits.isEmpty())) {
+            name = readName(record);
+            String listName = name.substring(0, lastSeparator(name));
+            sum = sums.get(listName);
+            listLimits = limits.get(listName);
+            if (sum != null)
+                previous = readValue(record, name);
+        }
+        boolean had = value != 0;
+        if (value != 0 && (bytes == null || (1L << data.getInt(value + BLOCK_SHIFT)) < VALUE_BYTES + bytes.length)) {
+            free(value);
+            value = 0;
+        }
+        if (bytes != null && value == 0)
+            value = allocate(VALUE_BYTES + bytes.length, VALUE); // Which can't fail, as the size was checked beforehand
+        if (bytes != null) {
+            data.put(value + VALUE_BYTES, bytes);
+            data.putInt(record + VALUE_LENGTH, bytes.length);
+        }
+        data.putLong(record + VALUE_OFFSET, value);
+        if (parent != 0 && had != (value != 0))
+            data.putInt(parent + VALUE_COUNT, data.getInt(parent + VALUE_COUNT) + (had ? -1 : 1));
+        if (name != null) {
+            if (sum != null)
+                sum.update(previous, readValue(record, name));
+            if (listLimits != null)
+                listLimits.update(name.substring(lastSeparator(name) + Variables.LIST_SEPARATOR.length()), value != 0 ? Boolean.TRUE : null);
+        }
+    }
+
+    /**
+     * Reads a list the way {@link VariableMap#getVariable(String)} represents it
+     */
+    private Map<String, Object> readList(long record, String name) {
+        List<Map.Entry<String, Long>> children = children(record, name);
+        Map<String, Object> list = new LinkedHashMap<>(children.size() * 4 / 3 + 2);
+        Object own = readValue(record, name);
+        if (own != null)
+            list.put(null, own);
+        for (Map.Entry<String, Long> entry : children) {
+            long child = entry.getValue();
+            String childName = name + Variables.LIST_SEPARATOR + entry.getKey();
+            Object value = data.getLong(child + FIRST_CHILD) != 0 ? readList(child, childName) : readValue(child, childName);
+            if (value != null)
+                list.put(entry.getKey(), value);
+        }
+        return list;
+    }
+
+    /**
+     * @return the key and the record of each element of a list, in the order of their keys
+     */
+    private List<Map.Entry<String, Long>> children(long record, String name) {
+        List<Map.Entry<String, Long>> children = new ArrayList<>();
+        int prefix = name.length() + Variables.LIST_SEPARATOR.length();
+        for (long child = data.getLong(record + FIRST_CHILD); child != 0; child = data.getLong(child + NEXT)) {
+            children.add(new AbstractMap.SimpleImmutableEntry<>(readName(child).substring(prefix), child));
+        }
+        children.sort(Map.Entry.comparingByKey(VariableMap.KEY_COMPARATOR));
+        return children;
+    }
+
+    /*
+     * Blocks
+     */
+
+    private long allocate(int size, int kind) {
+        int shift = MIN_BLOCK_SHIFT;
+        while ((1L << shift) < size)
+            shift++;
+        if (shift > SEGMENT_SHIFT)
+            return 0;
+        long freeList = DATA_FREE_LISTS + 8 * (shift - MIN_BLOCK_SHIFT);
+        long block = data.getLong(freeList);
+        if (block != 0) {
+            data.putLong(freeList, data.getLong(block + FREE_NEXT));
+        } else {
+            block = data.getLong(DATA_END);
+            if ((block & (SEGMENT_SIZE - 1)) + (1L << shift) > SEGMENT_SIZE) // Blocks can't span two segments
+                block = (block >>> SEGMENT_SHIFT) + 1 << SEGMENT_SHIFT;
+            try {
+                data.ensureSize(block + (1L << shift));
+            } catch (IOException e) {
+                throw new IllegalStateException("The variable store couldn't be grown", e);
+            }
+            data.putLong(DATA_END, block + (1L << shift));
+        }
+        data.putInt(block + BLOCK_SHIFT, shift);
+        data.putInt(block + BLOCK_KIND, kind);
+        return block;
+    }
+
+    private void free(long block) {
+        long freeList = DATA_FREE_LISTS + 8 * (data.getInt(block + BLOCK_SHIFT) - MIN_BLOCK_SHIFT);
+        data.putInt(block + BLOCK_KIND, FREE);
+        data.putLong(block + FREE_NEXT, data.getLong(freeList));
+        data.putLong(freeList, block);
+    }
+
+    /*
+     * Index
+     */
+
+    private static int hash(String name) {
+        int h = name.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static long slot(int i) {
+        return SLOTS + 8L * i;
+    }
+
+    private static void initIndex(MappedFile index, int capacity) throws IOException {
+        index.ensureSize(slot(capacity));
+        index.putInt(0, MAGIC);
+        index.putInt(4, VERSION);
+        index.putInt(INDEX_CAPACITY, capacity);
+        index.putInt(INDEX_SIZE, 0);
+        index.putInt(INDEX_TOMBSTONES, 0);
+    }
+
+    private void insert(long record, int hash) {
+        int capacity = index.getInt(INDEX_CAPACITY);
+        int size = index.getInt(INDEX_SIZE);
+        if ((size + index.getInt(INDEX_TOMBSTONES) + 1) * 4L > capacity * 3L) {
+            rehash(size);
+            capacity = index.getInt(INDEX_CAPACITY);
+        }
+        int mask = capacity - 1;
+        int i = hash & mask;
+        while (true) {
+            long existing = index.getLong(slot(i));
+            if (existing == 0 || existing == TOMBSTONE)
+                break;
+            i = (i + 1) & mask;
+        }
+        if (index.getLong(slot(i)) == TOMBSTONE)
+            index.putInt(INDEX_TOMBSTONES, index.getInt(INDEX_TOMBSTONES) - 1);
+        index.putLong(slot(i), record);
+        index.putInt(INDEX_SIZE, size + 1);
+    }
+
+    private void remove(long record) {
+        int mask = index.getInt(INDEX_CAPACITY) - 1;
+        for (int i = data.getInt(record + HASH) & mask; ; i = (i + 1) & mask) {
+            long existing = index.getLong(slot(i));
+            if (existing == 0)
+                return;
+            if (existing == record) {
+                index.putLong(slot(i), TOMBSTONE);
+                index.putInt(INDEX_SIZE, index.getInt(INDEX_SIZE) - 1);
+                index.putInt(INDEX_TOMBSTONES, index.getInt(INDEX_TOMBSTONES) + 1);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Builds a new index, large enough to hold twice as many records as there are now, without any tombstones, and
+     * replaces the current one with it
+     */
+    private void rehash(int size) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < (size + 1) * 4L)
+            capacity <<= 1;
+        try {
+            Path temp = Files.createTempFile(directory, INDEX, ".tmp");
+            MappedFile rehashed = new MappedFile(temp);
+            try {
+                initIndex(rehashed, capacity);
+                int oldCapacity = index.getInt(INDEX_CAPACITY);
+                int mask = capacity - 1;
+                for (int j = 0; j < oldCapacity; j++) {
+                    long record = index.getLong(slot(j));
+                    if (record == 0 || record == TOMBSTONE)
+                        continue;
+                    int i = data.getInt(record + HASH) & mask;
+                    while (rehashed.getLong(slot(i)) != 0)
+                        i = (i + 1) & mask;
+                    rehashed.putLong(slot(i), record);
+                }
+                rehashed.putInt(INDEX_SIZE, size);
+                rehashed.force();
+                Files.move(temp, directory.resolve(INDEX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                rehashed.close();
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            index.close();
+            index = rehashed;
+        } catch (IOException e) {
+            throw new IllegalStateException("The variable index couldn't be grown", e);
+        }
+    }
+
+    /**
+     * A file mapped into memory one segment at a time
+     */
+    private static final class MappedFile implements Closeable {
+        private final FileChannel channel;
+        private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+        MappedFile(Path path) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ensureSize(Math.max(channel.size(), 1));
+        }
+
+        void ensureSize(long size) throws IOException {
+            while ((long) segments.size() << SEGMENT_SHIFT < size) {
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() << SEGMENT_SHIFT, SEGMENT_SIZE));
+            }
+        }
+
+        private ByteBuffer segment(long offset) {
+            return segments.get((int) (offset >>> SEGMENT_SHIFT));
+        }
+
+        private static int position(long offset) {
+            return (int) (offset & (SEGMENT_SIZE - 1));
+        }
+
+        int getInt(long offset) {
+            return segment(offset).getInt(position(offset));
+        }
+
+        void putInt(long offset, int value) {
+            segment(offset).putInt(position(offset), value);
+        }
+
+        long getLong(long offset) {
+            return segment(offset).getLong(position(offset));
+        }
+
+        void putLong(long offset, long value) {
+            segment(offset).putLong(position(offset), value);
+        }
+
+        void get(long offset, byte[] bytes) {
+            ByteBuffer buffer = segment(offset).duplicate();
+            buffer.position(position(offset));
+            buffer.get(bytes);
+        }
+
+        /**
+         * @return a buffer over the given bytes of the file, which doesn't copy them
+         */
+        ByteBuffer slice(long offset, int length) {
+            ByteBuffer buffer = segment(offset).duplicate();
+            buffer.position(position(offset));
+            buffer.limit(position(offset) + length);
+            return buffer;
+        }
+
+        void put(long offset, byte[] bytes) {
+            ByteBuffer buffer = segment(offset).duplicate();
+            buffer.position(position(offset));
+            buffer.put(bytes);
+        }
+
+        void force() {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+
+        /**
+         * Writes everything to the disk and closes the file. The segments are only unmapped once they are garbage collected.
+         */
+        @Override
+        public void close() throws IOException {
+            force();
+            segments.clear();
+            channel.close();
+        }
+    }
+}
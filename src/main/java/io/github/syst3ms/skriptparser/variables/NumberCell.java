@@ -0,0 +1,197 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.util.math.NumberMath;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Holds the value of a numerical variable that is being added to or subtracted from, so that it can be changed in place
+ * instead of a new {@link Number} being created every time.
+ * <br>
+ * As long as it fits, the value is kept as a {@code long}, or a {@code double}, or a {@code long} and a scale for a
+ * {@link BigDecimal}, and the class it should be seen as is remembered. Once it doesn't fit anymore, it is kept as the
+ * {@link Number} itself. Either way, every change gives the same result as {@link NumberMath#add(Number, Number)} and
+ * {@link NumberMath#subtract(Number, Number)}.
+ * <br>
+ * Cells are only ever stored where variables are kept. Whatever gives access to the value of a variable must
+ * {@linkplain #unwrap(Object) unwrap} it first.
+ */
+public final class NumberCell {
+    private static final byte LONG = 0, BIG_INTEGER = 1, BIG_DECIMAL = 2, DOUBLE = 3, OTHER = 4;
+    private static final long[] POWERS_OF_TEN = new long[19];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++)
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+    }
+
+    private byte kind;
+    /**
+     * The value, the unscaled value of a {@link BigDecimal}, or the bits of a {@code double}, depending on the kind
+     */
+    private long bits;
+    private int scale;
+    /**
+     * The value as a {@link Number}, always set for {@link #OTHER}, and otherwise only once it was asked for
+     */
+    @Nullable
+    private Number boxed;
+
+    /**
+     * @param value the initial value
+     */
+    public NumberCell(Number value) {
+        set(value);
+    }
+
+    /**
+     * @param value anything stored as the value of a variable
+     * @return the value itself, or the number it holds if it's a cell
+     */
+    @Nullable
+    public static Object unwrap(@Nullable Object value) {
+        return value instanceof NumberCell ? ((NumberCell) value).get() : value;
+    }
+
+    /**
+     * @return the value of this cell. The same {@link Number} is returned until the value changes.
+     */
+    public Number get() {
+        if (boxed == null) {
+            switch (kind) {
+                case LONG:
+                    boxed = bits;
+                    break;
+                case BIG_INTEGER:
+                    boxed = BigInteger.valueOf(bits);
+                    break;
+                case BIG_DECIMAL:
+                    boxed = BigDecimal.valueOf(bits, scale);
+                    break;
+                case DOUBLE:
+                    boxed = Double.longBitsToDouble(bits);
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+        return boxed;
+    }
+
+    private void set(Number value) {
+        boxed = value;
+        if (value instanceof Long) {
+            kind = LONG;
+            bits = value.longValue();
+        } else if (value instanceof Double) {
+            kind = DOUBLE;
+            bits = Double.doubleToRawLongBits(value.doubleValue());
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            kind = BIG_INTEGER;
+            bits = value.longValue();
+        } else if (value instanceof BigDecimal && ((BigDecimal) value).unscaledValue().bitLength() < 64) {
+            kind = BIG_DECIMAL;
+            bits = ((BigDecimal) value).unscaledValue().longValue();
+            scale = ((BigDecimal) value).scale();
+        } else {
+            kind = OTHER;
+        }
+    }
+
+    /**
+     * Adds a number to the value of this cell, or subtracts it
+     * @param difference the number
+     * @param subtract whether to subtract it instead of adding it
+     */
+    public void add(Number difference, boolean subtract) {
+        boolean integral = difference instanceof Long || difference instanceof Integer
+                || difference instanceof Short || difference instanceof Byte;
+        switch (kind) {
+            case LONG:
+                if (integral && addExact(difference.longValue(), subtract))
+                    return;
+                break;
+            case BIG_INTEGER:
+                if ((integral || difference instanceof BigInteger && ((BigInteger) difference).bitLength() < 64)
+                        && addExact(difference.longValue(), subtract))
+                    return;
+                break;
+            case DOUBLE:
+                if (integral || difference instanceof Double || difference instanceof BigInteger) {
+                    double value = Double.longBitsToDouble(bits);
+                    bits = Double.doubleToRawLongBits(subtract
+                            ? value - difference.doubleValue()
+                            : value + difference.doubleValue());
+                    boxed = null;
+                    return;
+                }
+                break;
+            case BIG_DECIMAL:
+                if (integral || difference instanceof BigInteger && ((BigInteger) difference).bitLength() < 64) {
+                    if (addDecimal(difference.longValue(), 0, subtract))
+                        return;
+                } else if (difference instanceof BigDecimal) {
+                    BigInteger unscaled = ((BigDecimal) difference).unscaledValue();
+                    if (unscaled.bitLength() < 64 && addDecimal(unscaled.longValue(), ((BigDecimal) difference).scale(), subtract))
+                        return;
+                }
+                break;
+        }
+        // The value changes class, or doesn't fit anymore
+        set(subtract ? NumberMath.subtract(get(), difference) : NumberMath.add(get(), difference));
+    }
+
+    /**
+     * @return whether the result fit, in which case it was stored
+     */
+    private boolean addExact(long difference, boolean subtract) {
+        long result = subtract ? bits - difference : bits + difference;
+        if (subtract ? ((bits ^ difference) & (bits ^ result)) < 0 : ((bits ^ result) & (difference ^ result)) < 0)
+            return false;
+        bits = result;
+        boxed = null;
+        return true;
+    }
+
+    /**
+     * Adds an unscaled value and its scale, the way {@link BigDecimal#add(BigDecimal)} would
+     * @return whether the result fit, in which case it was stored
+     */
+    private boolean addDecimal(long unscaled, int differenceScale, boolean subtract) {
+        long value = bits;
+        int resultScale = scale;
+        if (differenceScale > scale) {
+            value = scaleUp(value, differenceScale - scale);
+            resultScale = differenceScale;
+        } else if (differenceScale < scale) {
+            unscaled = scaleUp(unscaled, scale - differenceScale);
+        }
+        if (value == Long.MIN_VALUE || unscaled == Long.MIN_VALUE) // Didn't fit
+            return false;
+        long previousBits = bits;
+        int previousScale = scale;
+        bits = value;
+        scale = resultScale;
+        if (addExact(unscaled, subtract))
+            return true;
+        bits = previousBits;
+        scale = previousScale;
+        return false;
+    }
+
+    /**
+     * @return the value multiplied by 10 to the power of {@code exponent}, or {@link Long#MIN_VALUE} if it doesn't fit
+     */
+    private static long scaleUp(long value, int exponent) {
+        if (exponent >= POWERS_OF_TEN.length || value == Long.MIN_VALUE)
+            return Long.MIN_VALUE;
+        long power = POWERS_OF_TEN[exponent];
+        long result = value * power;
+        if (value != 0 && (result / power != value || result == Long.MIN_VALUE))
+            return Long.MIN_VALUE;
+        return result;
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import org.jetbrains.annotations.Nullable;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Keeps the elements of a list sorted by their value, so that the highest or lowest ones, or those within a range, can
+ * be found without sorting the whole list.
+ * <br>
+ * Values are ordered by {@link Comparators#getJavaComparator()}, and elements with equal values by their key. Only
+ * numbers are ordered this way, as they are the only values the built-in comparators can tell apart by more than
+ * equality; {@code NaN} and infinities, which the number comparator can't compare to every other number, are left out.
+ */
+final class OrderedIndex {
+    private static final Comparator<Object> VALUE_COMPARATOR = Comparators.getJavaComparator();
+    private static final Comparator<Element> ELEMENT_COMPARATOR = (a, b) -> {
+        int c = VALUE_COMPARATOR.compare(a.order, b.order);
+        if (c != 0)
+            return c;
+        if (a.bound != b.bound)
+            return a.bound - b.bound;
+        return a.key == null || b.key == null ? 0 : VariableMap.KEY_COMPARATOR.compare(a.key, b.key);
+    };
+
+    private final NavigableSet<Element> elements = new TreeSet<>(ELEMENT_COMPARATOR);
+
+    /**
+     * @param value a value
+     * @return whether the value is ordered by this index
+     */
+    static boolean isOrdered(@Nullable Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            double d = ((Number) value).doubleValue();
+            return !Double.isNaN(d) && !Double.isInfinite(d);
+        }
+        return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte
+                || value instanceof BigInteger || value instanceof BigDecimal;
+    }
+
+    /**
+     * @param list the map of a list, as returned by {@link VariableMap#getVariable(String)}, or anything else
+     * @return a new index of the elements of that list, which doesn't follow later changes to it
+     */
+    static OrderedIndex of(@Nullable Object list) {
+        OrderedIndex index = new OrderedIndex();
+        if (list instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) list).entrySet()) {
+                if (entry.getKey() != null)
+                    index.update((String) entry.getKey(), null, VariableMap.ownValue(entry.getValue()));
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Updates the index after the value of an element changed
+     * @param key the key of the element
+     * @param previous its previous value, which may be a {@link NumberCell}, or {@literal null} if it didn't have one
+     * @param value its new value, which may be a {@link NumberCell}, or {@literal null} if it doesn't have one anymore
+     * @see ListIndex#update(String, Object, Object)
+     */
+    void update(String key, @Nullable Object previous, @Nullable Object value) {
+        previous = NumberCell.unwrap(previous);
+        value = NumberCell.unwrap(value);
+        if (isOrdered(previous))
+            elements.remove(new Element(key, (Number) previous, 0));
+        if (isOrdered(value))
+            elements.add(new Element(key, (Number) value, 0));
+    }
+
+    /**
+     * @param count how many elements to return at most
+     * @param descending whether to start from the highest values instead of the lowest
+     * @return the first elements in that order, as pairs of their key and value
+     */
+    List<Map.Entry<String, Object>> first(int count, boolean descending) {
+        List<Map.Entry<String, Object>> result = new ArrayList<>(Math.max(0, Math.min(count, elements.size())));
+        Iterator<Element> iterator = descending ? elements.descendingIterator() : elements.iterator();
+        while (result.size() < count && iterator.hasNext())
+            result.add(iterator.next().toEntry());
+        return result;
+    }
+
+    /**
+     * @param from the lowest value, included
+     * @param to the highest value, included
+     * @return the elements whose value is within that range, in ascending order, as pairs of their key and value
+     */
+    List<Map.Entry<String, Object>> between(Number from, Number to) {
+        List<Map.Entry<String, Object>> result = new ArrayList<>();
+        if (!isOrdered(from) || !isOrdered(to) || VALUE_COMPARATOR.compare(from, to) > 0)
+            return result;
+        for (Element element : elements.subSet(new Element(null, from, -1), true, new Element(null, to, 1), true))
+            result.add(element.toEntry());
+        return result;
+    }
+
+    private static final class Element {
+        @Nullable
+        private final String key;
+        private final Number value;
+        /**
+         * What the value is ordered as, which is the value itself except for {@code -0.0}, which compares as lower than
+         * {@code 0.0} but as equal to {@code 0}
+         */
+        private final Number order;
+        /**
+         * {@literal -1} or {@literal 1} for a bound placed before or after all the elements with the same value
+         */
+        private final int bound;
+
+        Element(@Nullable String key, Number value, int bound) {
+            this.key = key;
+            this.value = value;
+            this.order = value instanceof Double && (Double) value == 0 || value instanceof Float && (Float) value == 0
+                    ? (Number) 0L
+                    : value;
+            this.bound = bound;
+        }
+
+        Map.Entry<String, Object> toEntry() {
+            return new AbstractMap.SimpleImmutableEntry<>(key, value);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.serialization.Serializers;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns the values of variables into bytes and back, wherever they are stored outside of memory, using {@link Serializers}
+ */
+final class ValueCodec {
+    private static final Set<Class<?>> unencodable = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
+    private ValueCodec() {}
+
+    /**
+     * @param value a value
+     * @return the value as bytes, or {@literal null} if it can't be stored, in which case a warning is printed the first
+     * time it happens for its class
+     */
+    @Nullable
+    static byte[] encode(Object value) {
+        byte[] bytes = Serializers.serialize(value);
+        if (bytes == null && unencodable.add(value.getClass()))
+            System.err.println("Values of type " + value.getClass().getName() + " can't be saved, so variables set to them won't be");
+        return bytes;
+    }
+
+    /**
+     * @param name the name of the variable the value belongs to
+     * @param bytes the value as bytes, as {@linkplain #encode(Object) encoded} before, from the position of the buffer
+     *              to its limit
+     * @return the value, or {@literal null} if it can't be read anymore, in which case a warning is printed
+     */
+    @Nullable
+    static Object decode(String name, ByteBuffer bytes) {
+        try {
+            return Serializers.deserialize(bytes);
+        } catch (IllegalArgumentException e) {
+            System.err.println("The saved value of the variable '" + name + "' can't be read anymore: " + e.getMessage());
+            return null;
+        }
+    }
+}
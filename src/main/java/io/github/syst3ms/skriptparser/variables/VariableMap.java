@@ -1,19 +1,55 @@
 package io.github.syst3ms.skriptparser.variables;
 
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import io.github.syst3ms.skriptparser.types.comparisons.Relation;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
-class VariableMap {
-    private static final Pattern listSplitPattern = Pattern.compile(Pattern.quote(Variables.LIST_SEPARATOR));
-    private Map<String, Object> map = new HashMap<>(); // Ordering is not important right now
+/**
+ * Stores variables in a tree, with one node per {@linkplain Variables#LIST_SEPARATOR list separated} part of their name.
+ * A variable like {@code {a::b::c}} is stored in the {@code c} node, under the {@code b} node, under the {@code a} node.
+ * The children of each node are kept sorted, numbers first, in numerical order.
+ * <br>
+ * As long as the children of a node are numbered from 1 onwards, as when values are added to a list, they are kept in
+ * an array instead, indexed by their number, and those that aren't lists themselves are kept as their value alone.
+ * <br>
+ * Lists can be {@linkplain #limitList(String, int, long, TimeUnit) limited}, in which case the elements that are over
+ * their limits are removed whenever the list is used, before anything else is done with it.
+ * <br>
+ * Lists can be {@linkplain #iterateList(String) iterated over} while they change. Iterators share the array or map
+ * holding the elements of the list instead of copying it, and it is only copied if the list gains or loses an element
+ * before they are done.
+ */
+public class VariableMap {
+    /**
+     * Orders the parts of variable names, numbers first in numerical order, then everything else in lexicographical order
+     */
+    public static final Comparator<String> KEY_COMPARATOR = VariableMap::compareKeys;
+    private static final int SEPARATOR_LENGTH = Variables.LIST_SEPARATOR.length();
+    /**
+     * Lists with fewer elements than that are searched without a {@link ListIndex}
+     */
+    private static final int INDEX_THRESHOLD = 16;
 
-    private static String[] splitList(String name) {
-        return listSplitPattern.split(name);
-    }
+    private final Node root = new Node(null, "");
+    @Nullable
+    private Consumer<String> evictionListener;
 
     /**
 	 * Sets a variable.
@@ -21,122 +57,1112 @@ class VariableMap {
 	 * @param name  The variable's name. Can be a "list variable::*" (<tt>value</tt> must be <tt>null</tt> in this case)
 	 * @param value The variable's value. Use <tt>null</tt> to delete the variable.
 	 */
-    @SuppressWarnings("unchecked")
     public void setVariable(String name, @Nullable Object value) {
-        if (!name.endsWith("*")) {
+        if (name.endsWith(Variables.LIST_SEPARATOR + "*")) {
+            if (value != null)
+                return;
+            Node node = find(name, name.length() - SEPARATOR_LENGTH - 1);
+            if (node != null) {
+                node.clearChildren();
+                node.prune();
+            }
+        } else {
+            int keyStart = lastKeyStart(name);
+            String key = name.substring(keyStart);
             if (value == null) {
-                map.remove(name);
+                Node parent = find(name, keyStart - SEPARATOR_LENGTH);
+                if (parent != null) {
+                    parent.setChildValue(key, null);
+                    parent.prune();
+                }
             } else {
-                map.put(name, value);
+                Node parent = getOrCreate(name, keyStart - SEPARATOR_LENGTH);
+                parent.setChildValue(key, value);
+                if (parent.limits != null)
+                    evict(parent);
             }
         }
-        String[] split = splitList(name);
-        Map<String, Object> parent = map;
-        for (int i = 0; i < split.length; i++) {
-            String n = split[i];
-            Object current = parent.get(n);
-            if (current == null) {
-                if (i == split.length - 1) {
-                    if (value != null) {
-                        parent.put(n, value);
-                    }
-                    break;
-                } else if (value != null) {
-                    parent.put(n, current = new HashMap<>());
-                    parent = (Map<String, Object>) current;
+    }
+
+    /**
+	 * Returns the internal value of the requested variable.
+	 * <p>
+	 * <b>Do not modify the returned value!</b>
+	 *
+	 * @param name
+	 * @return an Object for a normal Variable or a Map<String, Object> for a list variable, or null if the variable is not set.
+	 * The map of a list variable maps each of its elements to their value, or to another such map if they are lists
+	 * themselves, in which case their own value is mapped to the {@literal null} key. It is sorted according to
+	 * {@link #KEY_COMPARATOR}, and reflects later changes to the list.
+	 */
+    @Nullable
+    public Object getVariable(String name) {
+        if (name.endsWith(Variables.LIST_SEPARATOR + "*")) {
+            Node node = findList(name);
+            return node != null && node.hasChildren() ? node : null;
+        } else {
+            int keyStart = lastKeyStart(name);
+            Node parent = find(name, keyStart - SEPARATOR_LENGTH);
+            if (parent == null)
+                return null;
+            if (parent.limits == null)
+                return NumberCell.unwrap(parent.getChildValue(name.substring(keyStart)));
+            evict(parent);
+            String key = name.substring(keyStart);
+            Object value = parent.getChildValue(key);
+            if (value != null)
+                parent.limits.use(key);
+            return NumberCell.unwrap(value);
+        }
+    }
+
+    /**
+     * Adds a number to the value of a variable, or subtracts it, changing it in place if possible
+     * @param name the variable's name, which can't be that of a list
+     * @param difference the number
+     * @param subtract whether to subtract it instead of adding it
+     * @return whether the variable was set to a number, and could be changed. Nothing is changed otherwise.
+     * @see NumberCell
+     */
+    public boolean addNumber(String name, Number difference, boolean subtract) {
+        int keyStart = lastKeyStart(name);
+        Node parent = find(name, keyStart - SEPARATOR_LENGTH);
+        if (parent == null)
+            return false;
+        if (parent.limits != null)
+            evict(parent);
+        String key = name.substring(keyStart);
+        Object value = parent.getChildValue(key);
+        if (value instanceof Number) {
+            value = new NumberCell((Number) value);
+            parent.setChildValue(key, value);
+        } else if (!(value instanceof NumberCell)) {
+            return false;
+        }
+        NumberCell cell = (NumberCell) value;
+        Number previous = parent.isIndexed() ? cell.get() : null;
+        cell.add(difference, subtract);
+        if (previous != null)
+            parent.valueChanged(key, previous, cell);
+        return true;
+    }
+
+    /**
+     * Adds a value to a list, at the lowest index from 1 onwards that isn't used yet. The next free index is remembered,
+     * so that adding values one after the other doesn't look at all the previous ones every time.
+     * @param name the list's name, ending with {@code ::*}
+     * @param value the value
+     * @return the index the value was added at
+     */
+    public int addToList(String name, Object value) {
+        Node node = getOrCreate(name, name.length() - SEPARATOR_LENGTH - 1);
+        int index = node.nextFreeIndex();
+        if (node.children == null && node.canBeElement(index)) {
+            node.setElementValue(index, value);
+        } else {
+            node.setChildValue(String.valueOf(index), value);
+        }
+        if (node.limits != null)
+            evict(node);
+        return index;
+    }
+
+    /**
+     * Removes the elements of a list whose value is equal to the given value, according to
+     * {@link Comparators#compare(Object, Object)}. Elements that are lists themselves only lose their own value.
+     * @param name the list's name, ending with {@code ::*}
+     * @param value the value
+     * @param all whether to remove all such elements, or only the first one
+     * @return the keys of the elements that were removed
+     * @see ListIndex
+     */
+    public List<String> removeFromList(String name, Object value, boolean all) {
+        Node node = findList(name);
+        if (node == null || !node.hasChildren())
+            return Collections.emptyList();
+        List<String> keys = new ArrayList<>();
+        node.findEqual(value, all, keys);
+        for (String key : keys)
+            node.setChildValue(key, null);
+        node.prune();
+        return keys;
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @param value a value
+     * @return how many elements of that list have a value equal to the given one, according to
+     * {@link Comparators#compare(Object, Object)}
+     * @see ListIndex
+     */
+    public int countInList(String name, Object value) {
+        Node node = findList(name);
+        return node != null ? node.findEqual(value, true, null) : 0;
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @return how many elements of that list have a value. Elements that are lists themselves may not have one. This is
+     * kept up to date as the list changes, so it doesn't take longer for larger lists.
+     */
+    public int listSize(String name) {
+        Node node = findList(name);
+        return node != null ? node.valueCount : 0;
+    }
+
+    /**
+     * Sums the numerical values of a list. Once this has been called, the list keeps its sum up to date until it is
+     * deleted, so later calls don't take longer for larger lists.
+     * @param name the list's name, ending with {@code ::*}
+     * @return the sum, which is {@code 0} if there are no numerical values
+     * @see ListSum
+     */
+    public Number listSum(String name) {
+        Node node = findList(name);
+        return node != null ? node.sum().get() : 0L;
+    }
+
+    /**
+     * Finds the elements of a list with the highest or lowest values, in order. Only numbers are ordered; elements with
+     * any other value are left out. Once this has been called, the list keeps its elements sorted until it is deleted.
+     * @param name the list's name, ending with {@code ::*}
+     * @param count how many elements to find at most
+     * @param descending whether to find the highest values instead of the lowest
+     * @return the elements found, as pairs of their key and value
+     * @see OrderedIndex
+     */
+    public List<Map.Entry<String, Object>> sortedElements(String name, int count, boolean descending) {
+        Node node = findList(name);
+        return node != null && count > 0 ? node.ordered().first(count, descending) : Collections.emptyList();
+    }
+
+    /**
+     * Finds the elements of a list whose value is within a range, in ascending order
+     * @param name the list's name, ending with {@code ::*}
+     * @param from the lowest value, included
+     * @param to the highest value, included
+     * @return the elements found, as pairs of their key and value
+     * @see #sortedElements(String, int, boolean)
+     */
+    public List<Map.Entry<String, Object>> elementsBetween(String name, Number from, Number to) {
+        Node node = findList(name);
+        return node != null ? node.ordered().between(from, to) : Collections.emptyList();
+    }
+
+    /**
+     * Iterates over the elements of a list that have a value of their own, in order, without copying the list first.
+     * The elements iterated over are those the list has when this is called: elements added later are left out, and
+     * those removed before they are reached are skipped. The value of each element is read when it is reached, so the
+     * list can be changed in any way while it is iterated over.
+     * @param name the list's name, ending with {@code ::*}
+     * @return the iterator, over pairs of the key and the value of each element
+     */
+    public Iterator<Map.Entry<String, Object>> iterateList(String name) {
+        Node node = findList(name);
+        return node != null && node.hasChildren() ? new Snapshot(node) : Collections.emptyIterator();
+    }
+
+    /**
+     * Limits how many elements a list keeps, and for how long. The limits stay in place when the list is deleted, and
+     * replace any previous ones.
+     * @param name the list's name, ending with {@code ::*}
+     * @param capacity how many elements can have a value at most, or {@code 0} for no limit
+     * @param timeToLive how long values are kept after they were set, or {@code 0} for no limit
+     * @param unit the unit of the time to live
+     * @see ListLimits
+     */
+    public void limitList(String name, int capacity, long timeToLive, TimeUnit unit) {
+        if (capacity <= 0 && timeToLive <= 0) {
+            Node node = find(name, name.length() - SEPARATOR_LENGTH - 1);
+            if (node != null) {
+                node.limits = null;
+                node.prune();
+            }
+            return;
+        }
+        Node node = getOrCreate(name, name.length() - SEPARATOR_LENGTH - 1);
+        ListLimits limits = new ListLimits(Math.max(capacity, 0), Math.max(unit.toNanos(timeToLive), 0));
+        node.forEachChildValue(limits::update);
+        node.limits = limits;
+        evict(node);
+    }
+
+    /**
+     * Sets what should be notified of the variables removed because of the {@linkplain #limitList(String, int, long,
+     * TimeUnit) limits} of their list
+     * @param evictionListener takes the name of each removed variable, or {@literal null} to stop notifying anything
+     */
+    public void setEvictionListener(@Nullable Consumer<String> evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Finds the node of a list, after removing the elements its limits say should be removed, if it has any
+     */
+    @Nullable
+    private Node findList(String name) {
+        Node node = find(name, name.length() - SEPARATOR_LENGTH - 1);
+        if (node != null && node.limits != null)
+            evict(node);
+        return node;
+    }
+
+    private void evict(Node node) {
+        assert node.limits != null;
+        String key;
+        while ((key = node.limits.evictable()) != null) {
+            node.setChildValue(key, null);
+            if (evictionListener != null)
+                evictionListener.accept(node.name() + Variables.LIST_SEPARATOR + key);
+        }
+    }
+
+    /**
+     * @return the value of the child of a node with the given key, as {@link #getVariable(String)} would return it
+     */
+    @Nullable
+    private Object readChild(Node node, String key) {
+        if (node.limits == null)
+            return NumberCell.unwrap(node.getChildValue(key));
+        evict(node);
+        Object value = node.getChildValue(key);
+        if (value != null)
+            node.limits.use(key);
+        return NumberCell.unwrap(value);
+    }
+
+    /**
+     * Performs an action on every variable in this map, in order. Lists themselves are not included, only their elements.
+     * @param action the action, taking the name and the value of each variable
+     */
+    public void forEach(BiConsumer<String, Object> action) {
+        forEach(root, new StringBuilder(), action);
+    }
+
+    private void forEach(Node node, StringBuilder name, BiConsumer<String, Object> action) {
+        if (node.limits != null)
+            evict(node);
+        if (node.value != null)
+            action.accept(name.toString(), NumberCell.unwrap(node.value));
+        int length = name.length();
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                if (node.parent != null)
+                    name.append(Variables.LIST_SEPARATOR);
+                forEach(child, name.append(child.key), action);
+                name.setLength(length);
+            }
+        } else if (node.elements != null) {
+            for (int i = 0; i < node.length; i++) {
+                Object element = node.elements[i];
+                if (element == null)
+                    continue;
+                if (node.parent != null)
+                    name.append(Variables.LIST_SEPARATOR);
+                name.append(i + 1);
+                if (element instanceof Node) {
+                    forEach((Node) element, name, action);
                 } else {
-                    break;
+                    action.accept(name.toString(), NumberCell.unwrap(element));
                 }
-            } else if (current instanceof Map) {
-                if (i == split.length - 1) {
-                    if (value == null) {
-                        ((Map<String, Object>) current).remove(null);
-                    } else {
-                        ((Map<String, Object>) current).put(null, value);
-                    }
-                    break;
-                } else if (i == split.length - 2 && split[i + 1].equals("*")) {
-                    assert value == null;
-                    deleteFromHashMap(String
-                        .join(Variables.LIST_SEPARATOR, Arrays.copyOfRange(split, 0, i + 1)), (Map<String, Object>) current);
-                    Object v = ((Map<String, Object>) current).get(null);
-                    if (v == null) {
-                        parent.remove(n);
-                    } else {
-                        parent.put(n, v);
+                name.setLength(length);
+            }
+        }
+    }
+
+    /**
+     * @param element an element of a list, as represented in the map of that list
+     * @return the value of the element itself, or {@literal null} if it is a list without a value of its own
+     */
+    @Nullable
+    static Object ownValue(@Nullable Object element) {
+        return element instanceof Map ? ((Map<?, ?>) element).get(null) : element;
+    }
+
+    /**
+     * @return where the last part of a name starts, splitting it from the left like the rest of this class does
+     */
+    private static int lastKeyStart(String name) {
+        int start = 0, end;
+        while ((end = name.indexOf(Variables.LIST_SEPARATOR, start)) != -1)
+            start = end + SEPARATOR_LENGTH;
+        return start;
+    }
+
+    /**
+     * @param name a name
+     * @param length how much of the name to look for, or a negative number for the root
+     */
+    @Nullable
+    private Node find(String name, int length) {
+        Node node = root;
+        int start = 0;
+        while (node != null && length >= 0) {
+            int end = name.indexOf(Variables.LIST_SEPARATOR, start);
+            if (end == -1 || end > length)
+                end = length;
+            node = node.getChild(name.substring(start, end));
+            if (end == length)
+                break;
+            start = end + SEPARATOR_LENGTH;
+        }
+        return node;
+    }
+
+    /**
+     * @see #find(String, int)
+     */
+    private Node getOrCreate(String name, int length) {
+        Node node = root;
+        int start = 0;
+        while (length >= 0) {
+            int end = name.indexOf(Variables.LIST_SEPARATOR, start);
+            if (end == -1 || end > length)
+                end = length;
+            node = node.getOrCreateChild(name.substring(start, end));
+            if (end == length)
+                break;
+            start = end + SEPARATOR_LENGTH;
+        }
+        return node;
+    }
+
+    private static int compareKeys(String a, String b) {
+        boolean aNumber = isNumber(a), bNumber = isNumber(b);
+        if (aNumber != bNumber)
+            return aNumber ? -1 : 1;
+        if (aNumber) {
+            int aStart = skipZeros(a), bStart = skipZeros(b);
+            int diff = (a.length() - aStart) - (b.length() - bStart);
+            if (diff != 0)
+                return diff;
+            for (int i = 0; i < a.length() - aStart; i++) {
+                diff = a.charAt(aStart + i) - b.charAt(bStart + i);
+                if (diff != 0)
+                    return diff;
+            }
+            return a.length() - b.length(); // "1" before "01"
+        }
+        return a.compareTo(b);
+    }
+
+    private static boolean isNumber(String s) {
+        if (s.isEmpty())
+            return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9')
+                return false;
+        }
+        return true;
+    }
+
+    private static int skipZeros(String s) {
+        int i = 0;
+        while (i < s.length() - 1 && s.charAt(i) == '0')
+            i++;
+        return i;
+    }
+
+    /**
+     * @return the index a key stands for if it is written the way {@link String#valueOf(int)} would write a positive
+     * number, {@literal -1} otherwise
+     */
+    private static int indexOf(String key) {
+        if (key.isEmpty() || key.length() > 9 || key.charAt(0) == '0')
+            return -1;
+        int index = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            index = index * 10 + c - '0';
+        }
+        return index;
+    }
+
+    /**
+     * Iterates over the children a node had when it was created, reading their value as they are reached
+     * @see #iterateList(String)
+     */
+    private final class Snapshot implements Iterator<Map.Entry<String, Object>> {
+        private final Node node;
+        /**
+         * The array or map of the children, shared with the node until one of them is done with it
+         */
+        private final Object shared;
+        @Nullable
+        private final Iterator<String> keys;
+        private final int length;
+        private int index;
+        @Nullable
+        private Map.Entry<String, Object> next;
+        private boolean done;
+
+        Snapshot(Node node) {
+            this.node = node;
+            this.shared = node.share();
+            this.keys = node.children != null ? node.children.keySet().iterator() : null;
+            this.length = node.length;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null)
+                return true;
+            if (done)
+                return false;
+            if (keys != null) {
+                while (keys.hasNext()) {
+                    String key = keys.next();
+                    Object value = readChild(node, key);
+                    if (value != null) {
+                        next = new AbstractMap.SimpleImmutableEntry<>(key, value);
+                        return true;
                     }
-                    break;
-                } else {
-                    parent = (Map<String, Object>) current;
                 }
             } else {
-                if (i == split.length - 1) {
-                    if (value == null) {
-                        parent.remove(n);
-                    } else {
-                        parent.put(n, value);
+                Object[] elements = (Object[]) shared;
+                while (index < length) {
+                    if (elements[index++] == null)
+                        continue;
+                    Object value = node.limits == null && node.children == null
+                            ? NumberCell.unwrap(Node.valueOf(node.element(index)))
+                            : readChild(node, String.valueOf(index));
+                    if (value != null) {
+                        next = new NumberedEntry(index, value);
+                        return true;
                     }
-                    break;
-                } else if (value != null) {
-                    Map<String, Object> c = new HashMap<>();
-                    c.put(null, current);
-                    parent.put(n, c);
-                    parent = c;
-                } else {
-                    break;
                 }
             }
+            done = true;
+            node.release(shared);
+            return false;
+        }
+
+        @Override
+        public Map.Entry<String, Object> next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Map.Entry<String, Object> n = next;
+            assert n != null;
+            next = null;
+            return n;
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void deleteFromHashMap(String parent, Map<String, Object> current) {
-        for (Map.Entry<String, Object> e : current.entrySet()) {
-            if (e.getKey() == null) {
-                continue;
-            }
-            map.remove(parent + Variables.LIST_SEPARATOR + e.getKey());
-            Object val = e.getValue();
-            if (val instanceof Map) {
-                deleteFromHashMap(parent + Variables.LIST_SEPARATOR + e.getKey(), (Map<String, Object>) val);
-            }
+    /**
+     * An element of a list numbered by its index, whose key is only written once it is asked for
+     */
+    private static final class NumberedEntry implements Map.Entry<String, Object> {
+        private final int index;
+        private final Object value;
+
+        NumberedEntry(int index, Object value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        public String getKey() {
+            return String.valueOf(index);
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(@Nullable Object o) {
+            if (!(o instanceof Map.Entry))
+                return false;
+            Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+            return getKey().equals(e.getKey()) && value.equals(e.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return index + "=" + value;
         }
     }
 
     /**
-	 * Returns the internal value of the requested variable.
-	 * <p>
-	 * <b>Do not modify the returned value!</b>
-	 *
-	 * @param name
-	 * @return an Object for a normal Variable or a Map<String, Object> for a list variable, or null if the variable is not set.
-	 */
-    @SuppressWarnings("unchecked")
-    @Nullable
-    public Object getVariable(String name) {
-        if (!name.endsWith("*")) {
-            return map.get(name);
-        } else {
-            String[] split = splitList(name);
-            Map<String, Object> current = map;
-            for (int i = 0; i < split.length; i++) {
-                String n = split[i];
-                if (n.equals("*")) {
-                    assert i == split.length - 1;
-                    return current;
+     * A node of the tree, which is also the map representation of the list it contains
+     */
+    private static final class Node extends AbstractMap<String, Object> {
+        @Nullable
+        private final Node parent;
+        private final String key;
+        @Nullable
+        private Object value;
+        /**
+         * The children of this node, unless they are kept in {@link #elements}
+         */
+        @Nullable
+        private TreeMap<String, Node> children;
+        /**
+         * The children of this node while they are all numbered, the child numbered {@code i} being at {@code i - 1}.
+         * Children that don't have children of their own are kept as their value alone, rather than as a node.
+         */
+        @Nullable
+        private Object[] elements;
+        private int elementCount;
+        /**
+         * The highest number of the children in {@link #elements}
+         */
+        private int length;
+        /**
+         * Every index below this one is used
+         */
+        private int firstFree = 1;
+        /**
+         * Indexes the values of the children, once there are enough of them and they have been looked for
+         */
+        @Nullable
+        private ListIndex index;
+        /**
+         * Keeps the children sorted by value, once they have been looked for in that order
+         */
+        @Nullable
+        private OrderedIndex ordered;
+        /**
+         * Limits the children of this node, if they were given limits
+         */
+        @Nullable
+        private ListLimits limits;
+        /**
+         * Sums the values of the children, once the sum has been asked for
+         */
+        @Nullable
+        private ListSum sum;
+        /**
+         * How many children have a value of their own
+         */
+        private int valueCount;
+        /**
+         * The array or map of the children that {@link Snapshot}s are iterating over, which has to be copied before
+         * a child is added to it or removed from it, and how many of them there are
+         */
+        @Nullable
+        private Object shared;
+        private int sharers;
+
+        Node(@Nullable Node parent, String key) {
+            this.parent = parent;
+            this.key = key;
+        }
+
+        boolean hasChildren() {
+            return children != null ? !children.isEmpty() : elementCount > 0;
+        }
+
+        /**
+         * @return whether the child numbered {@code index} can be kept in {@link #elements}, which is only done if that
+         * doesn't leave it mostly empty
+         */
+        boolean canBeElement(int index) {
+            return index != -1 && index <= 2 * length + 16;
+        }
+
+        @Nullable
+        Object element(int index) {
+            return elements != null && index <= length ? elements[index - 1] : null;
+        }
+
+        /**
+         * @return the own value of an element, which may be a {@link NumberCell}
+         */
+        @Nullable
+        static Object valueOf(@Nullable Object element) {
+            return element instanceof Node ? ((Node) element).value : element;
+        }
+
+        /**
+         * Lets a {@link Snapshot} iterate over the array or map of the children
+         * @return that array or map
+         */
+        Object share() {
+            Object container = children != null ? children : elements;
+            assert container != null;
+            if (container != shared) {
+                shared = container;
+                sharers = 0;
+            }
+            sharers++;
+            return container;
+        }
+
+        /**
+         * Takes note of a {@link Snapshot} being done with what {@link #share()} returned
+         */
+        void release(Object container) {
+            if (container == shared && --sharers == 0)
+                shared = null;
+        }
+
+        /**
+         * Copies {@link #elements} if it is shared, before it is changed
+         */
+        private void ownElements() {
+            if (elements != null && elements == shared) {
+                elements = elements.clone();
+                shared = null;
+            }
+        }
+
+        /**
+         * Copies {@link #children} if it is shared, before it is changed
+         */
+        private void ownChildren() {
+            if (children != null && children == shared) {
+                children = new TreeMap<>(children);
+                shared = null;
+            }
+        }
+
+        @Nullable
+        Node getChild(String key) {
+            if (children != null)
+                return children.get(key);
+            int index = indexOf(key);
+            Object element = index != -1 ? element(index) : null;
+            return element instanceof Node ? (Node) element : null;
+        }
+
+        Node getOrCreateChild(String key) {
+            if (children == null) {
+                int index = indexOf(key);
+                if (canBeElement(index)) {
+                    Object element = element(index);
+                    if (element instanceof Node)
+                        return (Node) element;
+                    Node child = new Node(this, key);
+                    child.value = element;
+                    putElement(index, child);
+                    return child;
                 }
-                Object o = current.get(n);
-                if (o == null) {
-                    return null;
+                useChildren();
+            }
+            assert children != null;
+            Node child = children.get(key);
+            if (child == null) {
+                ownChildren();
+                children.put(key, child = new Node(this, key));
+            }
+            return child;
+        }
+
+        /**
+         * @return the value of a child, which may be a {@link NumberCell}
+         */
+        @Nullable
+        Object getChildValue(String key) {
+            if (children != null) {
+                Node child = children.get(key);
+                return child != null ? child.value : null;
+            }
+            int index = indexOf(key);
+            return index != -1 ? valueOf(element(index)) : null;
+        }
+
+        /**
+         * Sets the value of a child, removing it if it doesn't hold anything anymore
+         */
+        void setChildValue(String key, @Nullable Object value) {
+            if (children == null) {
+                int index = indexOf(key);
+                if (value == null ? index != -1 : canBeElement(index)) {
+                    setElementValue(index, value);
+                    return;
+                } else if (value == null) {
+                    return;
                 }
-                if (o instanceof Map) {
-                    current = (Map<String, Object>) o;
-                    assert i != split.length - 1;
-                } else {
-                    return null;
+                useChildren();
+            }
+            assert children != null;
+            if (value != null) {
+                Node child = getOrCreateChild(key);
+                valueChanged(key, child.value, value);
+                child.value = value;
+            } else {
+                Node child = children.get(key);
+                if (child != null) {
+                    valueChanged(key, child.value, null);
+                    child.value = null;
+                    if (!child.hasChildren())
+                        removeChild(key);
                 }
             }
-            return null;
+        }
+
+        void setElementValue(int index, @Nullable Object value) {
+            Object element = element(index);
+            Object previous = valueOf(element);
+            if (isIndexed()) {
+                valueChanged(String.valueOf(index), previous, value);
+            } else {
+                valueCount += (value != null ? 1 : 0) - (previous != null ? 1 : 0);
+            }
+            if (element instanceof Node) {
+                Node child = (Node) element;
+                child.value = value;
+                if (value == null && !child.hasChildren())
+                    removeElement(index);
+            } else if (value != null) {
+                putElement(index, value);
+            } else if (element != null) {
+                removeElement(index);
+            }
+        }
+
+        private void putElement(int index, Object element) {
+            if (elements == null) {
+                elements = new Object[Math.max(index, 8)];
+            } else if (index > elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(index, elements.length + (elements.length >> 1)));
+            }
+            if (elements[index - 1] == null) {
+                ownElements(); // Replacing an element doesn't matter to snapshots, as they read values as they go
+                elementCount++;
+            }
+            elements[index - 1] = element;
+            length = Math.max(length, index);
+            if (elementCount == length) { // No gaps
+                firstFree = length + 1;
+            } else if (index == firstFree) {
+                firstFree++;
+            }
+        }
+
+        private void removeElement(int index) {
+            assert elements != null && elements[index - 1] != null;
+            if (--elementCount == 0) {
+                elements = null;
+                length = 0;
+            } else {
+                ownElements();
+                elements[index - 1] = null;
+                while (elements[length - 1] == null)
+                    length--;
+            }
+            firstFree = Math.min(firstFree, index);
+        }
+
+        /**
+         * Moves the children in {@link #elements} to {@link #children}, once a child that can't be kept there is added
+         */
+        private void useChildren() {
+            children = new TreeMap<>(KEY_COMPARATOR);
+            if (elements == null)
+                return;
+            for (int i = 0; i < length; i++) {
+                Object element = elements[i];
+                if (element instanceof Node) {
+                    children.put(((Node) element).key, (Node) element);
+                } else if (element != null) {
+                    Node child = new Node(this, String.valueOf(i + 1));
+                    child.value = element;
+                    children.put(child.key, child);
+                }
+            }
+            elements = null;
+            elementCount = length = 0;
+        }
+
+        private void removeChild(String key) {
+            int index = indexOf(key);
+            if (children != null) {
+                ownChildren();
+                children.remove(key);
+                if (index != -1)
+                    firstFree = Math.min(firstFree, index);
+            } else {
+                removeElement(index);
+            }
+        }
+
+        void clearChildren() {
+            index = null;
+            ordered = null;
+            sum = null;
+            valueCount = 0;
+            if (limits != null)
+                limits.clear();
+            children = null;
+            elements = null;
+            elementCount = length = 0;
+            firstFree = 1;
+            shared = null;
+            sharers = 0;
+        }
+
+        /**
+         * @return the lowest index from 1 onwards that no child uses yet
+         */
+        int nextFreeIndex() {
+            if (children != null) {
+                while (children.containsKey(String.valueOf(firstFree)))
+                    firstFree++;
+            } else {
+                while (element(firstFree) != null)
+                    firstFree++;
+            }
+            return firstFree;
+        }
+
+        /**
+         * @return the index of the values of the children, built if there are enough of them, or {@literal null}
+         */
+        @Nullable
+        ListIndex index() {
+            if (index == null && (children != null ? children.size() : elementCount) >= INDEX_THRESHOLD) {
+                ListIndex index = new ListIndex();
+                forEachChildValue((key, value) -> index.update(key, null, value));
+                this.index = index;
+            }
+            return index;
+        }
+
+        /**
+         * @return the children sorted by value, sorting them the first time
+         */
+        OrderedIndex ordered() {
+            if (ordered == null) {
+                OrderedIndex ordered = new OrderedIndex();
+                forEachChildValue((key, value) -> ordered.update(key, null, value));
+                this.ordered = ordered;
+            }
+            return ordered;
+        }
+
+        /**
+         * @return the sum of the values of the children, computing it the first time
+         */
+        ListSum sum() {
+            if (sum == null) {
+                ListSum sum = new ListSum();
+                forEachChildValue((key, value) -> sum.update(null, value));
+                this.sum = sum;
+            }
+            return sum;
+        }
+
+        /**
+         * @return whether anything is kept about the values of the children besides how many there are
+         */
+        boolean isIndexed() {
+            return index != null || ordered != null || sum != null || limits != null;
+        }
+
+        /**
+         * Updates what is kept about the values of the children after the value of a child changed
+         */
+        void valueChanged(String key, @Nullable Object previous, @Nullable Object value) {
+            valueCount += (value != null ? 1 : 0) - (previous != null ? 1 : 0);
+            if (limits != null)
+                limits.update(key, value);
+            if (sum != null)
+                sum.update(previous, value);
+            if (index != null)
+                index.update(key, previous, value);
+            if (ordered != null)
+                ordered.update(key, previous, value);
+        }
+
+        /**
+         * Performs an action on the key and the own value of every child that has one, in order
+         */
+        private void forEachChildValue(BiConsumer<String, Object> action) {
+            if (children != null) {
+                for (Node child : children.values()) {
+                    if (child.value != null)
+                        action.accept(child.key, child.value);
+                }
+            } else {
+                for (int i = 1; i <= length; i++) {
+                    Object value = valueOf(element(i));
+                    if (value != null)
+                        action.accept(String.valueOf(i), value);
+                }
+            }
+        }
+
+        /**
+         * Finds the children whose own value is equal to the given value
+         * @param value the value
+         * @param all whether to find all of them, or only the first one
+         * @param keys where to add the keys of the children found, if anywhere
+         * @return how many children were found
+         */
+        int findEqual(Object value, boolean all, @Nullable List<String> keys) {
+            ListIndex index = index();
+            Object indexKey = ListIndex.indexKey(value);
+            if (index == null || indexKey == null) {
+                int[] count = {0};
+                forEachChildValue((key, v) -> {
+                    if ((all || count[0] == 0) && Relation.EQUAL.is(Comparators.compare(NumberCell.unwrap(v), value))) {
+                        count[0]++;
+                        if (keys != null)
+                            keys.add(key);
+                    }
+                });
+                return count[0];
+            }
+            Collection<String> indexed = index.keysOf(indexKey);
+            String first = indexed.isEmpty() ? null : indexed.iterator().next();
+            int count = 0;
+            for (String key : index.unindexedKeys()) {
+                if (!all && first != null && KEY_COMPARATOR.compare(key, first) > 0)
+                    break;
+                if (Relation.EQUAL.is(Comparators.compare(NumberCell.unwrap(getChildValue(key)), value))) {
+                    count++;
+                    if (keys != null)
+                        keys.add(key);
+                    if (!all)
+                        return count;
+                }
+            }
+            if (!all) {
+                if (first != null && keys != null)
+                    keys.add(first);
+                return first != null ? 1 : 0;
+            }
+            if (keys != null)
+                keys.addAll(indexed);
+            return count + indexed.size();
+        }
+
+        /**
+         * @return the name of the variable this node holds the value of
+         */
+        String name() {
+            return parent == null || parent.parent == null ? key : parent.name() + Variables.LIST_SEPARATOR + key;
+        }
+
+        /**
+         * Removes this node and its ancestors from the tree, as long as they hold nothing and have no limits
+         */
+        void prune() {
+            Node node = this;
+            while (node.parent != null && node.value == null && !node.hasChildren() && node.limits == null) {
+                node.parent.removeChild(node.key);
+                node = node.parent;
+            }
+        }
+
+        /**
+         * @return what this node is represented by inside of its parent's map
+         */
+        @Nullable
+        Object represent() {
+            return hasChildren() ? this : NumberCell.unwrap(value);
+        }
+
+        /**
+         * @return what an element is represented by inside of this node's map
+         */
+        @Nullable
+        static Object represent(@Nullable Object element) {
+            return element instanceof Node ? ((Node) element).represent() : NumberCell.unwrap(element);
+        }
+
+        @Override
+        public Object get(@Nullable Object key) {
+            if (key == null)
+                return NumberCell.unwrap(value);
+            if (!(key instanceof String))
+                return null;
+            if (children != null) {
+                Node child = children.get(key);
+                return child != null ? child.represent() : null;
+            }
+            int index = indexOf((String) key);
+            return index != -1 ? represent(element(index)) : null;
+        }
+
+        @Override
+        public boolean containsKey(@Nullable Object key) {
+            if (key == null)
+                return value != null;
+            if (!(key instanceof String))
+                return false;
+            if (children != null)
+                return children.containsKey(key);
+            int index = indexOf((String) key);
+            return index != -1 && element(index) != null;
+        }
+
+        @Override
+        public int size() {
+            return (children != null ? children.size() : elementCount) + (value != null ? 1 : 0);
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    Iterator<Node> nodes = children != null ? children.values().iterator() : null;
+                    return new Iterator<Entry<String, Object>>() {
+                        private boolean ownValue = value != null;
+                        private int index = 1;
+
+                        @Override
+                        public boolean hasNext() {
+                            if (ownValue)
+                                return true;
+                            if (nodes != null)
+                                return nodes.hasNext();
+                            while (index <= length && element(index) == null)
+                                index++;
+                            return index <= length;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (!hasNext())
+                                throw new NoSuchElementException();
+                            if (ownValue) {
+                                ownValue = false;
+                                return new SimpleImmutableEntry<>(null, NumberCell.unwrap(value));
+                            }
+                            if (nodes != null) {
+                                Node child = nodes.next();
+                                return new SimpleImmutableEntry<>(child.key, child.represent());
+                            }
+                            int i = index++;
+                            return new SimpleImmutableEntry<>(String.valueOf(i), represent(element(i)));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return Node.this.size();
+                }
+            };
+        }
+
+        // Nodes are compared by identity, as they are part of a mutable tree
+        @Override
+        public boolean equals(@Nullable Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
         }
     }
 }
@@ -0,0 +1,321 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves every change made to a {@link ConcurrentVariableMap} to a directory, so that it can be restored later.
+ * <br>
+ * Changes are appended to a log on a background thread, so that the threads making them never wait for the disk. Once the
+ * log has grown larger than the variables themselves, all variables are written to a snapshot, and a new log is started.
+ * Restoring the variables means reading the latest snapshot, then replaying the changes that were logged after it.
+ * <br>
+ * Logs are numbered. The snapshot records the number of the first log that wasn't included in it entirely, and older
+ * logs are deleted once the snapshot has been written, so that a crash at any point still leaves a complete history.
+ */
+class VariablePersistence implements Closeable {
+    private static final String SNAPSHOT = "variables.snapshot";
+    private static final String LOG_PREFIX = "variables.", LOG_SUFFIX = ".log";
+    private static final int MAGIC = 0x534B5641; // "SKVA"
+    private static final int VERSION = 2;
+    private static final int LOG_HEADER = 8;
+    private static final int MIN_COMPACTION = 10_000;
+    private static final Change CLOSE = new Change("", null);
+
+    private final Path directory;
+    private final ConcurrentVariableMap variables;
+    private final LinkedBlockingQueue<Change> changes = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    /**
+     * A log never gets compacted before it contains that many changes, so that small variable sets aren't written over
+     * and over again
+     */
+    private final int minCompaction;
+    private long generation;
+    private DataOutputStream log;
+    private FileOutputStream logFile;
+    private long logged;
+    private long snapshotSize;
+    /**
+     * The error that stopped the writer, if any
+     */
+    @Nullable
+    private volatile IOException failure;
+
+    private VariablePersistence(Path directory, ConcurrentVariableMap variables, int minCompaction) {
+        this.directory = directory;
+        this.variables = variables;
+        this.minCompaction = minCompaction;
+        this.writer = new Thread(this::write, "Variable writer");
+        writer.setDaemon(true);
+    }
+
+    /**
+     * Restores the variables saved in a directory, and starts saving every later change to them in that directory
+     * @param directory the directory, which is created if it doesn't exist yet
+     * @param variables the variables to restore and then save, which shouldn't have been changed yet
+     * @return the persistence, which should be {@linkplain #close() closed} to make sure every change is saved
+     * @throws IOException if the directory couldn't be read or written to
+     */
+    static VariablePersistence open(Path directory, ConcurrentVariableMap variables) throws IOException {
+        return open(directory, variables, MIN_COMPACTION);
+    }
+
+    /**
+     * Restores the variables saved in a directory, and starts saving every later change to them in that directory
+     * @param directory the directory, which is created if it doesn't exist yet
+     * @param variables the variables to restore and then save, which shouldn't have been changed yet
+     * @param minCompaction how many changes a log must contain at least before it is compacted
+     * @return the persistence, which should be {@linkplain #close() closed} to make sure every change is saved
+     * @throws IOException if the directory couldn't be read or written to
+     */
+    static VariablePersistence open(Path directory, ConcurrentVariableMap variables, int minCompaction) throws IOException {
+        Files.createDirectories(directory);
+        VariablePersistence persistence = new VariablePersistence(directory, variables, minCompaction);
+        persistence.restore();
+        persistence.startLog(persistence.generation + 1);
+        persistence.writer.start();
+        variables.setChangeListener(persistence::enqueue);
+        return persistence;
+    }
+
+    private void restore() throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT);
+        long first = 0;
+        if (Files.isRegularFile(snapshot)) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                    throw new IOException("Unknown variable snapshot format in " + snapshot);
+                first = in.readLong();
+                snapshotSize = replay(in);
+            }
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SNAPSHOT + "*.tmp")) {
+            for (Path path : stream) {
+                Files.deleteIfExists(path); // A snapshot that was being written when the process stopped
+            }
+        }
+        generation = first;
+        for (long g : logGenerations()) {
+            if (g < first) {
+                Files.deleteIfExists(logPath(g)); // Left over from a crash right after a snapshot was written
+            } else if (Files.size(logPath(g)) <= LOG_HEADER) {
+                Files.delete(logPath(g));
+            } else {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logPath(g))))) {
+                    if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                        throw new IOException("Unknown variable log format in " + logPath(g));
+                    replay(in);
+                } catch (EOFException ignored) {
+                    // The process was stopped before the header of the log was written
+                }
+                generation = g;
+            }
+        }
+    }
+
+    /**
+     * Applies all the changes read from a stream, until it ends. A change that was only partially written, because the
+     * process was stopped while writing it, is ignored.
+     * @return the number of changes read
+     */
+    private long replay(DataInputStream in) throws IOException {
+        long count = 0;
+        while (true) {
+            String name;
+            byte[] value;
+            try {
+                name = in.readUTF();
+                int length = in.readInt();
+                value = length == -1 ? null : new byte[length];
+                if (value != null)
+                    in.readFully(value);
+            } catch (EOFException e) {
+                return count;
+            }
+            variables.setVariable(name, value == null ? null : ValueCodec.decode(name, ByteBuffer.wrap(value)));
+            count++;
+        }
+    }
+
+    private List<Long> logGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+    }
+
+    private void startLog(long generation) throws IOException {
+        this.generation = generation;
+        this.logFile = new FileOutputStream(logPath(generation).toFile());
+        this.log = new DataOutputStream(new BufferedOutputStream(logFile));
+        log.writeInt(MAGIC);
+        log.writeInt(VERSION);
+        logged = 0;
+    }
+
+    private void enqueue(String name, @Nullable Object value) {
+        changes.add(new Change(name, value));
+    }
+
+    private void write() {
+        List<Change> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch.add(changes.take());
+                changes.drainTo(batch);
+                for (Change change : batch) {
+                    if (change == CLOSE) {
+                        log.flush();
+                        logFile.getFD().sync();
+                        log.close();
+                        return;
+                    }
+                    writeChange(log, change.name, change.value);
+                    logged++;
+                }
+                batch.clear();
+                log.flush();
+                if (logged > Math.max(minCompaction, snapshotSize))
+                    compact();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+            System.err.println("Variables can't be saved anymore:");
+            e.printStackTrace();
+            variables.setChangeListener(null);
+            try {
+                log.close();
+            } catch (IOException ignored) {
+                // Already reported the first error
+            }
+        }
+    }
+
+    private static void writeChange(DataOutputStream out, String name, @Nullable Object value) throws IOException {
+        byte[] bytes = value == null ? null : ValueCodec.encode(value);
+        out.writeUTF(name);
+        if (bytes == null) { // A value that can't be saved is saved as a deletion, so that an older value doesn't come back
+            out.writeInt(-1);
+        } else {
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Writes all variables to a new snapshot, and deletes the logs it makes unnecessary. Any change that happens after the
+     * current log was closed is written to the next one, so the snapshot itself doesn't need to be consistent.
+     */
+    private void compact() throws IOException {
+        long previous = generation;
+        logFile.getFD().sync();
+        log.close();
+        startLog(previous + 1);
+        Path snapshot = directory.resolve(SNAPSHOT);
+        Path temp = Files.createTempFile(directory, SNAPSHOT, ".tmp");
+        long[] size = {0};
+        try {
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeLong(generation);
+                IOException[] failure = {null};
+                variables.forEach((name, value) -> {
+                    if (failure[0] != null)
+                        return;
+                    try {
+                        writeChange(out, name, value);
+                        size[0]++;
+                    } catch (IOException e) {
+                        failure[0] = e;
+                    }
+                });
+                if (failure[0] != null)
+                    throw failure[0];
+                out.flush();
+                file.getFD().sync();
+            }
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        snapshotSize = size[0];
+        for (long g : logGenerations()) {
+            if (g < generation)
+                Files.deleteIfExists(logPath(g));
+        }
+    }
+
+    /**
+     * @return the error that made the writer stop saving changes, or {@literal null} if it hasn't run into any
+     */
+    @Nullable
+    IOException getFailure() {
+        return failure;
+    }
+
+    /**
+     * Stops saving changes, once every change made until now has been saved
+     * @throws IOException the error that made the writer stop saving changes earlier on, if any, in which case the
+     * changes made since then weren't saved
+     */
+    @Override
+    public void close() throws IOException {
+        variables.setChangeListener(null);
+        changes.add(CLOSE);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        IOException failure = this.failure;
+        if (failure != null)
+            throw failure;
+    }
+
+    private static final class Change {
+        private final String name;
+        @Nullable
+        private final Object value;
+
+        Change(String name, @Nullable Object value) {
+            this.name = name;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import io.github.syst3ms.skriptparser.types.comparisons.Relation;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Where global variables are stored. Unlike a {@link VariableMap}, a store can be used by several threads at once.
+ * @see Variables#setStore(VariableStore)
+ */
+public interface VariableStore extends Closeable {
+    /**
+     * @param name the variable's name
+     * @return the value of that variable, as in {@link VariableMap#getVariable(String)}, except that lists are copies that
+     * don't reflect later changes, and may leave out the elements of the lists they contain
+     */
+    @Nullable
+    Object getVariable(String name);
+
+    /**
+     * @param name the variable's name
+     * @param value the new value of that variable, as in {@link VariableMap#setVariable(String, Object)}
+     */
+    void setVariable(String name, @Nullable Object value);
+
+    /**
+     * Changes the value of a variable based on its current value, without any other thread changing it in the meantime.
+     * The change should be quick, and must not access any other variable.
+     * @param name the variable's name, which can't be that of a list
+     * @param change computes the new value of the variable, or {@literal null} to delete it, from its current value
+     * @return the new value of the variable
+     */
+    @Nullable
+    Object changeVariable(String name, UnaryOperator<Object> change);
+
+    /**
+     * Adds a number to the value of a variable, or subtracts it, without any other thread changing it in the meantime.
+     * Stores that can change numbers in place should override this; by default nothing is changed.
+     * @param name the variable's name, which can't be that of a list
+     * @param difference the number
+     * @param subtract whether to subtract it instead of adding it
+     * @return whether the variable was set to a number, and was changed, as in
+     * {@link VariableMap#addNumber(String, Number, boolean)}. If not, it should be changed with
+     * {@link #changeVariable(String, UnaryOperator)} instead.
+     */
+    default boolean addNumber(String name, Number difference, boolean subtract) {
+        return false;
+    }
+
+    /**
+     * Adds values to a list, each at the lowest index from 1 onwards that isn't used yet. By default, this looks at every
+     * index in use, and isn't safe if other threads are changing the list at the same time.
+     * @param name the list's name, ending with {@code ::*}
+     * @param values the values
+     * @see VariableMap#addToList(String, Object)
+     */
+    default void addToList(String name, Object[] values) {
+        String prefix = name.substring(0, name.length() - 1);
+        Object list = getVariable(name);
+        int i = 1;
+        for (Object value : values) {
+            if (list instanceof Map)
+                while (((Map<?, ?>) list).containsKey(String.valueOf(i)))
+                    i++;
+            setVariable(prefix + i, value);
+            i++;
+        }
+    }
+
+    /**
+     * Removes the elements of a list whose value is equal to the given value. By default, this compares the value with
+     * every element, and isn't safe if other threads are changing the list at the same time.
+     * @param name the list's name, ending with {@code ::*}
+     * @param value the value
+     * @param all whether to remove all such elements, or only the first one
+     * @see VariableMap#removeFromList(String, Object, boolean)
+     */
+    default void removeFromList(String name, Object value, boolean all) {
+        String prefix = name.substring(0, name.length() - 1);
+        Object list = getVariable(name);
+        if (!(list instanceof Map))
+            return;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) list).entrySet()) {
+            Object element = VariableMap.ownValue(entry.getValue());
+            if (entry.getKey() != null && Relation.EQUAL.is(Comparators.compare(element, value))) {
+                setVariable(prefix + entry.getKey(), null);
+                if (!all)
+                    return;
+            }
+        }
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @param value a value
+     * @return how many elements of that list have a value equal to the given one
+     * @see VariableMap#countInList(String, Object)
+     */
+    default int countInList(String name, Object value) {
+        Object list = getVariable(name);
+        if (!(list instanceof Map))
+            return 0;
+        int count = 0;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) list).entrySet()) {
+            Object element = VariableMap.ownValue(entry.getValue());
+            if (entry.getKey() != null && Relation.EQUAL.is(Comparators.compare(element, value)))
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @return how many elements of that list have a value
+     * @see VariableMap#listSize(String)
+     */
+    default int listSize(String name) {
+        Object list = getVariable(name);
+        if (!(list instanceof Map))
+            return 0;
+        int count = 0;
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) list).entrySet()) {
+            Object element = VariableMap.ownValue(entry.getValue());
+            if (entry.getKey() != null && element != null)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @return the sum of the numerical values of that list. By default, this adds up the whole list.
+     * @see VariableMap#listSum(String)
+     */
+    default Number listSum(String name) {
+        return ListSum.of(getVariable(name)).get();
+    }
+
+    /**
+     * Finds the elements of a list with the highest or lowest values. By default, this sorts the whole list.
+     * @param name the list's name, ending with {@code ::*}
+     * @param count how many elements to find at most
+     * @param descending whether to find the highest values instead of the lowest
+     * @return the elements found, as pairs of their key and value
+     * @see VariableMap#sortedElements(String, int, boolean)
+     */
+    default List<Map.Entry<String, Object>> sortedElements(String name, int count, boolean descending) {
+        return OrderedIndex.of(getVariable(name)).first(count, descending);
+    }
+
+    /**
+     * Finds the elements of a list whose value is within a range. By default, this sorts the whole list.
+     * @param name the list's name, ending with {@code ::*}
+     * @param from the lowest value, included
+     * @param to the highest value, included
+     * @return the elements found, in ascending order, as pairs of their key and value
+     * @see VariableMap#elementsBetween(String, Number, Number)
+     */
+    default List<Map.Entry<String, Object>> elementsBetween(String name, Number from, Number to) {
+        return OrderedIndex.of(getVariable(name)).between(from, to);
+    }
+
+    /**
+     * Iterates over the elements of a list that have a value of their own, in order, while the list may be changed.
+     * By default, this copies the keys of the list, and gets the value of each element when it is reached.
+     * @param name the list's name, ending with {@code ::*}
+     * @return the iterator, over pairs of the key and the value of each element
+     * @see VariableMap#iterateList(String)
+     */
+    default Iterator<Map.Entry<String, Object>> iterateList(String name) {
+        String prefix = name.substring(0, name.length() - 1);
+        Object list = getVariable(name);
+        if (!(list instanceof Map))
+            return Collections.emptyIterator();
+        Iterator<?> keys = ((Map<?, ?>) list).keySet().iterator(); // The list is a copy, so it doesn't change
+        return new Iterator<Map.Entry<String, Object>>() {
+            @Nullable
+            private Map.Entry<String, Object> next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && keys.hasNext()) {
+                    String key = (String) keys.next();
+                    Object value = key != null ? getVariable(prefix + key) : null;
+                    if (value != null)
+                        next = new AbstractMap.SimpleImmutableEntry<>(key, value);
+                }
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<String, Object> next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Map.Entry<String, Object> n = next;
+                next = null;
+                return n;
+            }
+        };
+    }
+
+    /**
+     * Limits how many elements a list keeps, and for how long. Stores that can't enforce limits leave lists as they are,
+     * which is what this does by default.
+     * @param name the list's name, ending with {@code ::*}
+     * @param capacity how many elements can have a value at most, or {@code 0} for no limit
+     * @param timeToLive how long values are kept after they were set, or {@code 0} for no limit
+     * @param unit the unit of the time to live
+     * @return whether the limits are enforced
+     * @see VariableMap#limitList(String, int, long, TimeUnit)
+     */
+    default boolean limitList(String name, int capacity, long timeToLive, TimeUnit unit) {
+        return false;
+    }
+
+    /**
+     * Performs an action on every variable in this store, in no particular order. Lists themselves are not included,
+     * only their elements.
+     * @param action the action, taking the name and the value of each variable
+     */
+    void forEach(BiConsumer<String, Object> action);
+
+    /**
+     * Releases whatever this store holds, after which it can't be used anymore
+     * @throws IOException if the variables couldn't be written
+     */
+    @Override
+    default void close() throws IOException {}
+}
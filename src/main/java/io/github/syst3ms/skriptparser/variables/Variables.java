@@ -2,25 +2,33 @@ package io.github.syst3ms.skriptparser.variables;
 
 import io.github.syst3ms.skriptparser.event.TriggerContext;
 import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.Frame;
 import io.github.syst3ms.skriptparser.lang.Variable;
 import io.github.syst3ms.skriptparser.lang.VariableString;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
 import java.util.regex.Pattern;
 
 public class Variables {
     public static final String LIST_SEPARATOR = "::";
     public static final String LOCAL_VARIABLE_TOKEN = "_";
     public static final Pattern REGEX_PATTERN = Pattern.compile("\\{([^{}]|%\\{|}%)+}");
-    private static VariableMap variableMap = new VariableMap();
-    // Yes, I know it should be trigger-specific, but I haven't got to that part yet, ok ? TODO make the change
-    private static Map<TriggerContext, VariableMap> localVariables = new HashMap<>();
+    private static volatile VariableStore variableMap = new ConcurrentVariableMap();
+    @Nullable
+    private static VariablePersistence persistence;
 
     @Nullable
-    public static <T> Expression<T> parseVariable(String s, Class<? extends T> types, SkriptLogger logger) {
+    public static <T> Expression<T> parseVariable(String s, Class<? extends T> types, ParserState parserState, SkriptLogger logger) {
         s = s.trim();
         if (REGEX_PATTERN.matcher(s).matches()) {
             s = s.substring(1, s.length() - 1);
@@ -30,13 +38,64 @@ public class Variables {
         if (!isValidVariableName(s, true, logger)) {
             return null;
         }
-        VariableString vs = VariableString.newInstance(s.startsWith(LOCAL_VARIABLE_TOKEN) ? s.substring(
-            LOCAL_VARIABLE_TOKEN.length()).trim() : s, logger);
+        boolean local = s.startsWith(LOCAL_VARIABLE_TOKEN);
+        VariableString vs = VariableString.newInstance(local ? s.substring(
+            LOCAL_VARIABLE_TOKEN.length()).trim() : s, parserState, logger);
         if (vs == null) {
             return null;
         }
-        return new Variable<>(vs, s.startsWith(LOCAL_VARIABLE_TOKEN), s.endsWith(
-                LIST_SEPARATOR + "*"), types);
+        int slot = -1;
+        if (local && vs.isSimple() && !vs.defaultVariableName().contains(LIST_SEPARATOR))
+            slot = parserState.getLocalVariableSlot(vs.defaultVariableName());
+        return new Variable<>(vs, local, s.endsWith(
+                LIST_SEPARATOR + "*"), types, slot);
+    }
+
+    /**
+     * Changes where global variables are stored. This should be done before any script is loaded, as the variables that
+     * were set before are not moved to the new store.
+     * @param store the store
+     */
+    public static synchronized void setStore(VariableStore store) {
+        if (persistence != null)
+            throw new IllegalStateException("Variables are saved in a directory, their store can't be changed");
+        variableMap = store;
+    }
+
+    /**
+     * @return where global variables are stored
+     */
+    public static VariableStore getStore() {
+        return variableMap;
+    }
+
+    /**
+     * Restores the global variables that were saved in a directory, and saves every later change to them in it.
+     * This should be done before any script is loaded.
+     * @param directory the directory
+     * @throws IOException if the directory couldn't be read or written to
+     * @see VariablePersistence
+     */
+    public static synchronized void enablePersistence(Path directory) throws IOException {
+        if (persistence != null)
+            throw new IllegalStateException("Variables are already saved in a directory");
+        if (!(variableMap instanceof ConcurrentVariableMap))
+            throw new IllegalStateException("Only variables stored in memory can be saved in a directory");
+        persistence = VariablePersistence.open(directory, (ConcurrentVariableMap) variableMap);
+    }
+
+    /**
+     * Stops saving changes to global variables, after making sure that all changes made until now are saved
+     * @throws IOException if the last changes couldn't be saved
+     */
+    public static synchronized void disablePersistence() throws IOException {
+        if (persistence != null) {
+            try {
+                persistence.close();
+            } finally {
+                persistence = null;
+            }
+        }
     }
 
     /**
@@ -80,10 +139,10 @@ public class Variables {
     @Nullable
     public static Object getVariable(String name, TriggerContext e, boolean local) {
         if (local) {
-            VariableMap map = localVariables.get(e);
-            if (map == null)
+            Frame frame = Frame.getCurrent();
+            if (frame == null)
                 return null;
-            return map.getVariable(name);
+            return frame.getVariable(name);
         } else {
             return variableMap.getVariable(name);
         }
@@ -97,13 +156,254 @@ public class Variables {
 	 */
     public static void setVariable(String name, @Nullable Object value, @Nullable TriggerContext e, boolean local) {
         if (local) {
-            assert e != null : name;
-            VariableMap map = localVariables.get(e);
-            if (map == null)
-                localVariables.put(e, map = new VariableMap());
-            map.setVariable(name, value);
+            Frame frame = Frame.getCurrent();
+            if (frame != null)
+                frame.setVariable(name, value);
         } else {
             variableMap.setVariable(name, value);
         }
     }
+
+    /**
+     * Changes the value of a variable based on its current value, in a way that is safe even if other threads are
+     * changing it at the same time.
+     * @param name the variable's name, which can't be that of a list
+     * @param change computes the new value of the variable, or {@literal null} to delete it, from its current value.
+     *               It must not access any other variable.
+     * @param e the event
+     * @param local whether the variable is local
+     * @return the new value of the variable
+     * @see VariableStore#changeVariable(String, UnaryOperator)
+     */
+    @Nullable
+    public static Object changeVariable(String name, UnaryOperator<Object> change, @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            if (frame == null)
+                return null;
+            Object value = change.apply(frame.getVariable(name));
+            frame.setVariable(name, value);
+            return value;
+        } else {
+            return variableMap.changeVariable(name, change);
+        }
+    }
+
+    /**
+     * Adds values to a list variable, each at the lowest index from 1 onwards that isn't used yet
+     * @param name the list's name, ending with {@code ::*}
+     * @param values the values
+     * @param e the event
+     * @param local whether the variable is local
+     * @see VariableStore#addToList(String, Object[])
+     */
+    public static void addToList(String name, Object[] values, @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            if (frame != null)
+                frame.addToList(name, values);
+        } else {
+            variableMap.addToList(name, values);
+        }
+    }
+
+    /**
+     * Removes the elements of a list variable that are equal to a value
+     * @param name the list's name, ending with {@code ::*}
+     * @param value the value
+     * @param all whether to remove all the elements equal to it, or only the first one
+     * @param e the event
+     * @param local whether the variable is local
+     * @see VariableStore#removeFromList(String, Object, boolean)
+     */
+    public static void removeFromList(String name, Object value, boolean all, @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            if (frame != null)
+                frame.removeFromList(name, value, all);
+        } else {
+            variableMap.removeFromList(name, value, all);
+        }
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @param value a value
+     * @param e the event
+     * @param local whether the variable is local
+     * @return how many elements of that list variable are equal to the value
+     * @see VariableStore#countInList(String, Object)
+     */
+    public static int countInList(String name, Object value, @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            return frame != null ? frame.countInList(name, value) : 0;
+        } else {
+            return variableMap.countInList(name, value);
+        }
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @param e the event
+     * @param local whether the variable is local
+     * @return how many elements of that list variable have a value
+     * @see VariableStore#listSize(String)
+     */
+    public static int listSize(String name, @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            return frame != null ? frame.listSize(name) : 0;
+        } else {
+            return variableMap.listSize(name);
+        }
+    }
+
+    /**
+     * Limits how many elements a list variable keeps, and for how long
+     * @param name the list's name, ending with {@code ::*}
+     * @param capacity how many elements can have a value at most, or {@code 0} for no limit
+     * @param timeToLive how long values are kept after they were set, or {@code 0} for no limit
+     * @param unit the unit of the time to live
+     * @param e the event
+     * @param local whether the variable is local
+     * @return whether the limits are enforced, which the {@linkplain #setStore(VariableStore) store} may not do
+     * @see VariableStore#limitList(String, int, long, TimeUnit)
+     */
+    public static boolean limitList(String name, int capacity, long timeToLive, TimeUnit unit,
+                                    @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            if (frame == null)
+                return false;
+            frame.limitList(name, capacity, timeToLive, unit);
+            return true;
+        } else {
+            return variableMap.limitList(name, capacity, timeToLive, unit);
+        }
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @param e the event
+     * @param local whether the variable is local
+     * @return an iterator over the elements of that list variable, as pairs of their key and value, which can be used
+     * while the list changes
+     * @see VariableStore#iterateList(String)
+     */
+    public static Iterator<Map.Entry<String, Object>> iterateList(String name, @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            return frame != null ? frame.iterateList(name) : Collections.emptyIterator();
+        } else {
+            return variableMap.iterateList(name);
+        }
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @param e the event
+     * @param local whether the variable is local
+     * @return the sum of the numerical values of that list variable
+     * @see VariableStore#listSum(String)
+     */
+    public static Number listSum(String name, @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            return frame != null ? frame.listSum(name) : 0L;
+        } else {
+            return variableMap.listSum(name);
+        }
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @param count how many elements to find at most
+     * @param descending whether to find the highest values instead of the lowest
+     * @param e the event
+     * @param local whether the variable is local
+     * @return the elements of that list variable with the highest or lowest values, as pairs of their key and value
+     * @see VariableStore#sortedElements(String, int, boolean)
+     */
+    public static List<Map.Entry<String, Object>> sortedElements(String name, int count, boolean descending,
+                                                                 @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            return frame != null ? frame.sortedElements(name, count, descending) : Collections.emptyList();
+        } else {
+            return variableMap.sortedElements(name, count, descending);
+        }
+    }
+
+    /**
+     * @param name the list's name, ending with {@code ::*}
+     * @param from the lowest value, included
+     * @param to the highest value, included
+     * @param e the event
+     * @param local whether the variable is local
+     * @return the elements of that list variable whose value is within that range, in ascending order, as pairs of
+     * their key and value
+     * @see VariableStore#elementsBetween(String, Number, Number)
+     */
+    public static List<Map.Entry<String, Object>> elementsBetween(String name, Number from, Number to,
+                                                                  @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            return frame != null ? frame.elementsBetween(name, from, to) : Collections.emptyList();
+        } else {
+            return variableMap.elementsBetween(name, from, to);
+        }
+    }
+
+    /**
+     * Adds a number to the value of a variable, or subtracts it, changing it in place if possible, in a way that is safe
+     * even if other threads are changing it at the same time
+     * @param name the variable's name, which can't be that of a list
+     * @param difference the number
+     * @param subtract whether to subtract it instead of adding it
+     * @param e the event
+     * @param local whether the variable is local
+     * @return whether the variable was set to a number, and was changed. If not, it should be changed with
+     * {@link #changeVariable(String, UnaryOperator, TriggerContext, boolean)} instead.
+     * @see VariableStore#addNumber(String, Number, boolean)
+     */
+    public static boolean addNumber(String name, Number difference, boolean subtract, @Nullable TriggerContext e, boolean local) {
+        if (local) {
+            Frame frame = Frame.getCurrent();
+            return frame != null && frame.addNumber(name, difference, subtract);
+        } else {
+            return variableMap.addNumber(name, difference, subtract);
+        }
+    }
+
+    /**
+     * @param slot the slot of a local variable, as given by {@link ParserState#getLocalVariableSlot(String)}
+     * @return the value of that variable in the code currently running, or {@literal null} if it isn't set
+     */
+    @Nullable
+    public static Object getLocalVariable(int slot) {
+        Frame frame = Frame.getCurrent();
+        return frame != null ? frame.get(slot) : null;
+    }
+
+    /**
+     * @param slot the slot of a local variable, as given by {@link ParserState#getLocalVariableSlot(String)}
+     * @param value the value to set the variable to in the code currently running, or {@literal null} to delete it
+     */
+    public static void setLocalVariable(int slot, @Nullable Object value) {
+        Frame frame = Frame.getCurrent();
+        if (frame != null)
+            frame.set(slot, value);
+    }
+
+    /**
+     * @param slot the slot of a local variable, as given by {@link ParserState#getLocalVariableSlot(String)}
+     * @param difference a number to add to the value of that variable
+     * @param subtract whether to subtract it instead of adding it
+     * @return whether the variable was set to a number in the code currently running, and was changed
+     */
+    public static boolean addLocalNumber(int slot, Number difference, boolean subtract) {
+        Frame frame = Frame.getCurrent();
+        return frame != null && frame.addNumber(slot, difference, subtract);
+    }
 }
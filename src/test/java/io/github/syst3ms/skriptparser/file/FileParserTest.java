@@ -92,6 +92,40 @@ public class FileParserTest {
                 )
             )
         );
+        expected = Arrays.asList(
+            fileSection(
+                "section",
+                0,
+                1,
+                fileSection(
+                    "nested section",
+                    1,
+                    2,
+                    simpleFileLine("element", 2, 3)
+                ),
+                simpleFileLine("element after nested section", 1, 4)
+            ),
+            simpleFileLine("element after", 0, 5)
+        );
+        SkriptLogger logger = new SkriptLogger();
+        assertEquals(
+            expected,
+            parser.parseFileLines(
+                "unit-tests",
+                Arrays.asList(
+                    "section:",
+                    "\tnested section:",
+                    "\t\telement",
+                    "\telement after nested section",
+                    "element after"
+                ),
+                0,
+                1,
+                logger
+            )
+        );
+        logger.logOutput();
+        assertEquals(Collections.emptyList(), logger.close());
         assertEquals(
             Collections.singletonList(simpleFileLine("code", 0, 1)),
             parseLines(parser, Collections.singletonList("code # comment"))
@@ -0,0 +1,208 @@
+package io.github.syst3ms.skriptparser.lang;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
+import io.github.syst3ms.skriptparser.file.FileElement;
+import io.github.syst3ms.skriptparser.file.FileParser;
+import io.github.syst3ms.skriptparser.file.FileSection;
+import io.github.syst3ms.skriptparser.log.SkriptLogger;
+import io.github.syst3ms.skriptparser.parsing.ParserState;
+import io.github.syst3ms.skriptparser.parsing.SyntaxParser;
+import io.github.syst3ms.skriptparser.variables.Variables;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.github.syst3ms.skriptparser.event.TriggerContext.DUMMY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+@SuppressWarnings("ConstantConditions")
+public class ProgramTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    private static Trigger parse(String... lines) {
+        List<String> script = new ArrayList<>();
+        script.add("on script load:");
+        for (String line : lines)
+            script.add("    " + line);
+        SkriptLogger logger = new SkriptLogger();
+        List<FileElement> elements = new FileParser().parseFileLines("test", script, 0, 1, logger);
+        Trigger trigger = SyntaxParser.parseTrigger((FileSection) elements.get(0), new ParserState(), logger);
+        assertNotNull("Couldn't parse the trigger", trigger);
+        return trigger;
+    }
+
+    private static void run(String... lines) {
+        Statement.runAll(parse(lines), new ScriptLoadContext(new String[0]));
+    }
+
+    @Nullable
+    private static Object get(String name) {
+        return Variables.getVariable(name, DUMMY, false);
+    }
+
+    private static int getInt(String name) {
+        return ((Number) get(name)).intValue();
+    }
+
+    @Test
+    public void testConditionChains() {
+        String[] expected = {"zero", "one", "two", "many"};
+        for (int i = 0; i < expected.length; i++) {
+            run(
+                "set {_v} to " + i,
+                "set {chain-end} to 0",
+                "if {_v} = 0:",
+                "    set {chain} to \"zero\"",
+                "else if {_v} = 1:",
+                "    set {chain} to \"one\"",
+                "else:",
+                "    if {_v} = 2:",
+                "        set {chain} to \"two\"",
+                "    else if {_v} = 0:",
+                "        set {chain} to \"unreachable\"",
+                "    else:",
+                "        set {chain} to \"many\"",
+                "    add 1 to {chain-end}",
+                "add 1 to {chain-end}"
+            );
+            assertEquals(expected[i], get("chain"));
+            assertEquals(i >= 2 ? 2 : 1, getInt("chain-end"));
+        }
+    }
+
+    @Test
+    public void testLoopLastInSection() {
+        run(
+            "set {last} to 0",
+            "set {last-count} to 0",
+            "if {last} = 0:",
+            "    loop 1, 2 and 3:",
+            "        add loop-value to {last}",
+            "loop 4 and 5:",
+            "    add 1 to {last-count}",
+            "    loop 1, 2 and 3:",
+            "        add loop-value-2 to {last}"
+        );
+        assertEquals(18, getInt("last"));
+        assertEquals(2, getInt("last-count"));
+    }
+
+    @Test
+    public void testNestedLoops() {
+        run(
+            "set {nested} to 0",
+            "set {nested-inner} to 0",
+            "loop 1, 2 and 3:",
+            "    set {_outer} to loop-value",
+            "    loop 10 and 20:",
+            "        add loop-value-2 to {nested}",
+            "        add {_outer} to {nested}",
+            "        add 1 to {nested-inner}",
+            "    add 1000 to {nested}"
+        );
+        assertEquals(3 * (10 + 20) + 2 * (1 + 2 + 3) + 3000, getInt("nested"));
+        assertEquals(6, getInt("nested-inner"));
+    }
+
+    @Test
+    public void testLoopSlots() {
+        run(
+            "set {slots::a} to 1",
+            "set {slots::b} to 2",
+            "set {slots-list} to 0",
+            "loop {slots::*}:",
+            "    add loop-value to {slots-list}",
+            "    if loop-index = \"b\":",
+            "        add 100 to {slots-list}",
+            "set {slots-outer} to 0",
+            "set {slots-inner} to 0",
+            "set {slots-after} to 0",
+            "loop 1 and 2:",
+            "    loop 30 and 40:",
+            "        add loop-number-1 to {slots-outer}",
+            "        add loop-number-2 to {slots-inner}",
+            "    loop {slots::*}:",
+            "        add loop-value-2 to {slots-list}",
+            "    add loop-value to {slots-after}"
+        );
+        assertEquals(1 + 2 + 100 + 2 * (1 + 2), getInt("slots-list"));
+        assertEquals(2 * 1 + 2 * 2, getInt("slots-outer"));
+        assertEquals(2 * (30 + 40), getInt("slots-inner"));
+        assertEquals(1 + 2, getInt("slots-after"));
+    }
+
+    @Test
+    public void testWhileConditionBecomesFalse() {
+        run(
+            "set {_i} to 5",
+            "set {while} to 0",
+            "while {_i} > 0:",
+            "    {_i} -= 1",
+            "    add 2 to {while}",
+            "set {while-end} to {_i}",
+            "while {_i} > 100:",
+            "    set {while-never} to 1"
+        );
+        assertEquals(10, getInt("while"));
+        assertEquals(0, getInt("while-end"));
+        assertNull(get("while-never"));
+    }
+
+    @Test
+    public void testCompiledCode() {
+        String[] script = {
+            "set {compiled} to 0",
+            "set {compiled-branches} to 0",
+            "set {_i} to 0",
+            "loop 1, 2, 3 and 4:",
+            "    if loop-value = 2:",
+            "        add 10 to {compiled-branches}",
+            "    else if loop-value > 2:",
+            "        add 100 to {compiled-branches}",
+            "    else:",
+            "        add 1 to {compiled-branches}",
+            "    add loop-value to {compiled}",
+            "while {_i} < 5:",
+            "    {_i} += 1",
+            "    add {_i} to {compiled}",
+            "if false:",
+            "    set {compiled} to 0"
+        };
+        Trigger interpreted = parse(script);
+        Trigger compiled;
+        String threshold = System.getProperty(Program.COMPILE_THRESHOLD_PROPERTY);
+        System.setProperty(Program.COMPILE_THRESHOLD_PROPERTY, "1");
+        try {
+            compiled = parse(script);
+            compiled.getProgram();
+        } finally {
+            if (threshold == null) {
+                System.clearProperty(Program.COMPILE_THRESHOLD_PROPERTY);
+            } else {
+                System.setProperty(Program.COMPILE_THRESHOLD_PROPERTY, threshold);
+            }
+        }
+
+        Statement.runAll(interpreted, new ScriptLoadContext(new String[0]));
+        assertNull(interpreted.getProgram().getCompiledCode());
+        Object expected = get("compiled");
+        Object expectedBranches = get("compiled-branches");
+        assertEquals(10 + 15, ((Number) expected).intValue());
+        assertEquals(1 + 10 + 200, ((Number) expectedBranches).intValue());
+
+        Variables.getStore().setVariable("compiled", null);
+        Variables.getStore().setVariable("compiled-branches", null);
+        Statement.runAll(compiled, new ScriptLoadContext(new String[0]));
+        assertNotNull(compiled.getProgram().getCompiledCode());
+        assertEquals(expected, get("compiled"));
+        assertEquals(expectedBranches, get("compiled-branches"));
+    }
+}
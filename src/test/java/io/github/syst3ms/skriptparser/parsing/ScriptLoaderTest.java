@@ -0,0 +1,297 @@
+package io.github.syst3ms.skriptparser.parsing;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
+import io.github.syst3ms.skriptparser.event.TriggerContext;
+import io.github.syst3ms.skriptparser.lang.Expression;
+import io.github.syst3ms.skriptparser.lang.SkriptEvent;
+import io.github.syst3ms.skriptparser.lang.Trigger;
+import io.github.syst3ms.skriptparser.log.LogEntry;
+import io.github.syst3ms.skriptparser.log.LogType;
+import io.github.syst3ms.skriptparser.registration.SkriptAddon;
+import io.github.syst3ms.skriptparser.registration.SkriptRegistration;
+import io.github.syst3ms.skriptparser.variables.Variables;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.syst3ms.skriptparser.event.TriggerContext.DUMMY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScriptLoaderTest {
+
+    private static final CountingAddon COUNTER = new CountingAddon();
+
+    static {
+        TestRegistration.register();
+        SkriptRegistration registration = new SkriptRegistration(COUNTER);
+        registration.newEvent(CountedEvent.class, "counted test", "counted failure")
+                .setHandledContexts(ScriptLoadContext.class)
+                .register();
+        registration.register();
+    }
+
+    /**
+     * An addon that keeps track of the triggers it is currently handling
+     */
+    private static class CountingAddon extends SkriptAddon {
+        private final Set<Trigger> handled = new HashSet<>();
+        private int maxHandled;
+
+        @Override
+        public void handleTrigger(Trigger trigger) {
+            handled.add(trigger);
+            maxHandled = Math.max(maxHandled, handled.size());
+        }
+
+        @Override
+        public void unloadTrigger(Trigger trigger) {
+            handled.remove(trigger);
+        }
+    }
+
+    public static class CountedEvent extends SkriptEvent {
+        @Override
+        public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+            if (matchedPattern == 1)
+                throw new IllegalStateException("Failing on purpose");
+            return true;
+        }
+
+        @Override
+        public boolean check(TriggerContext ctx) {
+            return false;
+        }
+
+        @Override
+        public String toString(@Nullable TriggerContext ctx, boolean debug) {
+            return "counted test";
+        }
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(Path file, String... lines) throws IOException {
+        Files.write(file, String.join("\n", lines).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean hasErrors(List<LogEntry> logs) {
+        for (LogEntry entry : logs) {
+            if (entry.getType() == LogType.ERROR)
+                return true;
+        }
+        return false;
+    }
+
+    private static List<Trigger> triggers(Path script) {
+        synchronized (ScriptLoader.getTriggerMap()) {
+            return ScriptLoader.getTriggerMap().getOrDefault(ScriptLoader.getScriptKey(script.toFile()), Collections.emptyList());
+        }
+    }
+
+    @Test
+    public void loadScripts() throws Exception {
+        Path directory = folder.newFolder("scripts").toPath();
+        Files.createDirectory(directory.resolve("nested"));
+        List<Path> scripts = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Path script = directory.resolve((i % 2 == 0 ? "" : "nested/") + "parallel" + i + ".txt");
+            write(script,
+                "on script load:",
+                "    set {parallel::" + i + "} to " + i,
+                "on script load:",
+                "    add 1 to {parallel::" + i + "}"
+            );
+            scripts.add(script);
+        }
+        Path broken = directory.resolve("parallel-broken.txt");
+        write(broken,
+            "on script load:",
+            "    set {parallel-broken} to 1",
+            "    this is not an effect"
+        );
+
+        Map<Path, List<LogEntry>> logs = ScriptLoader.loadScripts(Collections.singleton(directory), false);
+        List<Path> expected = new ArrayList<>(scripts);
+        expected.add(broken);
+        Collections.sort(expected);
+        assertEquals(expected, new ArrayList<>(logs.keySet()));
+        for (int i = 0; i < 8; i++) {
+            Path script = scripts.get(i);
+            assertFalse(script + " shouldn't have errors", hasErrors(logs.get(script)));
+            assertEquals(2, triggers(script).size());
+            // Both triggers ran once loading was finished
+            assertEquals(i + 1, ((Number) Variables.getVariable("parallel::" + i, DUMMY, false)).intValue());
+        }
+        assertTrue(hasErrors(logs.get(broken)));
+    }
+
+    @Test
+    public void sameNameScripts() throws Exception {
+        Path directory = folder.newFolder("same").toPath();
+        Path first = Files.createDirectory(directory.resolve("first")).resolve("same.txt");
+        Path second = Files.createDirectory(directory.resolve("second")).resolve("same.txt");
+        Path otherExtension = directory.resolve("first").resolve("same.sk");
+        for (Path script : Arrays.asList(first, second, otherExtension)) {
+            write(script,
+                "on script load:",
+                "    set {same} to 1"
+            );
+        }
+        ScriptLoader.loadScripts(Collections.singleton(directory), false);
+        assertEquals(1, triggers(first).size());
+        assertEquals(1, triggers(second).size());
+        assertEquals(1, triggers(otherExtension).size());
+
+        write(first,
+            "on script load:",
+            "    set {same} to 1",
+            "on script load:",
+            "    set {same} to 2"
+        );
+        ScriptLoader.reloadScript(first.toFile(), false);
+        assertEquals(2, triggers(first).size());
+        assertEquals(1, triggers(second).size());
+        assertEquals(1, triggers(otherExtension).size());
+
+        ScriptLoader.unloadScript(first.toFile());
+        assertTrue(triggers(first).isEmpty());
+        assertEquals(1, triggers(second).size());
+        assertEquals(1, triggers(otherExtension).size());
+    }
+
+    @Test
+    public void reloadHandlesTriggersAtOnce() throws Exception {
+        Path script = folder.newFile("counted.txt").toPath();
+        write(script,
+            "on counted test:",
+            "    set {counted} to 1",
+            "on counted test:",
+            "    set {counted} to 2"
+        );
+        ScriptLoader.loadScript(script.toFile(), false);
+        List<Trigger> loaded = triggers(script);
+        assertEquals(new HashSet<>(loaded), COUNTER.handled);
+
+        COUNTER.maxHandled = 0;
+        write(script,
+            "on counted test:",
+            "    set {counted} to 3",
+            "on counted test:",
+            "    set {counted} to 4"
+        );
+        ScriptLoader.reloadScript(script.toFile(), false);
+        List<Trigger> reloaded = triggers(script);
+        assertEquals(2, reloaded.size());
+        assertEquals(new HashSet<>(reloaded), COUNTER.handled);
+        // The old triggers were gone before the new ones were handled
+        assertEquals(2, COUNTER.maxHandled);
+
+        write(script,
+            "on counted test:",
+            "    set {counted} to 5",
+            "on counted failure:",
+            "    set {counted} to 6"
+        );
+        try {
+            ScriptLoader.reloadScript(script.toFile(), false);
+            fail("The reload should have failed");
+        } catch (IllegalStateException expected) {
+            // Nothing changed, even though the first trigger was parsed successfully
+            assertEquals(reloaded, triggers(script));
+            assertEquals(new HashSet<>(reloaded), COUNTER.handled);
+        }
+        ScriptLoader.unloadScript(script.toFile());
+        assertTrue(COUNTER.handled.isEmpty());
+    }
+
+    @Test
+    public void scriptWatcher() throws Exception {
+        Path directory = folder.newFolder("watched").toPath();
+        Path script = directory.resolve("watched.txt");
+        write(script,
+            "on script load:",
+            "    set {watched} to 1"
+        );
+        ScriptLoader.loadScript(script.toFile(), false);
+        assertEquals(1, triggers(script).size());
+
+        BlockingQueue<Map.Entry<Path, List<LogEntry>>> reloaded = new LinkedBlockingQueue<>();
+        long debounce = 200;
+        try (ScriptWatcher watcher = new ScriptWatcher(directory, false, debounce,
+                (path, logs) -> reloaded.add(new AbstractMap.SimpleEntry<>(path, logs)))) {
+            watcher.start();
+            long start = System.nanoTime();
+            // Saving a file often touches it several times, which should only reload it once
+            for (int i = 0; i < 3; i++) {
+                write(script,
+                    "on script load:",
+                    "    set {watched} to 1",
+                    "on script load:",
+                    "    set {watched} to 2"
+                );
+            }
+            Map.Entry<Path, List<LogEntry>> reload = reloaded.poll(30, TimeUnit.SECONDS);
+            assertNotNull("The script wasn't reloaded", reload);
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(debounce));
+            assertEquals(script, reload.getKey());
+            assertFalse(hasErrors(reload.getValue()));
+            assertEquals(2, triggers(script).size());
+            assertNull(reloaded.poll(debounce * 2, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void watchedDirectoryMoved() throws Exception {
+        Path directory = folder.newFolder("moved").toPath();
+        Path nested = Files.createDirectories(directory.resolve("nested").resolve("deeper"));
+        Path script = nested.resolve("moved.txt");
+        write(script,
+            "on script load:",
+            "    set {moved} to 1"
+        );
+        ScriptLoader.loadScript(script.toFile(), false);
+        assertTrue(ScriptLoader.isLoaded(script.toFile()));
+
+        BlockingQueue<Path> reloaded = new LinkedBlockingQueue<>();
+        long debounce = 100;
+        try (ScriptWatcher watcher = new ScriptWatcher(directory, false, debounce, (path, logs) -> reloaded.add(path))) {
+            watcher.start();
+            Path away = folder.getRoot().toPath().resolve("moved-away");
+            Files.move(directory.resolve("nested"), away);
+            long end = System.currentTimeMillis() + 30_000;
+            while (ScriptLoader.isLoaded(script.toFile()) && System.currentTimeMillis() < end)
+                Thread.sleep(10);
+            assertFalse("The script wasn't unloaded", ScriptLoader.isLoaded(script.toFile()));
+            // The moved directory isn't watched anymore
+            write(away.resolve("deeper").resolve("moved.txt"),
+                "on script load:",
+                "    set {moved} to 2"
+            );
+            assertNull(reloaded.poll(debounce * 5, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -1,24 +1,39 @@
 package io.github.syst3ms.skriptparser.parsing;
 
 import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.event.ScriptLoadContext;
+import io.github.syst3ms.skriptparser.event.TriggerContext;
+import io.github.syst3ms.skriptparser.expressions.ExprNumberArithmetic;
+import io.github.syst3ms.skriptparser.file.FileElement;
+import io.github.syst3ms.skriptparser.file.FileParser;
+import io.github.syst3ms.skriptparser.file.FileSection;
 import io.github.syst3ms.skriptparser.lang.Expression;
 import io.github.syst3ms.skriptparser.lang.Literal;
 import io.github.syst3ms.skriptparser.lang.SimpleLiteral;
+import io.github.syst3ms.skriptparser.lang.Statement;
+import io.github.syst3ms.skriptparser.lang.Trigger;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.types.PatternType;
 import io.github.syst3ms.skriptparser.types.TypeManager;
 import io.github.syst3ms.skriptparser.util.CollectionUtils;
+import io.github.syst3ms.skriptparser.util.FileUtils;
 import io.github.syst3ms.skriptparser.util.math.BigDecimalMath;
 import io.github.syst3ms.skriptparser.util.math.NumberMath;
+import io.github.syst3ms.skriptparser.variables.Variables;
 import org.jetbrains.annotations.Nullable;
 import org.junit.Test;
 
+import java.io.File;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.List;
 
 import static io.github.syst3ms.skriptparser.event.TriggerContext.DUMMY;
 import static io.github.syst3ms.skriptparser.parsing.SyntaxParser.*;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 @SuppressWarnings({"unchecked", "ConstantConditions"})
@@ -33,7 +48,10 @@ public class SyntaxParserTest {
             return;
         if (actual == null)
             fail("Null expression");
-        assertArrayEquals(expected.getValues(DUMMY), actual.getValues(DUMMY));
+        Object[] values = actual.getValues(DUMMY);
+        assertArrayEquals(expected.getValues(DUMMY), values);
+        if (values.length <= 1) // Expressions may compute their single value without getting all of their values
+            assertEquals(values.length == 1 ? values[0] : null, actual.getSingle(DUMMY));
     }
 
 
@@ -59,6 +77,59 @@ public class SyntaxParserTest {
         return new SimpleLiteral<>(values);
     }
 
+    /**
+     * A number that isn't simplified away, and counts how many times it was boxed
+     */
+    private static class BoxedNumber implements Expression<Number> {
+        private final Number value;
+        private int boxed;
+
+        BoxedNumber(Number value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean init(Expression<?>[] expressions, int matchedPattern, ParseContext parseContext) {
+            return true;
+        }
+
+        @Override
+        public Number[] getValues(TriggerContext ctx) {
+            boxed++;
+            return new Number[]{value};
+        }
+
+        @Override
+        @Nullable
+        public Class<?> getPrimitiveType() {
+            return value instanceof Long ? long.class : value instanceof Double ? double.class : null;
+        }
+
+        @Override
+        public long getLong(TriggerContext ctx) {
+            return value.longValue();
+        }
+
+        @Override
+        public double getDouble(TriggerContext ctx) {
+            return value.doubleValue();
+        }
+
+        @Override
+        public String toString(@Nullable TriggerContext ctx, boolean debug) {
+            return value.toString();
+        }
+    }
+
+    /**
+     * @param operator the index of the operator in {@link ExprNumberArithmetic#PATTERNS}
+     */
+    private static Expression<Number> arithmetic(Expression<? extends Number> first, int operator, Expression<? extends Number> second) {
+        ExprNumberArithmetic arithmetic = new ExprNumberArithmetic();
+        arithmetic.init(new Expression[]{first, second}, operator, null);
+        return arithmetic;
+    }
+
     @Test
     public void literalTest() throws Exception {
         SkriptLogger logger = new SkriptLogger();
@@ -110,6 +181,23 @@ public class SyntaxParserTest {
             literal(BigInteger.valueOf(3435)),
             parseExpression("3^3+4^4+3^3+5^5", numberType, logger)
         );
+        // These are simplified to literals, the way they are computed is tested in arithmeticSpecializationTest
+        assertExpressionEquals(
+            literal(6L),
+            parseExpression("2L*3L", numberType, logger)
+        );
+        assertExpressionEquals(
+            literal(BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE)),
+            parseExpression("9223372036854775807L+1L", numberType, logger)
+        );
+        assertExpressionEquals(
+            literal(0.25),
+            parseExpression("1L/4D", numberType, logger)
+        );
+        assertExpressionEquals(
+            literal(-0.5),
+            parseExpression("1.5D-2L", numberType, logger)
+        );
         // ExprRange
         PatternType<Object> objectsType = getType(Object.class, false);
         BigInteger[] oneThroughTen = new BigInteger[10];
@@ -141,32 +229,75 @@ public class SyntaxParserTest {
         );
     }
 
-    /*
+    @Nullable
+    private Object runScript(String name) throws Exception {
+        File file = new File(getClass().getClassLoader().getResource(name).toURI());
+        List<String> lines = FileUtils.readAllLines(file);
+        SkriptLogger logger = new SkriptLogger();
+        List<FileElement> elements = new FileParser().parseFileLines(name, lines, 0, 1, logger);
+        Trigger trigger = parseTrigger((FileSection) elements.get(0), new ParserState(), logger);
+        assertNotNull("Couldn't parse " + name, trigger);
+        Statement.runAll(trigger, new ScriptLoadContext(new String[0]));
+        return Variables.getVariable(name.substring(0, name.indexOf('.')), DUMMY, false);
+    }
+
+    @Test
+    public void arithmeticSpecializationTest() {
+        int plus = 0, minus = 1, mult = 2, div = 3, exp = 4;
+
+        // Longs are computed exactly, without boxing anything, even when nested
+        BoxedNumber two = new BoxedNumber(2L), three = new BoxedNumber(3L);
+        Expression<Number> product = arithmetic(two, mult, three);
+        Expression<Number> sum = arithmetic(product, plus, two);
+        assertEquals(long.class, product.getPrimitiveType());
+        assertEquals(long.class, sum.getPrimitiveType());
+        assertEquals(8L, sum.getLong(DUMMY));
+        assertEquals(Long.valueOf(8), sum.getSingle(DUMMY));
+        assertEquals(0, two.boxed + three.boxed);
+
+        // A mix of longs and doubles is computed as doubles
+        BoxedNumber quarter = new BoxedNumber(0.25D);
+        Expression<Number> mixed = arithmetic(arithmetic(product, div, quarter), minus, two);
+        assertEquals(double.class, mixed.getPrimitiveType());
+        assertEquals(22.0, mixed.getDouble(DUMMY), 0);
+        assertEquals(22.0, mixed.getSingle(DUMMY));
+        assertEquals(0, two.boxed + three.boxed + quarter.boxed);
+
+        // Overflowing falls back to BigInteger
+        BoxedNumber max = new BoxedNumber(Long.MAX_VALUE), one = new BoxedNumber(1L);
+        Expression<Number> overflow = arithmetic(arithmetic(max, plus, one), minus, one);
+        assertEquals(long.class, overflow.getPrimitiveType());
+        try {
+            overflow.getLong(DUMMY);
+            fail("The long overflow wasn't detected");
+        } catch (ArithmeticException expected) {
+            // The BigInteger path is taken instead
+        }
+        assertEquals(BigInteger.valueOf(Long.MAX_VALUE), overflow.getSingle(DUMMY));
+        assertEquals(1, max.boxed);
+
+        // Dividing by zero has no value
+        BoxedNumber zero = new BoxedNumber(0D);
+        Expression<Number> byZero = arithmetic(one, div, zero);
+        assertEquals(double.class, byZero.getPrimitiveType());
+        assertNull(byZero.getSingle(DUMMY));
+        assertEquals(1, zero.boxed);
+
+        // These aren't computed as primitives by the Number path either
+        assertNull(arithmetic(two, div, three).getPrimitiveType());
+        assertNull(arithmetic(quarter, div, quarter).getPrimitiveType());
+        assertNull(arithmetic(two, exp, three).getPrimitiveType());
+        assertNull(arithmetic(two, plus, new BoxedNumber(BigInteger.ONE)).getPrimitiveType());
+        Expression<Number> boxed = arithmetic(two, plus, arithmetic(two, exp, three));
+        assertNull(boxed.getPrimitiveType());
+        assertEquals(Long.valueOf(10), boxed.getSingle(DUMMY));
+        assertEquals(3, two.boxed + three.boxed);
+    }
+
     @Test
     public void sectionTest() throws Exception {
-        FileParser fileParser = new FileParser();
-        ClassLoader classLoader = getClass().getClassLoader();
-        // While test
-        File file = new File(classLoader.getResource("while-test.txt").getFile());
-        List<String> lines = FileUtils.readAllLines(file);
-        List<FileElement> elements = fileParser.parseFileLines("while-test", lines, 0, 1);
-        FileSection sec = (FileSection) elements.get(0);
-        CodeSection whileLoop = parseSection(sec);
-        assertTrue("The while loop failed", Statement.runAll(whileLoop, DUMMY));
-        // Loop test
-        file = new File(classLoader.getResource("loop-test.txt").getFile());
-        lines = FileUtils.readAllLines(file);
-        elements = fileParser.parseFileLines("loop-test", lines, 0, 1);
-        sec = (FileSection) elements.get(0);
-        CodeSection loop = parseSection(sec);
-        assertTrue("The loop failed while running", Statement.runAll(loop, DUMMY));
-        // Condition test
-        file = new File(classLoader.getResource("conditions.txt").getFile());
-        lines = FileUtils.readAllLines(file);
-        elements = fileParser.parseFileLines("conditions", lines, 0, 1);
-        sec = (FileSection) elements.get(0);
-        Statement first = ScriptLoader.loadItems(sec).get(0);
-        assertTrue(Statement.runAll(first, DUMMY));
+        assertEquals(10, ((Number) runScript("while-test.txt")).intValue());
+        assertEquals(10, ((Number) runScript("loop-test.txt")).intValue());
+        assertEquals("1337", runScript("conditions.txt"));
     }
-    */
-}
\ No newline at end of file
+}
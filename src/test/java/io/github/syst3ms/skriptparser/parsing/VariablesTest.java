@@ -8,8 +8,13 @@ import io.github.syst3ms.skriptparser.lang.Statement;
 import io.github.syst3ms.skriptparser.log.SkriptLogger;
 import io.github.syst3ms.skriptparser.types.PatternType;
 import io.github.syst3ms.skriptparser.types.TypeManager;
+import io.github.syst3ms.skriptparser.variables.MappedVariableStore;
+import io.github.syst3ms.skriptparser.variables.VariableStore;
+import io.github.syst3ms.skriptparser.variables.Variables;
 import org.jetbrains.annotations.Nullable;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -24,6 +29,9 @@ public class VariablesTest {
         TestRegistration.register();
     }
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     public void assertExpressionEquals(@Nullable Expression<?> expected, @Nullable Expression<?> actual) {
         if (expected == actual)
             return;
@@ -67,4 +75,15 @@ public class VariablesTest {
                             .getClass()
         );
     }
+
+    @Test
+    public void testMappedVariables() throws Exception {
+        VariableStore previous = Variables.getStore();
+        try (MappedVariableStore store = MappedVariableStore.open(folder.getRoot().toPath())) {
+            Variables.setStore(store);
+            testVariables();
+        } finally {
+            Variables.setStore(previous);
+        }
+    }
 }
@@ -0,0 +1,540 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import io.github.syst3ms.skriptparser.types.comparisons.Comparators;
+import io.github.syst3ms.skriptparser.types.comparisons.Relation;
+import io.github.syst3ms.skriptparser.util.math.NumberMath;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VariableMapTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void listVariables() throws Exception {
+        VariableMap map = new VariableMap();
+        map.setVariable("list::10", "ten");
+        map.setVariable("list::b", "b");
+        map.setVariable("list::2", "two");
+        map.setVariable("list::a::x", "x");
+        map.setVariable("list::a", "a");
+        map.setVariable("list", "list");
+        assertEquals("x", map.getVariable("list::a::x"));
+        assertEquals("list", map.getVariable("list"));
+        Map<?, ?> list = (Map<?, ?>) map.getVariable("list::*");
+        assertEquals(Arrays.asList(null, "2", "10", "a", "b"), new ArrayList<>(list.keySet()));
+        assertEquals("a", ((Map<?, ?>) list.get("a")).get(null));
+        map.setVariable("list::a::x", null);
+        assertEquals("a", list.get("a"));
+        map.setVariable("list::*", null);
+        assertNull(map.getVariable("list::*"));
+        assertNull(map.getVariable("list::2"));
+        assertEquals("list", map.getVariable("list"));
+    }
+
+    @Test
+    public void addToLists() throws Exception {
+        VariableMap map = new VariableMap();
+        for (int i = 1; i <= 100; i++)
+            assertEquals(i, map.addToList("list::*", i));
+        map.setVariable("list::50", null);
+        map.setVariable("list::7", null);
+        map.setVariable("list::100", null);
+        assertEquals(7, map.addToList("list::*", "a"));
+        assertEquals(50, map.addToList("list::*", "b"));
+        assertEquals(100, map.addToList("list::*", "c"));
+        assertEquals(101, map.addToList("list::*", "d"));
+        map.setVariable("list::3::x", "x");
+        assertEquals("x", map.getVariable("list::3::x"));
+        assertEquals(3, ((Map<?, ?>) ((Map<?, ?>) map.getVariable("list::*")).get("3")).get(null));
+        map.setVariable("list::3::x", null);
+        assertEquals(3, ((Map<?, ?>) map.getVariable("list::*")).get("3"));
+        map.setVariable("list::1000", "far");
+        map.setVariable("list::0", "zero");
+        map.setVariable("list::01", "one");
+        map.setVariable("list::3", null);
+        assertEquals(3, map.addToList("list::*", "e"));
+        Map<?, ?> list = (Map<?, ?>) map.getVariable("list::*");
+        assertEquals(Arrays.asList("0", "1", "01", "2"), new ArrayList<>(list.keySet()).subList(0, 4));
+        assertEquals("far", list.get("1000"));
+        assertEquals(104, list.size());
+        map.setVariable("list::*", null);
+        assertNull(map.getVariable("list::*"));
+        assertEquals(1, map.addToList("list::*", "again"));
+    }
+
+    @Test
+    public void removeFromLists() throws Exception {
+        Object[] values = {
+                1L, 1, BigInteger.ONE, new BigDecimal("1.0"), 1.0, 0L, 0.0, -0.0, BigDecimal.ZERO, "1", "a", true, 2.5,
+                new BigDecimal("2.50"), 1L << 60, BigInteger.ONE.shiftLeft(60), 1e300
+        };
+        Random random = new Random(42);
+        VariableMap map = new VariableMap();
+        for (int i = 0; i < 200; i++)
+            map.addToList("list::*", values[random.nextInt(values.length)]);
+        map.setVariable("list::sub::x", "x");
+        for (Object value : values) {
+            List<String> expected = new ArrayList<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) map.getVariable("list::*")).entrySet()) {
+                if (Relation.EQUAL.is(Comparators.compare(VariableMap.ownValue(entry.getValue()), value)))
+                    expected.add((String) entry.getKey());
+            }
+            assertEquals(String.valueOf(value), expected.size(), map.countInList("list::*", value));
+            if (!expected.isEmpty())
+                assertEquals(expected.subList(0, 1), map.removeFromList("list::*", value, false));
+            assertEquals(Math.max(expected.size() - 1, 0), map.removeFromList("list::*", value, true).size());
+            assertEquals(0, map.countInList("list::*", value));
+        }
+        assertEquals(0, map.listSize("list::*"));
+        assertEquals("x", map.getVariable("list::sub::x"));
+    }
+
+    @Test
+    public void sortedElements() throws Exception {
+        Object[] values = {
+                1L, 2, BigInteger.TEN, new BigDecimal("1.5"), -3.25, 0L, 0.0, 7.0, new BigDecimal("7"), "a", true,
+                Double.NaN, Double.POSITIVE_INFINITY
+        };
+        Random random = new Random(7);
+        VariableMap map = new VariableMap();
+        for (int i = 0; i < 100; i++)
+            map.addToList("list::*", values[random.nextInt(values.length)]);
+        assertEquals(0, map.sortedElements("list::*", 0, true).size());
+        for (int i = 0; i < 300; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    map.addToList("list::*", values[random.nextInt(values.length)]);
+                    break;
+                case 1:
+                    map.setVariable("list::" + random.nextInt(150), null);
+                    break;
+                case 2:
+                    map.addNumber("list::" + random.nextInt(150), random.nextInt(5), random.nextBoolean());
+                    break;
+                default:
+                    map.setVariable("list::key" + random.nextInt(20), values[random.nextInt(values.length)]);
+            }
+            List<String> expected = new ArrayList<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) map.getVariable("list::*")).entrySet()) {
+                if (OrderedIndex.isOrdered(entry.getValue()))
+                    expected.add((String) entry.getKey());
+            }
+            Map<?, ?> list = (Map<?, ?>) map.getVariable("list::*");
+            expected.sort((a, b) -> Comparators.getJavaComparator().compare(list.get(a), list.get(b))); // Stable
+            assertEquals(expected.subList(0, Math.min(5, expected.size())), keys(map.sortedElements("list::*", 5, false)));
+            List<String> descending = new ArrayList<>(expected);
+            Collections.reverse(descending);
+            assertEquals(descending.subList(0, Math.min(5, expected.size())), keys(map.sortedElements("list::*", 5, true)));
+            List<String> between = new ArrayList<>();
+            for (String key : expected) {
+                Object value = list.get(key);
+                if (Comparators.getJavaComparator().compare(value, 1L) >= 0 && Comparators.getJavaComparator().compare(value, 7.0) <= 0)
+                    between.add(key);
+            }
+            assertEquals(between, keys(map.elementsBetween("list::*", 1L, 7.0)));
+        }
+    }
+
+    @Test
+    public void listAggregates() throws Exception {
+        Object[] values = {
+                1L, 2, BigInteger.TEN, -3.25, 0.5, 7.0, Long.MAX_VALUE, BigInteger.ONE.shiftLeft(70), "a", true
+        };
+        Random random = new Random(11);
+        VariableMap map = new VariableMap();
+        for (int i = 0; i < 50; i++)
+            map.addToList("list::*", values[random.nextInt(3)]);
+        assertEquals(map.listSum("list::*"), sum(map.getVariable("list::*")));
+        for (int i = 0; i < 500; i++) {
+            switch (random.nextInt(4)) {
+                case 0:
+                    map.addToList("list::*", values[random.nextInt(values.length)]);
+                    break;
+                case 1:
+                    map.setVariable("list::" + random.nextInt(100), null);
+                    break;
+                case 2:
+                    map.addNumber("list::" + random.nextInt(100), random.nextInt(5), random.nextBoolean());
+                    break;
+                default:
+                    map.setVariable("list::key" + random.nextInt(20) + "::x", "x");
+                    map.setVariable("list::key" + random.nextInt(20), values[random.nextInt(values.length)]);
+            }
+            Map<?, ?> list = (Map<?, ?>) map.getVariable("list::*");
+            int size = 0;
+            for (Object element : list.values()) {
+                if (VariableMap.ownValue(element) != null)
+                    size++;
+            }
+            assertEquals(size, map.listSize("list::*"));
+            Number expected = sum(list), actual = map.listSum("list::*");
+            assertEquals(expected.getClass(), actual.getClass());
+            if (expected instanceof Double) { // Only rounded once
+                assertEquals(expected.doubleValue(), actual.doubleValue(), 1e-6);
+            } else {
+                assertEquals(0, Comparators.getJavaComparator().compare(expected, actual));
+            }
+        }
+        map.setVariable("list::*", null);
+        assertEquals(0, map.listSize("list::*"));
+        assertEquals(0L, map.listSum("list::*"));
+    }
+
+    @Test
+    public void limitedLists() throws Exception {
+        VariableMap map = new VariableMap();
+        List<String> evicted = new ArrayList<>();
+        map.setEvictionListener(evicted::add);
+        map.setVariable("cache::a", 1L);
+        map.setVariable("cache::b", 2L);
+        map.limitList("cache::*", 3, 0, TimeUnit.SECONDS);
+        map.setVariable("cache::c", 3L);
+        assertEquals(1L, map.getVariable("cache::a")); // Used, so b is now the least recently used
+        map.setVariable("cache::d", 4L);
+        assertEquals(Collections.singletonList("cache::b"), evicted);
+        assertNull(map.getVariable("cache::b"));
+        assertEquals(Arrays.asList("a", "c", "d"), new ArrayList<>(((Map<?, ?>) map.getVariable("cache::*")).keySet()));
+        for (int i = 0; i < 100_000; i++)
+            map.addToList("cache::*", i);
+        assertEquals(3, map.listSize("cache::*"));
+        assertEquals(Arrays.asList(99_997, 99_998, 99_999), new ArrayList<>(((Map<?, ?>) map.getVariable("cache::*")).values()));
+        map.setVariable("cache::*", null);
+        for (int i = 0; i < 5; i++)
+            map.setVariable("cache::" + i, i);
+        assertEquals(3, map.listSize("cache::*")); // The limits outlive the list
+
+        map.limitList("cache::*", 0, 50, TimeUnit.MILLISECONDS);
+        map.setVariable("cache::*", null);
+        map.setVariable("cache::old", "old");
+        Thread.sleep(60);
+        map.setVariable("cache::new", "new");
+        assertNull(map.getVariable("cache::old"));
+        assertEquals("new", map.getVariable("cache::new"));
+        Thread.sleep(60);
+        assertNull(map.getVariable("cache::*"));
+        map.limitList("cache::*", 0, 0, TimeUnit.SECONDS);
+        map.setVariable("cache::x", "x");
+        Thread.sleep(60);
+        assertEquals("x", map.getVariable("cache::x"));
+    }
+
+    @Test
+    public void iteratedLists() throws Exception {
+        VariableMap map = new VariableMap();
+        for (int i = 0; i < 5; i++)
+            map.addToList("list::*", i);
+        Iterator<Map.Entry<String, Object>> outer = map.iterateList("list::*");
+        List<String> seen = new ArrayList<>();
+        while (outer.hasNext()) {
+            Map.Entry<String, Object> element = outer.next();
+            seen.add(element.getKey() + "=" + element.getValue());
+            if (element.getKey().equals("2")) {
+                map.setVariable("list::4", null); // Skipped
+                map.setVariable("list::5", "changed"); // Read when reached
+                map.setVariable("list::6", "added"); // Left out
+                Iterator<Map.Entry<String, Object>> inner = map.iterateList("list::*");
+                int count = 0;
+                while (inner.hasNext()) {
+                    inner.next();
+                    count++;
+                }
+                assertEquals(5, count);
+            }
+        }
+        assertEquals(Arrays.asList("1=0", "2=1", "3=2", "5=changed"), seen);
+        assertEquals(Arrays.asList("1", "2", "3", "5", "6"), new ArrayList<>(((Map<?, ?>) map.getVariable("list::*")).keySet()));
+
+        map.setVariable("keys::b", "b");
+        map.setVariable("keys::a::x", "x");
+        map.setVariable("keys::c", "c");
+        Iterator<Map.Entry<String, Object>> keys = map.iterateList("keys::*");
+        assertEquals("b", keys.next().getKey()); // The element a has no value of its own
+        map.setVariable("keys::*", null);
+        map.setVariable("keys::c", "new");
+        assertFalse(keys.hasNext()); // The list it was iterating over is gone
+        assertFalse(map.iterateList("missing::*").hasNext());
+    }
+
+    private static Number sum(Object list) {
+        Number sum = 0L;
+        for (Object element : ((Map<?, ?>) list).values()) {
+            Object value = VariableMap.ownValue(element);
+            if (value instanceof Number)
+                sum = NumberMath.add(sum, (Number) value);
+        }
+        return sum;
+    }
+
+    private static List<String> keys(List<Map.Entry<String, Object>> elements) {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Object> element : elements)
+            keys.add(element.getKey());
+        return keys;
+    }
+
+    @Test
+    public void concurrentListCopies() throws Exception {
+        ConcurrentVariableMap map = new ConcurrentVariableMap();
+        map.setVariable("list::a::x", "x");
+        map.setVariable("list::a", "a");
+        map.setVariable("list::b::y", "y");
+        map.setVariable("list::c", "c");
+        Map<?, ?> list = (Map<?, ?>) map.getVariable("list::*");
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(list.keySet()));
+        assertEquals("a", VariableMap.ownValue(list.get("a")));
+        assertNull(VariableMap.ownValue(list.get("b")));
+        assertEquals("c", list.get("c"));
+        map.setVariable("list::a", "changed");
+        map.setVariable("list::d", "d");
+        assertEquals("a", VariableMap.ownValue(list.get("a")));
+        assertFalse(list.containsKey("d"));
+        assertEquals("x", map.getVariable("list::a::x"));
+    }
+
+    @Test
+    public void numberCells() throws Exception {
+        Number[] numbers = {
+                0L, 1L, -7L, Long.MAX_VALUE, Long.MIN_VALUE, 2.5, -0.1,
+                BigInteger.ONE, BigInteger.valueOf(Long.MAX_VALUE), BigInteger.ONE.shiftLeft(70),
+                new BigDecimal("0.1"), new BigDecimal("-12.345"), new BigDecimal("1E+3"),
+                new BigDecimal("92233720368547758.07"), new BigDecimal("0.000000000000000000001"), 3
+        };
+        VariableMap map = new VariableMap();
+        for (Number start : numbers) {
+            for (Number difference : numbers) {
+                for (boolean subtract : new boolean[] {false, true}) {
+                    map.setVariable("n", start);
+                    Number expected = start;
+                    for (int i = 0; i < 3; i++) {
+                        expected = subtract ? NumberMath.subtract(expected, difference) : NumberMath.add(expected, difference);
+                        map.addNumber("n", difference, subtract);
+                        Object actual = map.getVariable("n");
+                        String message = start + (subtract ? " - " : " + ") + difference + " x" + (i + 1);
+                        assertEquals(message, expected.getClass(), actual.getClass());
+                        assertEquals(message, expected, actual);
+                    }
+                }
+            }
+        }
+        assertFalse(map.addNumber("unset", 1L, false));
+    }
+
+    @Test
+    public void mappedStore() throws Exception {
+        try (MappedVariableStore store = MappedVariableStore.open(folder.getRoot().toPath())) {
+            store.setVariable("list::10", "ten");
+            store.setVariable("list::b", "b");
+            store.setVariable("list::2", "two");
+            store.setVariable("list::a::x", "x");
+            store.setVariable("list::a", "a");
+            store.setVariable("list", "list");
+            for (int i = 0; i < 2000; i++) { // Enough to grow the index
+                store.setVariable("numbers::" + i, (long) i);
+            }
+            assertEquals("x", store.getVariable("list::a::x"));
+            Map<?, ?> list = (Map<?, ?>) store.getVariable("list::*");
+            assertEquals(Arrays.asList(null, "2", "10", "a", "b"), new ArrayList<>(list.keySet()));
+            assertEquals("a", ((Map<?, ?>) list.get("a")).get(null));
+            store.setVariable("list::a::x", null);
+            assertEquals("a", ((Map<?, ?>) store.getVariable("list::*")).get("a"));
+            store.setVariable("list::*", null);
+            assertNull(store.getVariable("list::*"));
+            assertNull(store.getVariable("list::2"));
+            assertEquals(2000, ((Map<?, ?>) store.getVariable("numbers::*")).size());
+            assertEquals(3L, store.changeVariable("numbers::2", v -> (Long) v + 1));
+            store.setVariable("values::1", new BigInteger("-123456789012345678901234567890"));
+            store.setVariable("values::2", new BigDecimal("3.14159265358979323846"));
+            store.setVariable("values::3", -0.5);
+            store.setVariable("values::4", true);
+            store.setVariable("values::5", Long.MIN_VALUE);
+        }
+        try (MappedVariableStore store = MappedVariableStore.open(folder.getRoot().toPath())) {
+            assertEquals("list", store.getVariable("list"));
+            assertEquals(1999L, store.getVariable("numbers::1999"));
+            assertEquals(3L, store.getVariable("numbers::2"));
+            assertEquals(
+                    Arrays.asList(
+                            new BigInteger("-123456789012345678901234567890"),
+                            new BigDecimal("3.14159265358979323846"),
+                            -0.5,
+                            true,
+                            Long.MIN_VALUE
+                    ),
+                    new ArrayList<>(((Map<?, ?>) store.getVariable("values::*")).values())
+            );
+        }
+    }
+
+    @Test
+    public void mappedStoreLists() throws Exception {
+        Object[] values = {1L, BigInteger.TEN, -3.25, 0.5, Long.MAX_VALUE, BigInteger.ONE.shiftLeft(70), "a", true};
+        Random random = new Random(13);
+        VariableMap expected = new VariableMap();
+        try (MappedVariableStore store = MappedVariableStore.open(folder.getRoot().toPath())) {
+            store.addToList("list::*", new Object[0]);
+            assertNull(store.getVariable("list::*"));
+            for (int i = 0; i < 500; i++) {
+                switch (random.nextInt(5)) {
+                    case 0:
+                    case 1:
+                        Object value = values[random.nextInt(values.length)];
+                        store.addToList("list::*", new Object[] {value});
+                        expected.addToList("list::*", value);
+                        break;
+                    case 2:
+                        String key = "list::" + random.nextInt(100);
+                        store.setVariable(key, null);
+                        expected.setVariable(key, null);
+                        break;
+                    case 3:
+                        Object removed = values[random.nextInt(values.length)];
+                        boolean all = random.nextBoolean();
+                        store.removeFromList("list::*", removed, all);
+                        expected.removeFromList("list::*", removed, all);
+                        break;
+                    default:
+                        int k = random.nextInt(20);
+                        Object v = values[random.nextInt(values.length)];
+                        store.setVariable("list::key" + k + "::x", "x");
+                        store.setVariable("list::key" + k, v);
+                        expected.setVariable("list::key" + k + "::x", "x");
+                        expected.setVariable("list::key" + k, v);
+                }
+                assertEquals(expected.listSize("list::*"), store.listSize("list::*"));
+                Number expectedSum = expected.listSum("list::*"), actualSum = store.listSum("list::*");
+                assertEquals(expectedSum.getClass(), actualSum.getClass());
+                assertEquals(0, Comparators.getJavaComparator().compare(expectedSum, actualSum));
+                Object counted = values[random.nextInt(values.length)];
+                assertEquals(expected.countInList("list::*", counted), store.countInList("list::*", counted));
+            }
+            List<Map.Entry<String, Object>> iterated = new ArrayList<>();
+            store.iterateList("list::*").forEachRemaining(iterated::add);
+            List<Map.Entry<String, Object>> expectedIterated = new ArrayList<>();
+            expected.iterateList("list::*").forEachRemaining(expectedIterated::add);
+            assertEquals(expectedIterated, iterated);
+        }
+        // The sizes and free indices of lists are kept in the store
+        try (MappedVariableStore store = MappedVariableStore.open(folder.getRoot().toPath())) {
+            assertEquals(expected.listSize("list::*"), store.listSize("list::*"));
+            store.addToList("list::*", new Object[] {"last"});
+            expected.addToList("list::*", "last");
+            assertEquals(
+                    new ArrayList<>(((Map<?, ?>) expected.getVariable("list::*")).keySet()),
+                    new ArrayList<>(((Map<?, ?>) store.getVariable("list::*")).keySet())
+            );
+            store.setVariable("list::*", null);
+            assertEquals(0, store.listSize("list::*"));
+            assertEquals(0L, store.listSum("list::*"));
+        }
+    }
+
+    @Test
+    public void mappedStoreLimitedLists() throws Exception {
+        try (MappedVariableStore store = MappedVariableStore.open(folder.getRoot().toPath())) {
+            store.setVariable("cache::a", 1L);
+            store.setVariable("cache::b", 2L);
+            assertTrue(store.limitList("cache::*", 3, 0, TimeUnit.SECONDS));
+            store.setVariable("cache::c", 3L);
+            assertEquals(1L, store.getVariable("cache::a")); // Used, so b is now the least recently used
+            store.setVariable("cache::d", 4L);
+            assertNull(store.getVariable("cache::b"));
+            assertEquals(Arrays.asList("a", "c", "d"), new ArrayList<>(((Map<?, ?>) store.getVariable("cache::*")).keySet()));
+            for (int i = 0; i < 1000; i++)
+                store.addToList("cache::*", new Object[] {(long) i});
+            assertEquals(3, store.listSize("cache::*"));
+            assertEquals(Arrays.asList(997L, 998L, 999L), new ArrayList<>(((Map<?, ?>) store.getVariable("cache::*")).values()));
+            store.setVariable("cache::*", null);
+            for (int i = 0; i < 5; i++)
+                store.setVariable("cache::" + i, (long) i);
+            assertEquals(3, store.listSize("cache::*")); // The limits outlive the list
+
+            store.limitList("cache::*", 0, 50, TimeUnit.MILLISECONDS);
+            store.setVariable("cache::*", null);
+            store.setVariable("cache::old", "old");
+            Thread.sleep(60);
+            store.setVariable("cache::new", "new");
+            assertNull(store.getVariable("cache::old"));
+            assertEquals("new", store.getVariable("cache::new"));
+            Thread.sleep(60);
+            assertNull(store.getVariable("cache::*"));
+            store.limitList("cache::*", 0, 0, TimeUnit.SECONDS);
+            store.setVariable("cache::x", "x");
+            Thread.sleep(60);
+            assertEquals("x", store.getVariable("cache::x"));
+        }
+    }
+
+    @Test
+    public void mappedStoreConcurrentAppends() throws Exception {
+        try (MappedVariableStore store = MappedVariableStore.open(folder.getRoot().toPath())) {
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                long offset = t * 1000L;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++)
+                        store.addToList("list::*", new Object[] {offset + i});
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+            assertEquals(4000, store.listSize("list::*"));
+            Map<?, ?> list = (Map<?, ?>) store.getVariable("list::*");
+            assertEquals(4000, list.size());
+            for (int i = 1; i <= 4000; i++)
+                assertTrue(list.containsKey(String.valueOf(i)));
+            assertEquals(3999L * 4000 / 2, store.listSum("list::*"));
+        }
+    }
+
+    @Test
+    public void mappedStoreTooLargeValue() throws Exception {
+        char[] chars = new char[1 << 24];
+        Arrays.fill(chars, 'a');
+        String large = new String(chars);
+        try (MappedVariableStore store = MappedVariableStore.open(folder.getRoot().toPath())) {
+            store.setVariable("large", "small");
+            store.addToList("list::*", new Object[] {"first"});
+            try {
+                store.setVariable("large", large);
+                fail("The value should have been too large");
+            } catch (IllegalArgumentException expected) {
+                assertEquals("small", store.getVariable("large"));
+            }
+            try {
+                store.addToList("list::*", new Object[] {"second", large});
+                fail("The value should have been too large");
+            } catch (IllegalArgumentException expected) {
+                assertEquals(Arrays.asList("first", "second"), new ArrayList<>(((Map<?, ?>) store.getVariable("list::*")).values()));
+            }
+            store.addToList("list::*", new Object[] {"third"});
+            assertEquals("third", store.getVariable("list::3"));
+            assertEquals(3, store.listSize("list::*"));
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package io.github.syst3ms.skriptparser.variables;
+
+import io.github.syst3ms.skriptparser.TestRegistration;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VariablePersistenceTest {
+
+    static {
+        TestRegistration.register();
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory() {
+        return folder.getRoot().toPath();
+    }
+
+    /**
+     * Writes a hundred variables while compacting as often as possible
+     */
+    private void writeCompacted() throws IOException {
+        ConcurrentVariableMap map = new ConcurrentVariableMap();
+        try (VariablePersistence persistence = VariablePersistence.open(directory(), map, 10)) {
+            for (int i = 0; i < 100; i++)
+                map.setVariable("v::" + i, String.valueOf(i));
+            map.setVariable("v::0", null);
+            awaitSnapshot();
+            assertNull(persistence.getFailure());
+        }
+    }
+
+    /**
+     * Waits for the writer to get to the changes made so far and compact them, as it doesn't when it is closed
+     */
+    private void awaitSnapshot() throws IOException {
+        Path snapshot = directory().resolve("variables.snapshot");
+        long end = System.currentTimeMillis() + 10_000;
+        while (!Files.isRegularFile(snapshot) && System.currentTimeMillis() < end)
+            Thread.yield();
+        assertTrue("No snapshot was written", Files.isRegularFile(snapshot));
+    }
+
+    private ConcurrentVariableMap restore() throws IOException {
+        ConcurrentVariableMap map = new ConcurrentVariableMap();
+        VariablePersistence.open(directory(), map).close();
+        return map;
+    }
+
+    private static void assertWritten(ConcurrentVariableMap map) {
+        assertNull(map.getVariable("v::0"));
+        for (int i = 1; i < 100; i++)
+            assertEquals(String.valueOf(i), map.getVariable("v::" + i));
+    }
+
+    private List<Long> logGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory(), "variables.*.log")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                generations.add(Long.parseLong(name.substring("variables.".length(), name.length() - ".log".length())));
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private long snapshotGeneration() throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(directory().resolve("variables.snapshot")))) {
+            in.readInt();
+            in.readInt();
+            return in.readLong();
+        }
+    }
+
+    @Test
+    public void compaction() throws Exception {
+        writeCompacted();
+        long first = snapshotGeneration();
+        for (long g : logGenerations())
+            assertTrue("The log " + g + " should have been deleted", g >= first);
+        assertWritten(restore());
+        assertWritten(restore());
+    }
+
+    @Test
+    public void truncatedLog() throws Exception {
+        writeCompacted();
+        ConcurrentVariableMap map = new ConcurrentVariableMap();
+        try (VariablePersistence persistence = VariablePersistence.open(directory(), map)) {
+            map.setVariable("last", "old");
+            map.setVariable("last", "new");
+            assertNull(persistence.getFailure());
+        }
+        List<Long> generations = logGenerations();
+        Path last = directory().resolve("variables." + generations.get(generations.size() - 1) + ".log");
+        try (RandomAccessFile file = new RandomAccessFile(last.toFile(), "rw")) {
+            file.setLength(file.length() - 2); // Stops in the middle of the value of the last change
+        }
+
+        map = new ConcurrentVariableMap();
+        try (VariablePersistence persistence = VariablePersistence.open(directory(), map)) {
+            assertWritten(map);
+            assertEquals("old", map.getVariable("last"));
+            map.setVariable("after", "after");
+            assertNull(persistence.getFailure());
+        }
+        map = restore();
+        assertWritten(map);
+        assertEquals("old", map.getVariable("last"));
+        assertEquals("after", map.getVariable("after"));
+    }
+
+    @Test
+    public void leftoverFiles() throws Exception {
+        writeCompacted();
+        Path temp = directory().resolve("variables.snapshot123.tmp");
+        Files.write(temp, new byte[] {1, 2, 3});
+        // A log that was already part of the snapshot, and would undo a later change if it was replayed
+        Path stale = directory().resolve("variables.0.log");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(stale))) {
+            out.writeInt(0x534B5641);
+            out.writeInt(2);
+            byte[] value = ValueCodec.encode("stale");
+            out.writeUTF("v::1");
+            out.writeInt(value.length);
+            out.write(value);
+        }
+        assertTrue(snapshotGeneration() > 0);
+
+        assertWritten(restore());
+        assertFalse(Files.exists(temp));
+        assertFalse(Files.exists(stale));
+    }
+
+    @Test
+    public void compactionWhileWriting() throws Exception {
+        ConcurrentVariableMap map = new ConcurrentVariableMap();
+        try (VariablePersistence persistence = VariablePersistence.open(directory(), map, 50)) {
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                String prefix = "t" + t;
+                threads[t] = new Thread(() -> {
+                    map.setVariable(prefix + "::gone", "gone");
+                    for (int i = 0; i < 1000; i++) {
+                        map.setVariable(prefix + "::" + i % 100, String.valueOf(i));
+                        map.setVariable(prefix, String.valueOf(i));
+                    }
+                    map.setVariable(prefix + "::gone", null);
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads)
+                thread.join();
+            awaitSnapshot();
+            assertNull(persistence.getFailure());
+        }
+        long first = snapshotGeneration();
+        assertTrue(first > 1);
+        for (long g : logGenerations())
+            assertTrue(g >= first);
+
+        ConcurrentVariableMap restored = restore();
+        for (int t = 0; t < 4; t++) {
+            assertEquals("999", restored.getVariable("t" + t));
+            assertNull(restored.getVariable("t" + t + "::gone"));
+            for (int i = 0; i < 100; i++)
+                assertEquals(String.valueOf(900 + i), restored.getVariable("t" + t + "::" + i));
+        }
+    }
+
+    @Test
+    public void writerFailure() throws Exception {
+        ConcurrentVariableMap map = new ConcurrentVariableMap();
+        VariablePersistence persistence = VariablePersistence.open(directory(), map, 10);
+        // The snapshot can't be written once the directory is gone
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory())) {
+            for (Path path : stream)
+                Files.delete(path);
+        }
+        Files.delete(directory());
+        for (int i = 0; i < 100; i++)
+            map.setVariable("v::" + i, String.valueOf(i));
+        long end = System.currentTimeMillis() + 10_000;
+        while (persistence.getFailure() == null && System.currentTimeMillis() < end)
+            Thread.yield();
+        IOException failure = persistence.getFailure();
+        assertNotNull("The writer didn't fail", failure);
+        try {
+            persistence.close();
+            fail("The failure of the writer wasn't reported");
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+    }
+}